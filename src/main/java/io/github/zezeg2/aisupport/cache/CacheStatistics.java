@@ -0,0 +1,34 @@
+package io.github.zezeg2.aisupport.cache;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The CacheStatistics class is a snapshot of the hit and miss counts of a TieredResultCache.
+ */
+@Data
+@Builder
+public class CacheStatistics {
+    private final long localHitCount;
+    private final long sharedHitCount;
+    private final long missCount;
+
+    /**
+     * Gets the number of lookups answered by either tier.
+     *
+     * @return The total hit count.
+     */
+    public long getHitCount() {
+        return localHitCount + sharedHitCount;
+    }
+
+    /**
+     * Gets the ratio of lookups answered by either tier.
+     *
+     * @return The hit ratio, or 0 if there was no lookup.
+     */
+    public double getHitRatio() {
+        long requestCount = getHitCount() + missCount;
+        return requestCount == 0 ? 0d : (double) getHitCount() / requestCount;
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.zezeg2.aisupport.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Represents a document in the "result_cache" collection in MongoDB.
+ * This class is used to share validated AI function results across nodes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "result_cache")
+public class CachedResult {
+
+    /**
+     * The cache key.
+     */
+    @Id
+    private String key;
+
+    /**
+     * The validated result.
+     */
+    private String result;
+
+    /**
+     * The time after which the result is expired and removed by the TTL index.
+     */
+    private Date expireAt;
+}
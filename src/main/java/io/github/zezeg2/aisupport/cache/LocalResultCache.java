@@ -0,0 +1,55 @@
+package io.github.zezeg2.aisupport.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The LocalResultCache class is an in-process LRU result cache with size and time-to-live eviction.
+ */
+public class LocalResultCache implements ResultCache {
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Constructs a LocalResultCache.
+     *
+     * @param maxSize The maximum number of cached results; the least recently used result is evicted beyond it.
+     * @param ttl     The time to live of a cached result.
+     */
+    public LocalResultCache(int maxSize, Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    @Override
+    public synchronized void put(String key, String result) {
+        entries.put(key, new Entry(result, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private static class Entry {
+        private final String result;
+        private final long expiresAt;
+
+        private Entry(String result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.zezeg2.aisupport.cache;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * The MongoResultCache class is a result cache shared across nodes through MongoDB.
+ * Expired results are removed by a TTL index and ignored on read until they are removed.
+ */
+public class MongoResultCache implements ResultCache {
+    private final MongoTemplate mongoTemplate;
+    private final Duration ttl;
+
+    public MongoResultCache(MongoTemplate mongoTemplate, Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.ttl = ttl;
+        mongoTemplate.indexOps(CachedResult.class).ensureIndex(new Index().on("expireAt", Sort.Direction.ASC).expire(Duration.ZERO));
+    }
+
+    @Override
+    public String get(String key) {
+        CachedResult cachedResult = mongoTemplate.findById(key, CachedResult.class);
+        if (cachedResult == null || cachedResult.getExpireAt().before(new Date())) return null;
+        return cachedResult.getResult();
+    }
+
+    @Override
+    public void put(String key, String result) {
+        mongoTemplate.save(new CachedResult(key, result, new Date(System.currentTimeMillis() + ttl.toMillis())));
+    }
+}
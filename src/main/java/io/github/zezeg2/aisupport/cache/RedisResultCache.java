@@ -0,0 +1,31 @@
+package io.github.zezeg2.aisupport.cache;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * The RedisResultCache class is a result cache shared across nodes through Redis.
+ * Results are stored as string values expiring after the configured time to live.
+ */
+public class RedisResultCache implements ResultCache {
+    private static final String KEY_PREFIX = "result-cache:";
+
+    private final RedisTemplate<String, String> template;
+    private final Duration ttl;
+
+    public RedisResultCache(RedisTemplate<String, String> template, Duration ttl) {
+        this.template = template;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public String get(String key) {
+        return template.opsForValue().get(KEY_PREFIX + key);
+    }
+
+    @Override
+    public void put(String key, String result) {
+        template.opsForValue().set(KEY_PREFIX + key, result, ttl);
+    }
+}
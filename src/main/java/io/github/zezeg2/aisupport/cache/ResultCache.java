@@ -0,0 +1,24 @@
+package io.github.zezeg2.aisupport.cache;
+
+/**
+ * The ResultCache interface defines the contract for caching validated AI function results.
+ * Results are stored as the validated JSON string produced by the result validator chain.
+ */
+public interface ResultCache {
+
+    /**
+     * Retrieves the cached result for the given key.
+     *
+     * @param key The cache key.
+     * @return The cached result, or {@code null} if not found or expired.
+     */
+    String get(String key);
+
+    /**
+     * Caches the result for the given key.
+     *
+     * @param key    The cache key.
+     * @param result The validated result to cache.
+     */
+    void put(String key, String result);
+}
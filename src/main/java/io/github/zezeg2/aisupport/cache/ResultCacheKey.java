@@ -0,0 +1,52 @@
+package io.github.zezeg2.aisupport.cache;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.context.ContextRetention;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The ResultCacheKey class creates keys identifying identical AI function executions, used for result caching and coalescing.
+ * A key is the SHA-256 hash of everything that determines the chat completion request of an execution.
+ */
+public class ResultCacheKey {
+
+    /**
+     * Creates the key for an execution.
+     *
+     * @param functionName The name of the AI function.
+     * @param model        The AI model used for the execution.
+     * @param topP         The topP value used for the execution.
+     * @param contents     The rendered contents of the execution, such as the system prompt and the serialized arguments.
+     * @return The key of the execution.
+     */
+    public static String of(String functionName, AIModel model, double topP, String... contents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((model.getValue() + ":" + topP).getBytes(StandardCharsets.UTF_8));
+            for (String content : contents) {
+                digest.update((byte) 0);
+                digest.update(content.getBytes(StandardCharsets.UTF_8));
+            }
+            return functionName + ":" + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Creates the key under which an execution is coalesced with concurrent identical executions.
+     * It includes the identifier, so that every caller gets its message context saved under its own identifier,
+     * except for temporary identifiers, whose message contexts are never looked up again.
+     *
+     * @param executionKey The key of the execution.
+     * @param identifier   The identifier of the execution.
+     * @return The coalescing key of the execution.
+     */
+    public static String forCaller(String executionKey, String identifier) {
+        return ContextRetention.isTemporary(identifier) ? executionKey : executionKey + ":" + identifier;
+    }
+}
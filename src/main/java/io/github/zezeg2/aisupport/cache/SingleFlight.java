@@ -0,0 +1,51 @@
+package io.github.zezeg2.aisupport.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The SingleFlight class coalesces concurrent calls with the same key into a single in-flight computation.
+ * The first caller runs the computation; callers arriving while it is in flight wait for it and receive
+ * the same result or the same error. Once the computation completes, the next call for the key starts a new one.
+ */
+public class SingleFlight {
+    private final Map<String, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the computation for the key, or waits for the in-flight computation of the same key.
+     *
+     * @param key         The key identifying identical computations.
+     * @param computation The computation to run when no computation is in flight for the key.
+     * @param <V>         The type of the computation result.
+     * @return The result of the computation.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String key, Supplier<V> computation) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) return (V) await(inFlight);
+        try {
+            V result = computation.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
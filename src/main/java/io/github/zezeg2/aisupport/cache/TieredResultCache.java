@@ -0,0 +1,65 @@
+package io.github.zezeg2.aisupport.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TieredResultCache class combines an in-process cache with an optional shared cache.
+ * Lookups are answered by the local tier first, then by the shared tier, whose hits are copied into the local tier.
+ * Hit and miss counts of both tiers are recorded and exposed through {@link #getStatistics()}.
+ */
+public class TieredResultCache implements ResultCache {
+    private final ResultCache localCache;
+    private final ResultCache sharedCache;
+    private final LongAdder localHitCount = new LongAdder();
+    private final LongAdder sharedHitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Constructs a TieredResultCache.
+     *
+     * @param localCache  The in-process cache.
+     * @param sharedCache The shared cache, or {@code null} to use the local tier only.
+     */
+    public TieredResultCache(ResultCache localCache, ResultCache sharedCache) {
+        this.localCache = localCache;
+        this.sharedCache = sharedCache;
+    }
+
+    @Override
+    public String get(String key) {
+        String result = localCache.get(key);
+        if (result != null) {
+            localHitCount.increment();
+            return result;
+        }
+        if (sharedCache != null) {
+            result = sharedCache.get(key);
+            if (result != null) {
+                sharedHitCount.increment();
+                localCache.put(key, result);
+                return result;
+            }
+        }
+        missCount.increment();
+        return null;
+    }
+
+    @Override
+    public void put(String key, String result) {
+        localCache.put(key, result);
+        if (sharedCache != null) sharedCache.put(key, result);
+    }
+
+    /**
+     * Gets a snapshot of the hit and miss counts.
+     *
+     * @return The cache statistics.
+     */
+    public CacheStatistics getStatistics() {
+        return CacheStatistics.builder()
+                .localHitCount(localHitCount.sum())
+                .sharedHitCount(sharedHitCount.sum())
+                .missCount(missCount.sum())
+                .build();
+    }
+}
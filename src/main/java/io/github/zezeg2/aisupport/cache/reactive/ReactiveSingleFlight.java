@@ -0,0 +1,38 @@
+package io.github.zezeg2.aisupport.cache.reactive;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The ReactiveSingleFlight class coalesces concurrent subscriptions with the same key into a single in-flight computation
+ * in a reactive manner. Subscribers arriving while the computation is in flight share its result or its error.
+ * Once the computation terminates, the next subscription for the key starts a new one.
+ */
+public class ReactiveSingleFlight {
+    private final Map<String, Mono<Object>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Subscribes to the computation for the key, or shares the in-flight computation of the same key.
+     *
+     * @param key         The key identifying identical computations.
+     * @param computation The supplier of the computation to subscribe when no computation is in flight for the key.
+     * @param <V>         The type of the computation result.
+     * @return A Mono emitting the result of the computation.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Mono<V> execute(String key, Supplier<Mono<V>> computation) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<Object>> self = new AtomicReference<>();
+            Mono<Object> call = Mono.defer(computation).cast(Object.class)
+                    .doFinally(signal -> calls.remove(key, self.get()))
+                    .share();
+            self.set(call);
+            Mono<Object> inFlight = calls.putIfAbsent(key, call);
+            return (Mono<V>) (inFlight != null ? inFlight : call);
+        });
+    }
+}
@@ -1,12 +1,15 @@
 package io.github.zezeg2.aisupport.common.bill;
 
 import com.theokanning.openai.Usage;
+import com.theokanning.openai.completion.chat.ChatMessage;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.util.TokenCountUtil;
 import io.github.zezeg2.aisupport.common.util.TokenUsageUtil;
 import lombok.Data;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -14,9 +17,28 @@ import java.util.concurrent.ConcurrentHashMap;
 public class Bill {
     private Map<AIModel, Usage> usages = new ConcurrentHashMap<>();
     private Map<AIModel, Double> prices = new ConcurrentHashMap<>();
-    private Double totalPrice;
+    private Double totalPrice = 0.0;
+
+    /**
+     * Estimates the bill of a chat completion request before it is sent, counting its prompt tokens locally.
+     *
+     * @param model            The AI model of the request.
+     * @param messages         The chat messages of the request.
+     * @param completionTokens The expected number of completion tokens.
+     * @return The estimated bill.
+     */
+    public static Bill estimate(AIModel model, List<ChatMessage> messages, long completionTokens) {
+        Usage usage = new Usage();
+        usage.setPromptTokens(TokenCountUtil.countTokens(model, messages));
+        usage.setCompletionTokens(completionTokens);
+        usage.setTotalTokens(usage.getPromptTokens() + completionTokens);
+        Bill bill = new Bill();
+        bill.addUsage(model, usage);
+        return bill;
+    }
 
     public void addUsage(AIModel model, Usage usage) {
+        if (usage == null) return;
         if (usages.containsKey(model)) {
             Usage updatedUsage = TokenUsageUtil.mergeUsage(usages.get(model), usage);
             usages.put(model, updatedUsage);
@@ -59,7 +81,7 @@ public class Bill {
                 Usage mergedUsage = TokenUsageUtil.mergeUsage(this.usages.get(model), operandUsage);
                 this.usages.put(model, mergedUsage);
             } else {
-                this.usages.put(model, operandUsage);
+                this.usages.put(model, TokenUsageUtil.mergeUsage(new Usage(), operandUsage));
             }
         }
 
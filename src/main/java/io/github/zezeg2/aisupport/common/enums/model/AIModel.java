@@ -14,4 +14,11 @@ public interface AIModel {
     double getRequestPrice();
 
     double getResponsePrice();
+
+    /**
+     * Retrieves the context window of the model, the maximum number of tokens the prompt and the completion may use together.
+     *
+     * @return The context window of the model in tokens.
+     */
+    int getContextWindow();
 }
@@ -18,24 +18,43 @@ public enum GPT4Model implements GPTModel {
      * More capable than any GPT-3.5 model, able to do more complex tasks, and optimized for chat. Will be updated with our latest model iteration.
      * 8k context
      */
-    GPT_4("gpt-4", 0.00003d, 0.00006d),
+    GPT_4("gpt-4", 0.00003d, 0.00006d, 8192),
 
     /**
      * Snapshot of gpt-4 from March 14th, 2023. Unlike gpt-4, this model will not receive updates, and will only be supported for a three-month period ending on June 14th, 2023.
      * 8k context, but specific snapshot
      */
-    GPT_4_0314("gpt-4-0314", 0.00003d, 0.00006d),
+    GPT_4_0314("gpt-4-0314", 0.00003d, 0.00006d, 8192),
 
     /**
      * Snapshot of gpt-4 from June 13th 2023 with function calling data. Unlike gpt-4, this model will not receive updates, and will be deprecated 3 months after a new version is released.
      */
-    GPT_4_0613("gpt-4-0613", 0.00006d, 0.00012d);
+    GPT_4_0613("gpt-4-0613", 0.00006d, 0.00012d, 8192),
+
+    /**
+     * Same capabilities as the base gpt-4 mode but with 4x the context length. Will be updated with our latest model iteration.
+     * 32k context
+     */
+    GPT_4_32_K("gpt-4-32k", 0.00006d, 0.00012d, 32768),
+
+    /**
+     * Snapshot of gpt-4-32k from March 14th, 2023. Unlike gpt-4-32k, this model will not receive updates, and will only be supported for a three-month period ending on June 14th, 2023.
+     * 32k context, but specific snapshot
+     */
+    GPT_4_32_K_0314("gpt-4-32k-0314", 0.00006d, 0.00012d, 32768),
+
+    /**
+     * Snapshot of gpt-4-32k from June 13th 2023. Unlike gpt-4-32k, this model will not receive updates, and will be deprecated 3 months after a new version is released.
+     */
+    GPT_4_32_K_0613("gpt-4-32k-0613", 0.00006d, 0.00012d, 32768);
 
     private final String value;
     // price per token for prompt
     private final double requestPrice;
     // price per token for completion
     private final double responsePrice;
+    // maximum number of tokens of prompt and completion
+    private final int contextWindow;
 
     /**
      * Finds the GPT4Model enum constant based on the provided value.
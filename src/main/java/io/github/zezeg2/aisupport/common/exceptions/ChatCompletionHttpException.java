@@ -0,0 +1,28 @@
+package io.github.zezeg2.aisupport.common.exceptions;
+
+import com.theokanning.openai.OpenAiError;
+import com.theokanning.openai.OpenAiHttpException;
+import lombok.Getter;
+
+/**
+ * ChatCompletionHttpException is an OpenAiHttpException that also carries the Retry-After header of the error response,
+ * for clients that do not go through the blocking OpenAiService.
+ */
+@Getter
+public class ChatCompletionHttpException extends OpenAiHttpException {
+    private static final long serialVersionUID = 1L;
+
+    private final String retryAfter;
+
+    /**
+     * Constructs a new ChatCompletionHttpException.
+     *
+     * @param error      The error returned by the API.
+     * @param statusCode The HTTP status code of the response.
+     * @param retryAfter The Retry-After header of the response, or {@code null} if absent.
+     */
+    public ChatCompletionHttpException(OpenAiError error, int statusCode, String retryAfter) {
+        super(error, null, statusCode);
+        this.retryAfter = retryAfter;
+    }
+}
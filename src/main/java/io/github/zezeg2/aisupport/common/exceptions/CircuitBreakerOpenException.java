@@ -0,0 +1,26 @@
+package io.github.zezeg2.aisupport.common.exceptions;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import lombok.Getter;
+
+/**
+ * CircuitBreakerOpenException is a custom exception class that extends RuntimeException.
+ * It is used to indicate that a chat completion request was failed fast because the circuit breaker of its model is open.
+ */
+@Getter
+public class CircuitBreakerOpenException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final AIModel model;
+
+    /**
+     * Constructs a new CircuitBreakerOpenException for the given model.
+     *
+     * @param model  The AI model of the request.
+     * @param reason Why the request was not let through.
+     */
+    public CircuitBreakerOpenException(AIModel model, String reason) {
+        super("Circuit breaker of %s is open: %s".formatted(model.getValue(), reason));
+        this.model = model;
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.zezeg2.aisupport.common.exceptions;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import lombok.Getter;
+
+/**
+ * ContextWindowExceededException is a custom exception class that extends RuntimeException.
+ * It is used to indicate that a chat completion request does not fit the context window of its model.
+ */
+@Getter
+public class ContextWindowExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final AIModel model;
+    private final int requiredTokens;
+
+    /**
+     * Constructs a new ContextWindowExceededException for the given model and token count.
+     *
+     * @param model          The AI model of the request.
+     * @param requiredTokens The prompt tokens of the request plus the tokens reserved for the completion.
+     */
+    public ContextWindowExceededException(AIModel model, int requiredTokens) {
+        super("Request requires %d tokens, exceeding the context window of %s (%d tokens)".formatted(requiredTokens, model.getValue(), model.getContextWindow()));
+        this.model = model;
+        this.requiredTokens = requiredTokens;
+    }
+}
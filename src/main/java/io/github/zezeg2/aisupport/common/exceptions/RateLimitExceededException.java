@@ -0,0 +1,26 @@
+package io.github.zezeg2.aisupport.common.exceptions;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import lombok.Getter;
+
+/**
+ * RateLimitExceededException is a custom exception class that extends RuntimeException.
+ * It is used to indicate that a chat completion request over the rate limits of its model could not wait for its turn.
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final AIModel model;
+
+    /**
+     * Constructs a new RateLimitExceededException for the given model.
+     *
+     * @param model  The AI model of the request.
+     * @param reason Why the request could not wait for its turn.
+     */
+    public RateLimitExceededException(AIModel model, String reason) {
+        super("Rate limit of %s exceeded: %s".formatted(model.getValue(), reason));
+        this.model = model;
+    }
+}
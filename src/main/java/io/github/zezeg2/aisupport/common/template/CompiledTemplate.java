@@ -0,0 +1,114 @@
+package io.github.zezeg2.aisupport.common.template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The CompiledTemplate class is a format string parsed once into the literal segments between its {@code %s} slots.
+ * Rendering concatenates the segments with the arguments, without parsing the format again.
+ * Only the {@code %s} conversion and the {@code %%} escape are supported, which covers the templates in TemplateConstants.
+ */
+public class CompiledTemplate {
+
+    /**
+     * The literal segments; a slot lies between each pair of consecutive segments.
+     */
+    private final List<String> segments;
+    private final int literalLength;
+
+    private CompiledTemplate(List<String> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+        this.literalLength = segments.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Compiles the given format string.
+     *
+     * @param format The format string using {@code %s} slots and {@code %%} escapes.
+     * @return The compiled template.
+     * @throws IllegalArgumentException if the format string contains another conversion.
+     */
+    public static CompiledTemplate compile(String format) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c != '%') {
+                current.append(c);
+                continue;
+            }
+            char conversion = i + 1 < format.length() ? format.charAt(++i) : ' ';
+            if (conversion == '%') {
+                current.append('%');
+            } else if (conversion == 's') {
+                segments.add(current.toString());
+                current = new StringBuilder();
+            } else {
+                throw new IllegalArgumentException("Unsupported conversion '%" + conversion + "' in template");
+            }
+        }
+        segments.add(current.toString());
+        return new CompiledTemplate(segments);
+    }
+
+    /**
+     * Gets the number of slots of the template.
+     *
+     * @return The number of slots.
+     */
+    public int getSlotCount() {
+        return segments.size() - 1;
+    }
+
+    /**
+     * Renders the template with the given arguments.
+     *
+     * @param args The arguments for the slots, in order.
+     * @return The rendered string.
+     */
+    public String render(Object... args) {
+        checkArguments(args);
+        String[] values = new String[args.length];
+        int length = literalLength;
+        for (int i = 0; i < args.length; i++) {
+            values[i] = String.valueOf(args[i]);
+            length += values[i].length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < values.length; i++) builder.append(segments.get(i)).append(values[i]);
+        return builder.append(segments.get(values.length)).toString();
+    }
+
+    /**
+     * Fills the slots of a two-level template, like the first {@code formatted} call of a nested format string.
+     * The arguments are inserted verbatim, while the literal segments are compiled again, so {@code %%s} in this template
+     * becomes a slot of the returned template. Unlike formatting twice, {@code %} in the arguments is never interpreted.
+     *
+     * @param args The arguments for the slots, in order.
+     * @return The template of the next level.
+     */
+    public CompiledTemplate bind(Object... args) {
+        checkArguments(args);
+        List<String> nextSegments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < segments.size(); i++) {
+            List<String> literalSegments = compile(segments.get(i)).segments;
+            for (int j = 0; j < literalSegments.size(); j++) {
+                if (j > 0) {
+                    nextSegments.add(current.toString());
+                    current = new StringBuilder();
+                }
+                current.append(literalSegments.get(j));
+            }
+            if (i < args.length) current.append(args[i]);
+        }
+        nextSegments.add(current.toString());
+        return new CompiledTemplate(nextSegments);
+    }
+
+    private void checkArguments(Object[] args) {
+        if (args.length != getSlotCount())
+            throw new IllegalArgumentException("Template requires " + getSlotCount() + " arguments but " + args.length + " given");
+    }
+}
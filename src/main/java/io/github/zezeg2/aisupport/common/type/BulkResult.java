@@ -0,0 +1,20 @@
+package io.github.zezeg2.aisupport.common.type;
+
+import io.github.zezeg2.aisupport.common.bill.Bill;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The BulkResult class holds the per-item results of a bulk execution, in input order,
+ * together with the bill merged from every successful execution.
+ *
+ * @param <T> The type of the return value for the AI function.
+ */
+@Data
+@Builder
+public class BulkResult<T> {
+    private final List<ExecutionResult<T>> results;
+    private final Bill bill;
+}
@@ -0,0 +1,28 @@
+package io.github.zezeg2.aisupport.common.type;
+
+import io.github.zezeg2.aisupport.common.bill.Bill;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The ExecutionResult class represents the outcome of a single execution within a bulk execution.
+ * Either the result (and the bill, when counted) or the error that caused the execution to fail is set.
+ *
+ * @param <T> The type of the return value for the AI function.
+ */
+@Data
+@Builder
+public class ExecutionResult<T> {
+    private final T result;
+    private final Bill bill;
+    private final Throwable error;
+
+    /**
+     * Checks whether the execution completed without an error.
+     *
+     * @return {@code true} if the execution succeeded, {@code false} otherwise.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
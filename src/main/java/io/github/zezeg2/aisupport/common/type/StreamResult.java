@@ -0,0 +1,28 @@
+package io.github.zezeg2.aisupport.common.type;
+
+import io.github.zezeg2.aisupport.common.bill.Bill;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The StreamResult class represents an element of a streamed execution.
+ * Intermediate elements carry a content delta; the final element carries the parsed and validated result with its bill.
+ *
+ * @param <T> The type of the return value for the AI function.
+ */
+@Data
+@Builder
+public class StreamResult<T> {
+    private final String delta;
+    private final T result;
+    private final Bill bill;
+
+    /**
+     * Checks whether this element is the final element of the stream.
+     *
+     * @return {@code true} if this element carries the validated result, {@code false} if it carries a content delta.
+     */
+    public boolean isCompleted() {
+        return result != null;
+    }
+}
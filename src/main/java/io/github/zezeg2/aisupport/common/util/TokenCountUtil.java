@@ -0,0 +1,79 @@
+package io.github.zezeg2.aisupport.common.util;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+
+import java.util.List;
+
+/**
+ * The TokenCountUtil class counts tokens locally with the byte pair encoding of the models, so that the size of a request
+ * can be known before it is sent. Chat messages are counted the way the chat completion api bills them: every message
+ * is framed by a few tokens, and the reply is primed with a few more.
+ */
+public class TokenCountUtil {
+
+    private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+
+    /**
+     * The tokens priming the reply of the assistant, added once per request.
+     */
+    private static final int REPLY_PRIMING_TOKENS = 3;
+
+    /**
+     * Retrieves the encoding of a model, falling back to cl100k_base used by every chat model.
+     *
+     * @param model The AI model.
+     * @return The encoding of the model.
+     */
+    public static Encoding getEncoding(AIModel model) {
+        return REGISTRY.getEncodingForModel(model.getValue())
+                .orElseGet(() -> REGISTRY.getEncoding(EncodingType.CL100K_BASE));
+    }
+
+    /**
+     * Counts the tokens of a text.
+     *
+     * @param model The AI model whose encoding is used.
+     * @param text  The text to count.
+     * @return The number of tokens of the text.
+     */
+    public static int countTokens(AIModel model, String text) {
+        return text == null ? 0 : getEncoding(model).countTokens(text);
+    }
+
+    /**
+     * Counts the tokens a single chat message takes in a request, including the tokens framing it.
+     *
+     * @param model   The AI model whose encoding is used.
+     * @param message The chat message.
+     * @return The number of tokens of the message.
+     */
+    public static int countTokens(AIModel model, ChatMessage message) {
+        Encoding encoding = getEncoding(model);
+        boolean legacy = model.getValue().equals("gpt-3.5-turbo-0301");
+        int tokens = legacy ? 4 : 3;
+        tokens += encoding.countTokens(message.getRole());
+        if (message.getContent() != null) tokens += encoding.countTokens(message.getContent());
+        if (message.getName() != null) tokens += encoding.countTokens(message.getName()) + (legacy ? -1 : 1);
+        return tokens;
+    }
+
+    /**
+     * Counts the prompt tokens of a chat completion request made of the given messages.
+     *
+     * @param model    The AI model whose encoding is used.
+     * @param messages The chat messages of the request.
+     * @return The number of prompt tokens of the request.
+     */
+    public static int countTokens(AIModel model, List<ChatMessage> messages) {
+        int tokens = REPLY_PRIMING_TOKENS;
+        for (ChatMessage message : messages) {
+            tokens += countTokens(model, message);
+        }
+        return tokens;
+    }
+}
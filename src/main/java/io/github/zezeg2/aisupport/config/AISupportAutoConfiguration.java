@@ -2,22 +2,61 @@ package io.github.zezeg2.aisupport.config;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.client.OpenAiApi;
 import com.theokanning.openai.service.OpenAiService;
+import io.github.zezeg2.aisupport.cache.*;
+import io.github.zezeg2.aisupport.cache.reactive.ReactiveSingleFlight;
 import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
 import io.github.zezeg2.aisupport.common.resolver.JavaConstructResolver;
+import io.github.zezeg2.aisupport.config.properties.CacheProperties;
+import io.github.zezeg2.aisupport.config.properties.CircuitBreakerProperties;
+import io.github.zezeg2.aisupport.config.properties.CodecProperties;
+import io.github.zezeg2.aisupport.config.properties.ContextHolderType;
 import io.github.zezeg2.aisupport.config.properties.ContextProperties;
+import io.github.zezeg2.aisupport.config.properties.ContextWindowProperties;
+import io.github.zezeg2.aisupport.config.properties.FileContextProperties;
+import io.github.zezeg2.aisupport.config.properties.HedgeProperties;
 import io.github.zezeg2.aisupport.config.properties.KafkaPublishProperties;
+import io.github.zezeg2.aisupport.config.properties.LocalContextProperties;
+import io.github.zezeg2.aisupport.config.properties.MongoSchema;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
+import io.github.zezeg2.aisupport.config.properties.RateLimitMode;
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+import io.github.zezeg2.aisupport.config.properties.RedisLayout;
+import io.github.zezeg2.aisupport.config.properties.RetentionProperties;
+import io.github.zezeg2.aisupport.config.properties.RetryProperties;
+import io.github.zezeg2.aisupport.config.properties.SequenceProperties;
+import io.github.zezeg2.aisupport.config.properties.SequenceStrategy;
+import io.github.zezeg2.aisupport.config.properties.WriteBehindProperties;
 import io.github.zezeg2.aisupport.context.*;
+import io.github.zezeg2.aisupport.context.codec.CompressingContextCodec;
+import io.github.zezeg2.aisupport.context.codec.ContextCodec;
+import io.github.zezeg2.aisupport.context.codec.JacksonContextCodec;
 import io.github.zezeg2.aisupport.context.reactive.*;
 import io.github.zezeg2.aisupport.core.AISupport;
 import io.github.zezeg2.aisupport.core.ReactiveAISupport;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextWindowGuard;
 import io.github.zezeg2.aisupport.core.function.prompt.PromptManager;
+import io.github.zezeg2.aisupport.core.function.prompt.RetryHistoryCompactor;
+import io.github.zezeg2.aisupport.core.function.prompt.SystemPromptRegistry;
+import io.github.zezeg2.aisupport.core.reactive.function.prompt.ReactiveChatCompletionClient;
 import io.github.zezeg2.aisupport.core.reactive.function.prompt.ReactivePromptManager;
 import io.github.zezeg2.aisupport.core.reactive.validator.ReactiveResultValidator;
 import io.github.zezeg2.aisupport.core.reactive.validator.ReactiveResultValidatorChain;
 import io.github.zezeg2.aisupport.core.validator.ResultValidator;
 import io.github.zezeg2.aisupport.core.validator.ResultValidatorChain;
+import io.github.zezeg2.aisupport.ratelimit.LocalRateLimiter;
+import io.github.zezeg2.aisupport.ratelimit.RateLimiter;
+import io.github.zezeg2.aisupport.ratelimit.RedisRateLimiter;
+import io.github.zezeg2.aisupport.ratelimit.reactive.ReactiveLocalRateLimiter;
+import io.github.zezeg2.aisupport.ratelimit.reactive.ReactiveRateLimiter;
+import io.github.zezeg2.aisupport.ratelimit.reactive.ReactiveRedisRateLimiter;
+import io.github.zezeg2.aisupport.resilience.CallCancellation;
+import io.github.zezeg2.aisupport.resilience.CircuitBreaker;
+import io.github.zezeg2.aisupport.resilience.HedgePolicy;
+import io.github.zezeg2.aisupport.resilience.RetryPolicy;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -27,28 +66,39 @@ import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import retrofit2.Retrofit;
 
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 
 @Configuration
 @Conditional(ConflictingPropertiesCondition.class)
-@EnableConfigurationProperties({ContextProperties.class, OpenAIProperties.class, KafkaPublishProperties.class})
+@EnableConfigurationProperties({ContextProperties.class, OpenAIProperties.class, KafkaPublishProperties.class, CacheProperties.class, WriteBehindProperties.class, SequenceProperties.class, LocalContextProperties.class, FileContextProperties.class, RetentionProperties.class, CodecProperties.class, ContextWindowProperties.class, RateLimitProperties.class, RetryProperties.class, CircuitBreakerProperties.class, HedgeProperties.class})
 @ComponentScan("io.github.zezeg2.aisupport")
 public class AISupportAutoConfiguration {
     private final OpenAIProperties openAIProperties;
     private final ContextProperties contextProperties;
+    private final WriteBehindProperties writeBehindProperties;
+    private final SequenceProperties sequenceProperties;
 
-    public AISupportAutoConfiguration(OpenAIProperties openAIProperties, ContextProperties contextProperties) {
+    public AISupportAutoConfiguration(OpenAIProperties openAIProperties, ContextProperties contextProperties, WriteBehindProperties writeBehindProperties, SequenceProperties sequenceProperties) {
         this.openAIProperties = openAIProperties;
         this.contextProperties = contextProperties;
+        this.writeBehindProperties = writeBehindProperties;
+        this.sequenceProperties = sequenceProperties;
     }
 
     @Bean
     public OpenAiService openAiService() {
-        return new OpenAiService(openAIProperties.getToken(), Duration.ofSeconds(openAIProperties.getTimeout()));
+        OkHttpClient client = OpenAiService.defaultClient(openAIProperties.getToken(), Duration.ofSeconds(openAIProperties.getTimeout())).newBuilder()
+                .addInterceptor(CallCancellation.INTERCEPTOR)
+                .build();
+        Retrofit retrofit = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper());
+        return new OpenAiService(retrofit.create(OpenAiApi.class), client.dispatcher().executorService());
     }
 
     @Bean
@@ -66,14 +116,42 @@ public class AISupportAutoConfiguration {
     //DEFAULT
     @Bean
     @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "synchronous")
-    public AISupport defaultAISupport(ObjectMapper mapper, PromptManager promptManager, ResultValidatorChain resultValidateChain, ConstructResolver resolver) {
-        return new AISupport(mapper, promptManager, resultValidateChain, resolver, openAIProperties);
+    public AISupport defaultAISupport(ObjectMapper mapper, PromptManager promptManager, ResultValidatorChain resultValidateChain, ConstructResolver resolver, ObjectProvider<ResultCache> resultCache) {
+        return new AISupport(mapper, promptManager, resultValidateChain, resolver, openAIProperties, resultCache.getIfAvailable(), openAIProperties.isCoalesce() ? new SingleFlight() : null);
     }
 
     @Bean
     @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "synchronous")
-    public PromptManager defaultPromptManager(OpenAiService service, PromptContextHolder context) {
-        return new PromptManager(service, context, contextProperties);
+    public PromptManager defaultPromptManager(OpenAiService service, PromptContextHolder context, ContextWindowProperties contextWindowProperties, ObjectProvider<RateLimiter> rateLimiter,
+                                              RetryProperties retryProperties, ObjectProvider<CircuitBreaker> circuitBreaker, ObjectProvider<HedgePolicy> hedgePolicy,
+                                              SystemPromptRegistry systemPromptRegistry) {
+        return new PromptManager(service, context, contextProperties, new ContextWindowGuard(contextWindowProperties), new RetryHistoryCompactor(openAIProperties.getRetryHistory()),
+                rateLimiter.getIfAvailable(), retryProperties.isEnabled() ? new RetryPolicy(retryProperties) : null, circuitBreaker.getIfAvailable(), hedgePolicy.getIfAvailable(),
+                systemPromptRegistry);
+    }
+
+    @Bean
+    public SystemPromptRegistry systemPromptRegistry() {
+        return new SystemPromptRegistry();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ai-supporter.api.circuit-breaker.enabled", havingValue = "true")
+    public CircuitBreaker circuitBreaker(CircuitBreakerProperties circuitBreakerProperties) {
+        return new CircuitBreaker(circuitBreakerProperties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ai-supporter.api.hedge.enabled", havingValue = "true")
+    public HedgePolicy hedgePolicy(HedgeProperties hedgeProperties) {
+        return new HedgePolicy(hedgeProperties);
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${ai-supporter.api.rate-limit.enabled:false}' == 'true' && '${ai-supporter.context.environment}' == 'synchronous'")
+    public RateLimiter rateLimiter(RateLimitProperties rateLimitProperties, ObjectProvider<RedisTemplate<String, String>> redisTemplate) {
+        if (rateLimitProperties.getMode() == RateLimitMode.REDIS) return new RedisRateLimiter(redisTemplate.getObject(), rateLimitProperties);
+        return new LocalRateLimiter(rateLimitProperties);
     }
 
     @Bean
@@ -82,22 +160,87 @@ public class AISupportAutoConfiguration {
         return new ResultValidatorChain(validators);
     }
 
+    @Bean
+    @ConditionalOnExpression("'${ai-supporter.cache.enabled:false}' == 'true' && '${ai-supporter.context.environment}' == 'synchronous'")
+    public TieredResultCache resultCache(CacheProperties cacheProperties, ObjectProvider<RedisTemplate<String, String>> redisTemplate, ObjectProvider<MongoTemplate> mongoTemplate) {
+        Duration ttl = Duration.ofSeconds(cacheProperties.getTtl());
+        ResultCache sharedCache = null;
+        if (cacheProperties.isShared() && contextProperties.getContext() == ContextHolderType.REDIS)
+            sharedCache = new RedisResultCache(redisTemplate.getObject(), ttl);
+        else if (cacheProperties.isShared() && contextProperties.getContext() == ContextHolderType.MONGO)
+            sharedCache = new MongoResultCache(mongoTemplate.getObject(), ttl);
+        return new TieredResultCache(new LocalResultCache(cacheProperties.getMaxSize(), ttl), sharedCache);
+    }
+
     @Bean
     @ConditionalOnExpression("'${ai-supporter.context.context}' == 'redis' && '${ai-supporter.context.environment}' == 'synchronous'")
-    public PromptContextHolder redisPromptContextHolder(RedisTemplate<String, String> redisTemplate, ObjectMapper mapper) {
-        return new RedisPromptContextHolder(redisTemplate, mapper);
+    public PromptContextHolder redisPromptContextHolder(RedisTemplate<String, String> redisTemplate, ObjectMapper mapper, ObjectProvider<SequenceGenerator> customSequenceGenerator, RetentionProperties retentionProperties, CodecProperties codecProperties) {
+        SequenceGenerator sequenceGenerator = customSequenceGenerator.getIfAvailable(() -> sequenceProperties.getStrategy() == SequenceStrategy.TIME_ORDERED
+                ? new TimeOrderedSequenceGenerator(timeOrderedNodeId())
+                : sequenceProperties.getBlockSize() > 1 ? new RedisSequenceGenerator(redisTemplate, sequenceProperties.getBlockSize(), contextRetention(retentionProperties)) : null);
+        RedisTemplate<String, byte[]> binaryRedisTemplate = RedisPromptContextHolder.createTemplate(redisTemplate.getRequiredConnectionFactory());
+        ContextCodec codec = contextCodec(codecProperties, mapper);
+        PromptContextHolder contextHolder = writeBehind(contextProperties.getRedisLayout() == RedisLayout.APPEND_ONLY
+                ? new AppendOnlyRedisPromptContextHolder(binaryRedisTemplate, codec, sequenceGenerator, contextRetention(retentionProperties))
+                : new RedisPromptContextHolder(binaryRedisTemplate, codec, sequenceGenerator, contextRetention(retentionProperties)));
+        if (!contextProperties.isNearCache()) return contextHolder;
+        return new NearCachePromptContextHolder(contextHolder, new RedisPromptChangeNotifier(redisTemplate));
     }
 
     @Bean
     @ConditionalOnExpression("'${ai-supporter.context.context}' == 'mongo' && '${ai-supporter.context.environment}' == 'synchronous'")
-    public MongoPromptContextHolder mongoPromptContextHolder(MongoTemplate mongoTemplate, SequenceGenerator sequenceGenerator) {
-        return new MongoPromptContextHolder(mongoTemplate, sequenceGenerator);
+    public PromptContextHolder mongoPromptContextHolder(MongoTemplate mongoTemplate, ObjectProvider<SequenceGenerator> customSequenceGenerator, RetentionProperties retentionProperties) {
+        SequenceGenerator sequenceGenerator = customSequenceGenerator.getIfAvailable(() -> sequenceProperties.getStrategy() == SequenceStrategy.TIME_ORDERED
+                ? new TimeOrderedSequenceGenerator(timeOrderedNodeId())
+                : new MongoSequenceGenerator(mongoTemplate, sequenceProperties.getBlockSize(), contextRetention(retentionProperties)));
+        PromptContextHolder contextHolder = writeBehind(new MongoPromptContextHolder(mongoTemplate, sequenceGenerator, contextProperties.getMongoSchema(), contextRetention(retentionProperties)));
+        if (!contextProperties.isNearCache()) return contextHolder;
+        return new NearCachePromptContextHolder(contextHolder, new MongoPromptChangeNotifier(mongoTemplate, getMongoPromptCollection()));
+    }
+
+    private PromptContextHolder writeBehind(PromptContextHolder contextHolder) {
+        return writeBehindProperties.isEnabled() ? new WriteBehindPromptContextHolder(contextHolder, writeBehindProperties) : contextHolder;
     }
 
     @Bean
     @ConditionalOnExpression("'${ai-supporter.context.context}' == 'local' && '${ai-supporter.context.environment}' == 'synchronous'")
-    public PromptContextHolder localMemoryPromptContextHolder() {
-        return new LocalMemoryPromptContextHolder();
+    public PromptContextHolder localMemoryPromptContextHolder(LocalContextProperties localContextProperties) {
+        return new LocalMemoryPromptContextHolder(localMessageContextStore(localContextProperties));
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${ai-supporter.context.context}' == 'file' && '${ai-supporter.context.environment}' == 'synchronous'")
+    public PromptContextHolder filePromptContextHolder(FileContextProperties fileContextProperties, RetentionProperties retentionProperties, ObjectMapper mapper) {
+        return new FilePromptContextHolder(mappedContextLog(fileContextProperties, retentionProperties, mapper));
+    }
+
+    private ContextCodec contextCodec(CodecProperties codecProperties, ObjectMapper mapper) {
+        ContextCodec codec = JacksonContextCodec.of(mapper, codecProperties.getFormat());
+        return new CompressingContextCodec(codec, codecProperties.getCompression(), codecProperties.getCompressionThreshold());
+    }
+
+    private ContextRetention contextRetention(RetentionProperties retentionProperties) {
+        return new ContextRetention(Duration.ofSeconds(retentionProperties.getPrompt()), Duration.ofSeconds(retentionProperties.getFeedback()),
+                Duration.ofSeconds(retentionProperties.getTemporary()));
+    }
+
+    private int timeOrderedNodeId() {
+        if (sequenceProperties.getNodeId() < 0)
+            throw new IllegalStateException("ai-supporter.context.sequence.node-id must be set to a node id distinct on every node with the TIME_ORDERED strategy");
+        return sequenceProperties.getNodeId();
+    }
+
+    private String getMongoPromptCollection() {
+        return contextProperties.getMongoSchema() == MongoSchema.CONSOLIDATED ? MongoPromptContextHolder.PROMPT_COLLECTION : null;
+    }
+
+    private MappedContextLog mappedContextLog(FileContextProperties fileContextProperties, RetentionProperties retentionProperties, ObjectMapper mapper) {
+        return new MappedContextLog(Path.of(fileContextProperties.getDirectory()), fileContextProperties.getSegmentSize(),
+                fileContextProperties.getCompactionThreshold(), fileContextProperties.isFsync(), mapper, contextRetention(retentionProperties));
+    }
+
+    private LocalMessageContextStore localMessageContextStore(LocalContextProperties localContextProperties) {
+        return new LocalMessageContextStore(localContextProperties);
     }
 
     //EVENTLOOP
@@ -105,13 +248,30 @@ public class AISupportAutoConfiguration {
     @Bean
     @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "reactive")
     public ReactiveAISupport reactiveAISupport(ObjectMapper mapper, ReactivePromptManager promptManager, ReactiveResultValidatorChain resultValidatorChain, ConstructResolver resolver) {
-        return new ReactiveAISupport(mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new ReactiveAISupport(mapper, promptManager, resultValidatorChain, resolver, openAIProperties, openAIProperties.isCoalesce() ? new ReactiveSingleFlight() : null);
     }
 
     @Bean
     @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "reactive")
-    public ReactivePromptManager reactivePromptManager(OpenAiService service, ReactivePromptContextHolder context) {
-        return new ReactivePromptManager(service, context, contextProperties);
+    public ReactiveChatCompletionClient reactiveChatCompletionClient() {
+        return new ReactiveChatCompletionClient(openAIProperties.getToken(), Duration.ofSeconds(openAIProperties.getTimeout()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "reactive")
+    public ReactivePromptManager reactivePromptManager(OpenAiService service, ReactivePromptContextHolder context, ReactiveChatCompletionClient client, ContextWindowProperties contextWindowProperties,
+                                                       ObjectProvider<ReactiveRateLimiter> rateLimiter, RetryProperties retryProperties, ObjectProvider<CircuitBreaker> circuitBreaker,
+                                                       ObjectProvider<HedgePolicy> hedgePolicy, SystemPromptRegistry systemPromptRegistry) {
+        return new ReactivePromptManager(service, context, contextProperties, client, new ContextWindowGuard(contextWindowProperties), new RetryHistoryCompactor(openAIProperties.getRetryHistory()),
+                rateLimiter.getIfAvailable(), retryProperties.isEnabled() ? new RetryPolicy(retryProperties) : null, circuitBreaker.getIfAvailable(), hedgePolicy.getIfAvailable(),
+                systemPromptRegistry);
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${ai-supporter.api.rate-limit.enabled:false}' == 'true' && '${ai-supporter.context.environment}' == 'reactive'")
+    public ReactiveRateLimiter reactiveRateLimiter(RateLimitProperties rateLimitProperties, ObjectProvider<ReactiveStringRedisTemplate> redisTemplate) {
+        if (rateLimitProperties.getMode() == RateLimitMode.REDIS) return new ReactiveRedisRateLimiter(redisTemplate.getObject(), rateLimitProperties);
+        return new ReactiveLocalRateLimiter(rateLimitProperties);
     }
 
     @Bean
@@ -122,19 +282,39 @@ public class AISupportAutoConfiguration {
 
     @Bean
     @ConditionalOnExpression("'${ai-supporter.context.context}' == 'redis' && '${ai-supporter.context.environment}' == 'reactive'")
-    public ReactivePromptContextHolder reactivePromptContextHolder(ReactiveStringRedisTemplate redisTemplate, ObjectMapper mapper) {
-        return new ReactiveRedisPromptContextHolder(redisTemplate, mapper);
+    public ReactivePromptContextHolder reactivePromptContextHolder(ReactiveStringRedisTemplate redisTemplate, ObjectMapper mapper, ObjectProvider<ReactiveSequenceGenerator> customSequenceGenerator, RetentionProperties retentionProperties, CodecProperties codecProperties) {
+        ReactiveSequenceGenerator sequenceGenerator = customSequenceGenerator.getIfAvailable(() -> sequenceProperties.getStrategy() == SequenceStrategy.TIME_ORDERED
+                ? new ReactiveTimeOrderedSequenceGenerator(timeOrderedNodeId())
+                : sequenceProperties.getBlockSize() > 1 ? new ReactiveRedisSequenceGenerator(redisTemplate, sequenceProperties.getBlockSize(), contextRetention(retentionProperties)) : null);
+        ReactiveRedisTemplate<String, byte[]> binaryRedisTemplate = ReactiveRedisPromptContextHolder.createTemplate(redisTemplate.getConnectionFactory());
+        ContextCodec codec = contextCodec(codecProperties, mapper);
+        ReactivePromptContextHolder contextHolder = contextProperties.getRedisLayout() == RedisLayout.APPEND_ONLY
+                ? new ReactiveAppendOnlyRedisPromptContextHolder(binaryRedisTemplate, codec, sequenceGenerator, contextRetention(retentionProperties))
+                : new ReactiveRedisPromptContextHolder(binaryRedisTemplate, codec, sequenceGenerator, contextRetention(retentionProperties));
+        if (!contextProperties.isNearCache()) return contextHolder;
+        return new ReactiveNearCachePromptContextHolder(contextHolder, new ReactiveRedisPromptChangeNotifier(redisTemplate));
     }
 
     @Bean
     @ConditionalOnExpression("'${ai-supporter.context.context}' == 'mongo' && '${ai-supporter.context.environment}' == 'reactive'")
-    public ReactiveMongoPromptContextHolder reactiveMongoPromptContextHolder(ReactiveMongoTemplate mongoTemplate, ReactiveSequenceGenerator sequenceGenerator) {
-        return new ReactiveMongoPromptContextHolder(mongoTemplate, sequenceGenerator);
+    public ReactivePromptContextHolder reactiveMongoPromptContextHolder(ReactiveMongoTemplate mongoTemplate, ObjectProvider<ReactiveSequenceGenerator> customSequenceGenerator, RetentionProperties retentionProperties) {
+        ReactiveSequenceGenerator sequenceGenerator = customSequenceGenerator.getIfAvailable(() -> sequenceProperties.getStrategy() == SequenceStrategy.TIME_ORDERED
+                ? new ReactiveTimeOrderedSequenceGenerator(timeOrderedNodeId())
+                : new ReactiveMongoSequenceGenerator(mongoTemplate, sequenceProperties.getBlockSize(), contextRetention(retentionProperties)));
+        ReactivePromptContextHolder contextHolder = new ReactiveMongoPromptContextHolder(mongoTemplate, sequenceGenerator, contextProperties.getMongoSchema(), contextRetention(retentionProperties));
+        if (!contextProperties.isNearCache()) return contextHolder;
+        return new ReactiveNearCachePromptContextHolder(contextHolder, new ReactiveMongoPromptChangeNotifier(mongoTemplate, getMongoPromptCollection()));
     }
 
     @Bean
     @ConditionalOnExpression("'${ai-supporter.context.context}' == 'local' && '${ai-supporter.context.environment}' == 'reactive'")
-    public ReactivePromptContextHolder reactiveLocalMemoryPromptContextHolder() {
-        return new ReactiveLocalMemoryPromptContextHolder();
+    public ReactivePromptContextHolder reactiveLocalMemoryPromptContextHolder(LocalContextProperties localContextProperties) {
+        return new ReactiveLocalMemoryPromptContextHolder(localMessageContextStore(localContextProperties));
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${ai-supporter.context.context}' == 'file' && '${ai-supporter.context.environment}' == 'reactive'")
+    public ReactivePromptContextHolder reactiveFilePromptContextHolder(FileContextProperties fileContextProperties, RetentionProperties retentionProperties, ObjectMapper mapper) {
+        return new ReactiveFilePromptContextHolder(mappedContextLog(fileContextProperties, retentionProperties, mapper));
     }
 }
@@ -0,0 +1,38 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the AI function result cache.
+ * These properties define whether validated results are cached and how long they are kept,
+ * which can be customized using the "ai-supporter.cache" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.cache")
+@Data
+public class CacheProperties {
+
+    /**
+     * Whether validated AI function results are cached.
+     * It is disabled by default.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The maximum number of results kept in the in-process cache.
+     * It is initialized with a default value of 1000.
+     */
+    private int maxSize = 1000;
+
+    /**
+     * The time to live of a cached result in seconds.
+     * It is initialized with a default value of 600 seconds.
+     */
+    private long ttl = 600;
+
+    /**
+     * Whether results are also shared through the configured Redis or Mongo context backend.
+     * It is disabled by default.
+     */
+    private boolean shared = false;
+}
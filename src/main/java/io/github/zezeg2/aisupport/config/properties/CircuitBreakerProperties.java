@@ -0,0 +1,49 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the circuit breakers failing chat completion requests fast while a model keeps failing transiently.
+ * These properties can be customized using the "ai-supporter.api.circuit-breaker" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.api.circuit-breaker")
+@Data
+public class CircuitBreakerProperties {
+
+    /**
+     * Whether chat completion requests go through a circuit breaker per model.
+     * It is disabled by default.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The percentage of transient failures among the recent requests of a model at which its circuit opens.
+     * It is initialized with 50 percent by default.
+     */
+    private int failureRateThreshold = 50;
+
+    /**
+     * The number of recent requests of a model the failure rate is computed over.
+     * It is initialized with 20 by default.
+     */
+    private int slidingWindowSize = 20;
+
+    /**
+     * The number of requests a model needs in its window before its circuit may open.
+     * It is initialized with 10 by default.
+     */
+    private int minimumCalls = 10;
+
+    /**
+     * The time an open circuit fails requests fast before letting trial requests through, in milliseconds.
+     * It is initialized with 30000 milliseconds by default.
+     */
+    private long openDuration = 30000;
+
+    /**
+     * The number of trial requests let through a half-open circuit; the circuit closes once they all succeed, and opens again on a failure.
+     * It is initialized with 3 by default.
+     */
+    private int halfOpenCalls = 3;
+}
@@ -0,0 +1,20 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents the available formats for encoding prompts and message contexts stored in Redis.
+ */
+public enum CodecFormat {
+
+    /**
+     * The JSON format stores values as UTF-8 JSON text.
+     */
+    JSON,
+    /**
+     * The SMILE format stores values in the binary Smile encoding of JSON, with back-references to repeated short strings.
+     */
+    SMILE,
+    /**
+     * The CBOR format stores values in the binary CBOR encoding (RFC 8949).
+     */
+    CBOR
+}
@@ -0,0 +1,31 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for encoding the prompts and message contexts stored by the redis context.
+ * These properties can be customized using the "ai-supporter.context.codec" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.context.codec")
+@Data
+public class CodecProperties {
+
+    /**
+     * The format of stored values.
+     * It is initialized with the JSON format by default.
+     */
+    private CodecFormat format = CodecFormat.JSON;
+
+    /**
+     * The compression of stored values.
+     * It is initialized with NONE by default, which stores values exactly as they were stored before compression was supported.
+     */
+    private Compression compression = Compression.NONE;
+
+    /**
+     * The encoded size in bytes from which values are compressed.
+     * It is initialized with 1024 bytes by default.
+     */
+    private int compressionThreshold = 1024;
+}
@@ -0,0 +1,20 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents the available compression algorithms for encoded prompts and message contexts stored in Redis.
+ */
+public enum Compression {
+
+    /**
+     * The NONE algorithm stores encoded values as they are.
+     */
+    NONE,
+    /**
+     * The DEFLATE algorithm compresses encoded values with {@link java.util.zip.Deflater}, favoring size over speed.
+     */
+    DEFLATE,
+    /**
+     * The LZ4 algorithm compresses encoded values with LZ4, favoring speed over size.
+     */
+    LZ4
+}
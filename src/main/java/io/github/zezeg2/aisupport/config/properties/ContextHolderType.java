@@ -3,7 +3,7 @@ package io.github.zezeg2.aisupport.config.properties;
 /**
  * This enum represents the available contexts for data storage and retrieval.
  * <p>
- * The contexts include LOCAL, REDIS, and MONGO.
+ * The contexts include LOCAL, REDIS, MONGO, and FILE.
  */
 public enum ContextHolderType {
 
@@ -18,5 +18,9 @@ public enum ContextHolderType {
     /**
      * The MONGO context represents data storage and retrieval using MongoDB.
      */
-    MONGO
+    MONGO,
+    /**
+     * The FILE context represents data storage and retrieval using memory-mapped log files on the local disk.
+     */
+    FILE
 }
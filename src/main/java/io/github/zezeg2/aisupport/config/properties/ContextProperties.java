@@ -23,4 +23,24 @@ public class ContextProperties {
      * It is initialized with the SYNCHRONOUS environment by default.
      */
     private AppEnv environment = AppEnv.SYNCHRONOUS;
+
+    /**
+     * Whether prompts read from a redis or mongo context are cached in memory.
+     * Cached prompts are invalidated across nodes through Redis pub/sub or a MongoDB change stream,
+     * which requires MongoDB to run as a replica set or sharded cluster.
+     * It is disabled by default.
+     */
+    private boolean nearCache = false;
+
+    /**
+     * The layout of message contexts stored in the redis context.
+     * It is initialized with the HASH layout by default.
+     */
+    private RedisLayout redisLayout = RedisLayout.HASH;
+
+    /**
+     * The schema of prompts and message contexts stored in the mongo context.
+     * It is initialized with the COLLECTION_PER_NAMESPACE schema by default.
+     */
+    private MongoSchema mongoSchema = MongoSchema.COLLECTION_PER_NAMESPACE;
 }
@@ -0,0 +1,21 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents the policies applied when a chat completion request does not fit the context window of its model.
+ */
+public enum ContextWindowOverflow {
+
+    /**
+     * The REJECT policy fails the request with a ContextWindowExceededException before it is sent.
+     */
+    REJECT,
+    /**
+     * The TRUNCATE policy leaves out the oldest retry turns, the answers and feedback following the first user message,
+     * from the request until it fits. The stored message context is kept intact.
+     */
+    TRUNCATE,
+    /**
+     * The UPGRADE policy sends the request to the model of the same family with the smallest context window the request fits in.
+     */
+    UPGRADE
+}
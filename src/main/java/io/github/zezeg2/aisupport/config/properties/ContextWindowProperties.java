@@ -0,0 +1,31 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the token count checks made before chat completion requests are sent.
+ * These properties can be customized using the "ai-supporter.api.context-window" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.api.context-window")
+@Data
+public class ContextWindowProperties {
+
+    /**
+     * Whether the tokens of a request are counted against the context window of its model before it is sent.
+     * It is disabled by default, leaving requests to the API as before.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The policy applied when a request does not fit the context window of its model, if the check is enabled.
+     * It is initialized with REJECT by default.
+     */
+    private ContextWindowOverflow overflow = ContextWindowOverflow.REJECT;
+
+    /**
+     * The number of tokens kept free in the context window for the completion, also used as the completion size of cost estimates.
+     * It is initialized with 256 tokens by default.
+     */
+    private int completionReserve = 256;
+}
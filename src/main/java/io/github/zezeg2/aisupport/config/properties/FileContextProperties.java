@@ -0,0 +1,37 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the file context, which persists prompts and message contexts in memory-mapped log files.
+ * These properties can be customized using the "ai-supporter.context.file" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.context.file")
+@Data
+public class FileContextProperties {
+
+    /**
+     * The directory holding the log files, which can only be used by one process at a time.
+     * It is initialized with "ai-supporter-context" by default.
+     */
+    private String directory = "ai-supporter-context";
+
+    /**
+     * The size of a log segment file in bytes.
+     * It is initialized with 64 MiB by default.
+     */
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /**
+     * The share of live records below which a full log segment is compacted, between 0 and 1.
+     * It is initialized with 0.5 by default.
+     */
+    private double compactionThreshold = 0.5;
+
+    /**
+     * Whether every write is forced to the storage device before returning.
+     * It is disabled by default, in which case writes are persisted when the operating system writes back the mapped pages.
+     */
+    private boolean fsync = false;
+}
@@ -0,0 +1,66 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configuration properties for hedging the chat completion requests of selected functions: a request still unanswered after
+ * a high percentile of the recent latencies of its function is sent again, and the first response is taken.
+ * These properties can be customized using the "ai-supporter.api.hedge" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.api.hedge")
+@Data
+public class HedgeProperties {
+
+    /**
+     * Whether chat completion requests of the opted-in functions are hedged.
+     * It is disabled by default.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The names of the functions whose requests are hedged, their prompt and feedback requests alike.
+     * It is initialized with an empty set by default, so that no function is hedged until it opts in.
+     */
+    private Set<String> functions = new HashSet<>();
+
+    /**
+     * The percentile of the recent latencies of a function and model after which a request is hedged.
+     * It is initialized with 95 by default.
+     */
+    private double percentile = 95;
+
+    /**
+     * The number of recent latencies kept per function and model.
+     * It is initialized with 200 by default.
+     */
+    private int windowSize = 200;
+
+    /**
+     * The number of latencies a function and model needs before the percentile is used instead of the initial delay.
+     * It is initialized with 20 by default.
+     */
+    private int minSamples = 20;
+
+    /**
+     * The hedge delay in milliseconds used until enough latencies are known.
+     * It is initialized with 5000 milliseconds by default.
+     */
+    private long initialDelay = 5000;
+
+    /**
+     * The shortest hedge delay in milliseconds.
+     * It is initialized with 200 milliseconds by default.
+     */
+    private long minDelay = 200;
+
+    /**
+     * The highest ratio of hedges to requests. Every request earns this fraction of a hedge, and a hedge is only sent
+     * while a whole one has been earned, so that hedging adds at most this share of requests.
+     * It is initialized with 0.05 by default.
+     */
+    private double maxHedgeRatio = 0.05;
+}
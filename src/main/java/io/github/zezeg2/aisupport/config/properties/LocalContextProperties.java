@@ -0,0 +1,31 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the message contexts kept in process memory by the local context.
+ * These properties can be customized using the "ai-supporter.context.local" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.context.local")
+@Data
+public class LocalContextProperties {
+
+    /**
+     * The maximum number of message contexts kept in memory, or 0 for no limit.
+     * The least recently written context is evicted beyond it. It is initialized with 10000 by default.
+     */
+    private int maxSize = 10000;
+
+    /**
+     * The maximum total number of message characters kept in memory, or 0 for no limit.
+     * The least recently written contexts are evicted beyond it. It is initialized with 0 by default.
+     */
+    private long maxWeight = 0;
+
+    /**
+     * The time a message context is kept after its last write in seconds, or 0 to keep it until it is evicted.
+     * It is initialized with 3600 seconds by default.
+     */
+    private long ttl = 3600;
+}
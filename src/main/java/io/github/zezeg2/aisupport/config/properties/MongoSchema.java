@@ -0,0 +1,17 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents the available schemas for storing prompts and message contexts in MongoDB.
+ */
+public enum MongoSchema {
+
+    /**
+     * The COLLECTION_PER_NAMESPACE schema stores the prompt and the message contexts of every namespace in a collection named after it.
+     */
+    COLLECTION_PER_NAMESPACE,
+    /**
+     * The CONSOLIDATED schema stores all prompts in the "prompts" collection and all message contexts in the "message_contexts" collection,
+     * indexed by namespace, identifier and sequence.
+     */
+    CONSOLIDATED
+}
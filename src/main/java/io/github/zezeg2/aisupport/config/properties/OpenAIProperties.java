@@ -31,4 +31,23 @@ public class OpenAIProperties {
     private Model model = Model.GPT_3_5_TURBO;
 
     private int validateRetry = 3;
+
+    /**
+     * How much of the retry history is sent with the requests of the validation feedback loop: full or latest.
+     * The stored message contexts keep the full history either way. It is initialized with FULL by default.
+     */
+    private RetryHistory retryHistory = RetryHistory.FULL;
+
+    /**
+     * The maximum number of executions kept in flight by a bulk execution (AIFunction.executeAll).
+     * It is initialized with a default value of 16.
+     */
+    private int maxInFlight = 16;
+
+    /**
+     * Whether concurrent identical executions (same function, arguments, example, model, topP and identifier) share one in-flight execution.
+     * Executions with temporary identifiers share it regardless of the identifier.
+     * It is disabled by default.
+     */
+    private boolean coalesce = false;
 }
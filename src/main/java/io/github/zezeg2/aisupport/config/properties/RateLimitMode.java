@@ -0,0 +1,16 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents where the rate limits of chat completion requests are kept.
+ */
+public enum RateLimitMode {
+
+    /**
+     * The LOCAL mode limits the requests of each process on its own, with in-memory token buckets.
+     */
+    LOCAL,
+    /**
+     * The REDIS mode shares the limits among every process using the same Redis, each process leasing permits in small batches.
+     */
+    REDIS
+}
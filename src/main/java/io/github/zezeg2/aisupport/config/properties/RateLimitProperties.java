@@ -0,0 +1,74 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the rate limiting of chat completion requests per model.
+ * These properties can be customized using the "ai-supporter.api.rate-limit" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.api.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    /**
+     * Whether chat completion requests are rate limited before they are sent.
+     * It is disabled by default.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Where the limits are kept: local to each process, or in Redis to share them among the processes of a cluster.
+     * It is initialized with LOCAL by default.
+     */
+    private RateLimitMode mode = RateLimitMode.LOCAL;
+
+    /**
+     * The request permits a process leases from the shared limits at once in the redis mode.
+     * It is initialized with 5 by default.
+     */
+    private long leaseRequests = 5;
+
+    /**
+     * The token permits a process leases from the shared limits at once in the redis mode; a request needing more leases what it needs.
+     * It is initialized with 4000 by default.
+     */
+    private long leaseTokens = 4000;
+
+    /**
+     * The longest time a request over the limits waits for its turn in milliseconds; requests that would wait longer are rejected.
+     * It is initialized with 10000 milliseconds by default.
+     */
+    private long maxWait = 10000;
+
+    /**
+     * The maximum number of requests waiting for their turn per model; further requests are rejected.
+     * It is initialized with 1000 by default.
+     */
+    private int maxQueueDepth = 1000;
+
+    /**
+     * The limits per model. Models without limits are not rate limited.
+     */
+    private Map<Model, Limit> models = new HashMap<>();
+
+    /**
+     * The requests per minute and tokens per minute allowed for a model.
+     */
+    @Data
+    public static class Limit {
+
+        /**
+         * The requests allowed per minute, or 0 for no request limit.
+         */
+        private long requestsPerMinute = 0;
+
+        /**
+         * The tokens, prompt and completion together, allowed per minute, or 0 for no token limit.
+         */
+        private long tokensPerMinute = 0;
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents the available layouts for storing message contexts in Redis.
+ */
+public enum RedisLayout {
+
+    /**
+     * The HASH layout stores every message context, messages included, as one serialized hash field.
+     */
+    HASH,
+    /**
+     * The APPEND_ONLY layout stores the messages of a context in a Redis list and only the context metadata in the hash field.
+     */
+    APPEND_ONLY
+}
@@ -0,0 +1,32 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the retention of message contexts stored by the redis, mongo and file contexts.
+ * These properties can be customized using the "ai-supporter.context.retention" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.context.retention")
+@Data
+public class RetentionProperties {
+
+    /**
+     * The time a prompt message context is kept after its last write in seconds, or 0 to keep it forever.
+     * It is initialized with 0 by default.
+     */
+    private long prompt = 0;
+
+    /**
+     * The time a feedback message context is kept after its last write in seconds, or 0 to keep it forever.
+     * It is initialized with 0 by default.
+     */
+    private long feedback = 0;
+
+    /**
+     * The time a message context of a temporary identifier, generated when a function is executed without one,
+     * is kept after its last write in seconds, or 0 to apply the retention of its context type.
+     * It is initialized with 3600 seconds by default.
+     */
+    private long temporary = 3600;
+}
@@ -0,0 +1,18 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents how much of the retry history of a message context is sent with the requests of the validation feedback loop.
+ * The stored message context always keeps the full history.
+ */
+public enum RetryHistory {
+
+    /**
+     * The FULL strategy sends every message of the context, so each retry resends all previous candidates and feedback.
+     */
+    FULL,
+    /**
+     * The LATEST strategy sends only the latest round: the system prompt, the original user input, the latest candidate and
+     * the latest feedback for a prompt context, and the system prompt with the latest candidate for a feedback context.
+     */
+    LATEST
+}
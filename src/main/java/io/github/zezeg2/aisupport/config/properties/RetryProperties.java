@@ -0,0 +1,50 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for retrying chat completion requests that failed transiently: timeouts, connection failures,
+ * rate limiting (429) and server errors (5xx).
+ * These properties can be customized using the "ai-supporter.api.retry" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.api.retry")
+@Data
+public class RetryProperties {
+
+    /**
+     * Whether transiently failed chat completion requests are retried.
+     * It is disabled by default.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The maximum number of attempts of a request, the first one included.
+     * It is initialized with 3 by default.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * The backoff before the first retry in milliseconds, multiplied by the multiplier for every further retry.
+     * It is initialized with 500 milliseconds by default.
+     */
+    private long initialBackoff = 500;
+
+    /**
+     * The factor the backoff grows by with every retry.
+     * It is initialized with 2.0 by default.
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * The longest backoff in milliseconds. A request whose Retry-After header asks for a longer wait is not retried.
+     * It is initialized with 20000 milliseconds by default.
+     */
+    private long maxBackoff = 20000;
+
+    /**
+     * The fraction of the backoff randomized, so that a backoff b is drawn uniformly from [b * (1 - jitter), b].
+     * It is initialized with 0.5 by default.
+     */
+    private double jitter = 0.5;
+}
@@ -0,0 +1,31 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for generating the sequences of message contexts stored in the redis or mongo context.
+ * These properties can be customized using the "ai-supporter.context.sequence" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.context.sequence")
+@Data
+public class SequenceProperties {
+
+    /**
+     * The strategy for generating sequences.
+     * It is initialized with the COUNTER strategy by default.
+     */
+    private SequenceStrategy strategy = SequenceStrategy.COUNTER;
+
+    /**
+     * The number of sequences reserved at once from the counter by the COUNTER strategy.
+     * Unused sequences of a reserved block are skipped. It is initialized with 1 by default.
+     */
+    private int blockSize = 1;
+
+    /**
+     * The node id between 0 and 1023 used by the TIME_ORDERED strategy, which must be distinct on every node sharing a context.
+     * It is initialized with -1 by default, which leaves it unset: the TIME_ORDERED strategy then fails at startup.
+     */
+    private int nodeId = -1;
+}
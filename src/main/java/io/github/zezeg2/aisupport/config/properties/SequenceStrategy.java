@@ -0,0 +1,16 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+/**
+ * This enum represents the available strategies for generating the sequences of message contexts.
+ */
+public enum SequenceStrategy {
+
+    /**
+     * The COUNTER strategy reserves sequences from a counter stored in the redis or mongo context, in blocks of the configured size.
+     */
+    COUNTER,
+    /**
+     * The TIME_ORDERED strategy generates time-ordered sequences locally from the clock and the node id.
+     */
+    TIME_ORDERED
+}
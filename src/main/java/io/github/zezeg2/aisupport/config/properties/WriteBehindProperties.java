@@ -0,0 +1,37 @@
+package io.github.zezeg2.aisupport.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for buffering message context writes to the redis or mongo context.
+ * These properties can be customized using the "ai-supporter.context.write-behind" prefix.
+ */
+@ConfigurationProperties(prefix = "ai-supporter.context.write-behind")
+@Data
+public class WriteBehindProperties {
+
+    /**
+     * Whether message context writes are buffered and persisted in batches.
+     * It is disabled by default.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The interval between flushes of buffered writes in milliseconds.
+     * It is initialized with 200 milliseconds by default.
+     */
+    private long flushInterval = 200;
+
+    /**
+     * The number of buffered message contexts that triggers a flush before the interval elapses.
+     * It is initialized with 100 by default.
+     */
+    private int batchSize = 100;
+
+    /**
+     * The maximum number of buffered message contexts. When it is reached, the writing thread flushes synchronously.
+     * It is initialized with 10000 by default.
+     */
+    private int maxPending = 10000;
+}
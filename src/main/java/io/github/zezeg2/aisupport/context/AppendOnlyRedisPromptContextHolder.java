@@ -0,0 +1,88 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.context.codec.ContextCodec;
+import io.github.zezeg2.aisupport.context.codec.JacksonContextCodec;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The AppendOnlyRedisPromptContextHolder class stores message contexts in the append-only layout described by
+ * {@link RedisMessageListLayout}: saving a context appends its new messages to a Redis list instead of rewriting
+ * the whole serialized context, so the bytes written per message do not grow with the conversation.
+ * Saving several contexts at once sends their scripts in a single pipeline.
+ */
+public class AppendOnlyRedisPromptContextHolder extends RedisPromptContextHolder {
+    private static final byte[] SAVE_SCRIPT = toBytes(RedisMessageListLayout.SAVE_SCRIPT.getScriptAsString());
+    private final RedisMessageListLayout layout;
+
+    public AppendOnlyRedisPromptContextHolder(RedisTemplate<String, String> template, ObjectMapper mapper) {
+        this(createTemplate(template.getRequiredConnectionFactory()), new JacksonContextCodec(mapper));
+    }
+
+    public AppendOnlyRedisPromptContextHolder(RedisTemplate<String, byte[]> template, ContextCodec codec) {
+        this(template, codec, null, ContextRetention.NONE);
+    }
+
+    public AppendOnlyRedisPromptContextHolder(RedisTemplate<String, byte[]> template, ContextCodec codec, SequenceGenerator sequenceGenerator, ContextRetention retention) {
+        super(template, codec, sequenceGenerator, retention);
+        this.layout = new RedisMessageListLayout(codec);
+    }
+
+    @Override
+    public <T extends MessageContext> T createMessageContext(ContextType contextType, String namespace, String identifier) {
+        T messageContext = super.createMessageContext(contextType, namespace, identifier);
+        layout.register(messageContext, codec.encodeMetadata(messageContext));
+        return messageContext;
+    }
+
+    @Override
+    public void saveMessageContext(ContextType contextType, MessageContext messageContext) {
+        List<byte[]> args = layout.prepareSave(messageContext, retention.getTtlSeconds(contextType, messageContext.getIdentifier()));
+        try {
+            template.execute(RedisMessageListLayout.SAVE_SCRIPT, List.of(RedisMessageListLayout.getHashKey(messageContext), RedisMessageListLayout.getListKey(messageContext)), args.toArray());
+        } catch (RuntimeException e) {
+            layout.invalidate(messageContext);
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveMessageContexts(ContextType contextType, List<? extends MessageContext> messageContexts) {
+        List<byte[][]> saves = new ArrayList<>(messageContexts.size());
+        for (MessageContext messageContext : messageContexts) {
+            List<byte[]> args = layout.prepareSave(messageContext, retention.getTtlSeconds(contextType, messageContext.getIdentifier()));
+            List<byte[]> keysAndArgs = new ArrayList<>(2 + args.size());
+            keysAndArgs.add(toBytes(RedisMessageListLayout.getHashKey(messageContext)));
+            keysAndArgs.add(toBytes(RedisMessageListLayout.getListKey(messageContext)));
+            keysAndArgs.addAll(args);
+            saves.add(keysAndArgs.toArray(new byte[0][]));
+        }
+        try {
+            template.executePipelined((RedisCallback<Object>) connection -> {
+                for (byte[][] keysAndArgs : saves) connection.scriptingCommands().eval(SAVE_SCRIPT, ReturnType.INTEGER, 2, keysAndArgs);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            messageContexts.forEach(layout::invalidate);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteMessagesFromLast(ContextType contextType, MessageContext messageContext, Integer n) {
+        List<ChatMessage> content = messageContext.getMessages();
+        if (!content.isEmpty()) {
+            int removeIndex = Math.max(0, content.size() - n);
+            content.subList(removeIndex, content.size()).clear();
+        }
+        saveMessageContext(contextType, messageContext);
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.zezeg2.aisupport.context;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The BlockSequenceGenerator class generates sequences from blocks reserved in a shared counter (hi/lo allocation).
+ * A block of {@code blockSize} values is reserved with a single increment of the counter, and its values are then handed out
+ * locally, so only one creation in {@code blockSize} needs a round trip to the backend.
+ * A block is given up once it outlives the lifetime told by {@link #getBlockLifetime}, after which the counter may have expired
+ * and restarted from zero on another node. Values of a block that are not used
+ * before the node stops, or before the block is evicted, are skipped. A block size of 1 reserves every value individually.
+ */
+public abstract class BlockSequenceGenerator implements SequenceGenerator {
+
+    private static final int MAX_TRACKED_SEQUENCES = 10000;
+
+    private final int blockSize;
+    private final Map<String, Block> blocks = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Block> eldest) {
+            return size() > MAX_TRACKED_SEQUENCES;
+        }
+    });
+
+    protected BlockSequenceGenerator(int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize must be greater than 0");
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Reserves a range of values by incrementing the shared counter of the sequence.
+     *
+     * @param seqName    The name of the sequence.
+     * @param identifier The identifier associated with the sequence.
+     * @param size       The number of values to reserve.
+     * @return The value of the counter after the increment, that is the highest reserved value.
+     */
+    protected abstract long reserve(String seqName, String identifier, int size);
+
+    /**
+     * Gets how long a reserved block may be used, that is how long its counter is known to exist after the reservation.
+     *
+     * @param seqName    The name of the sequence.
+     * @param identifier The identifier associated with the sequence.
+     * @return The lifetime of a block, or zero to use blocks until they are exhausted.
+     */
+    protected Duration getBlockLifetime(String seqName, String identifier) {
+        return Duration.ZERO;
+    }
+
+    @Override
+    public long generateSequence(String seqName, String identifier) {
+        if (blockSize == 1) return reserve(seqName, identifier, 1);
+        Block block = blocks.computeIfAbsent(seqName + ":" + identifier, key -> new Block());
+        synchronized (block) {
+            if (block.isExhausted()) {
+                long reservedAt = System.nanoTime();
+                block.reserved(reserve(seqName, identifier, blockSize), blockSize, getBlockLifetime(seqName, identifier), reservedAt);
+            }
+            return block.next++;
+        }
+    }
+
+    private static class Block {
+        private long next = 1;
+        private long max = 0;
+        private long expiresAt;
+        private boolean expiring;
+
+        private boolean isExhausted() {
+            return next > max || (expiring && System.nanoTime() - expiresAt >= 0);
+        }
+
+        private void reserved(long max, int blockSize, Duration lifetime, long reservedAt) {
+            this.max = max;
+            this.next = max - blockSize + 1;
+            this.expiring = !lifetime.isZero();
+            this.expiresAt = reservedAt + lifetime.toNanos();
+        }
+    }
+}
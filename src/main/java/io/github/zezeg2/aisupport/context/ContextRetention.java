@@ -0,0 +1,112 @@
+package io.github.zezeg2.aisupport.context;
+
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The ContextRetention class determines how long a stored message context is kept after its last write,
+ * depending on its context type and on whether its identifier is a temporary one.
+ * A zero duration keeps the context forever.
+ */
+public class ContextRetention {
+    public static final String TEMPORARY_IDENTIFIER_PREFIX = "temp-identifier-";
+
+    /**
+     * Keeps every message context forever.
+     */
+    public static final ContextRetention NONE = new ContextRetention(Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+    private final Duration prompt;
+    private final Duration feedback;
+    private final Duration temporary;
+
+    /**
+     * Constructs a ContextRetention.
+     *
+     * @param prompt    The retention of prompt message contexts.
+     * @param feedback  The retention of feedback message contexts.
+     * @param temporary The retention of message contexts of temporary identifiers, or zero to apply the retention of their context type.
+     */
+    public ContextRetention(Duration prompt, Duration feedback, Duration temporary) {
+        this.prompt = prompt;
+        this.feedback = feedback;
+        this.temporary = temporary;
+    }
+
+    public static boolean isTemporary(String identifier) {
+        return identifier != null && identifier.startsWith(TEMPORARY_IDENTIFIER_PREFIX);
+    }
+
+    public boolean isEnabled() {
+        return !prompt.isZero() || !feedback.isZero() || !temporary.isZero();
+    }
+
+    /**
+     * Gets the retention of a message context. A temporary identifier is kept no longer than the retention of its context type.
+     *
+     * @param contextType The type of the context.
+     * @param identifier  The identifier of the context.
+     * @return The retention, or zero to keep the context forever.
+     */
+    public Duration getTtl(ContextType contextType, String identifier) {
+        Duration ttl = contextType == ContextType.PROMPT ? prompt : feedback;
+        if (isTemporary(identifier) && !temporary.isZero() && (ttl.isZero() || temporary.compareTo(ttl) < 0)) return temporary;
+        return ttl;
+    }
+
+    /**
+     * Gets the retention of a message context in whole seconds, as expected by Redis EXPIRE.
+     *
+     * @param contextType The type of the context.
+     * @param identifier  The identifier of the context.
+     * @return The retention in seconds, or 0 to keep the context forever.
+     */
+    public long getTtlSeconds(ContextType contextType, String identifier) {
+        Duration ttl = getTtl(contextType, identifier);
+        return ttl.isZero() ? 0 : Math.max(1, ttl.toSeconds());
+    }
+
+    /**
+     * Gets the retention of the sequence counter of an identifier. Counters of temporary identifiers expire once every context
+     * of the identifier may have, since such identifiers are never reused; counters of other identifiers are kept forever,
+     * so that a context updated for longer than the retention never sees its sequence handed out again.
+     *
+     * @param identifier The identifier of the contexts.
+     * @return The retention of the counter, or zero to keep it forever.
+     */
+    public Duration getSequenceTtl(String identifier) {
+        if (!isTemporary(identifier)) return Duration.ZERO;
+        Duration prompt = getTtl(ContextType.PROMPT, identifier);
+        Duration feedback = getTtl(ContextType.FEEDBACK, identifier);
+        if (prompt.isZero() || feedback.isZero()) return Duration.ZERO;
+        return prompt.compareTo(feedback) > 0 ? prompt : feedback;
+    }
+
+    /**
+     * Gets the shortest retention a message context of an identifier may have.
+     *
+     * @param identifier The identifier of the context.
+     * @return The shortest retention, or zero if contexts of the identifier are kept forever.
+     */
+    public Duration getShortestTtl(String identifier) {
+        Duration prompt = getTtl(ContextType.PROMPT, identifier);
+        Duration feedback = getTtl(ContextType.FEEDBACK, identifier);
+        if (prompt.isZero()) return feedback;
+        if (feedback.isZero()) return prompt;
+        return prompt.compareTo(feedback) < 0 ? prompt : feedback;
+    }
+
+    /**
+     * Gets the time at which a message context written now expires.
+     *
+     * @param contextType The type of the context.
+     * @param identifier  The identifier of the context.
+     * @return The expiry time, or {@code null} to keep the context forever.
+     */
+    public Instant getExpireAt(ContextType contextType, String identifier) {
+        Duration ttl = getTtl(contextType, identifier);
+        return ttl.isZero() ? null : Instant.now().plus(ttl);
+    }
+}
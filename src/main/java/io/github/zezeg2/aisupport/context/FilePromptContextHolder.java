@@ -0,0 +1,87 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.core.function.prompt.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The FilePromptContextHolder class persists prompts and message contexts on the local disk in a {@link MappedContextLog},
+ * for single-node deployments that need durable contexts without Redis or MongoDB.
+ * Saving a message context appends its current state to the log; the history survives restarts.
+ */
+public class FilePromptContextHolder implements PromptContextHolder, AutoCloseable {
+    private final MappedContextLog contextLog;
+
+    public FilePromptContextHolder(MappedContextLog contextLog) {
+        this.contextLog = contextLog;
+    }
+
+    @Override
+    public boolean contains(String namespace) {
+        return contextLog.containsPrompt(namespace);
+    }
+
+    @Override
+    public void savePrompt(String namespace, Prompt prompt) {
+        contextLog.writePrompt(namespace, prompt);
+    }
+
+    @Override
+    public Prompt get(String namespace) {
+        return contextLog.readPrompt(namespace);
+    }
+
+    @Override
+    public <T extends MessageContext> T createMessageContext(ContextType contextType, String namespace, String identifier) {
+        String[] split = namespace.split(":");
+        long seq = contextLog.nextSequence();
+        T messageContext = (T) (contextType == ContextType.PROMPT
+                ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
+                : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
+        contextLog.writeContexts(contextType, List.of(messageContext));
+        return messageContext;
+    }
+
+    @Override
+    public void saveMessageContext(ContextType contextType, MessageContext messageContext) {
+        contextLog.writeContexts(contextType, List.of(messageContext));
+    }
+
+    @Override
+    public void saveMessageContexts(ContextType contextType, List<? extends MessageContext> messageContexts) {
+        contextLog.writeContexts(contextType, messageContexts);
+    }
+
+    @Override
+    public void deleteMessagesFromLast(ContextType contextType, MessageContext messageContext, Integer n) {
+        List<ChatMessage> content = messageContext.getMessages();
+        if (!content.isEmpty()) {
+            int removeIndex = Math.max(0, content.size() - n);
+            content.subList(removeIndex, content.size()).clear();
+        }
+        saveMessageContext(contextType, messageContext);
+    }
+
+    /**
+     * Reads the latest saved state of a message context, including contexts saved before a restart.
+     *
+     * @param contextType The type of the context.
+     * @param namespace   The namespace of the context.
+     * @param identifier  The identifier of the context.
+     * @param seq         The sequence of the context.
+     * @param <T>         The type of the message context.
+     * @return The message context, or {@code null} if it was never saved.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends MessageContext> T getMessageContext(ContextType contextType, String namespace, String identifier, Long seq) {
+        return (T) contextLog.readContext(contextType, namespace, identifier, seq);
+    }
+
+    @Override
+    public void close() throws IOException {
+        contextLog.close();
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.zezeg2.aisupport.context;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The LocalContextStatistics class is a snapshot of the size and eviction counts of a LocalMessageContextStore.
+ */
+@Data
+@Builder
+public class LocalContextStatistics {
+    private final long size;
+    private final long weight;
+    private final long sizeEvictionCount;
+    private final long weightEvictionCount;
+    private final long expirationCount;
+
+    /**
+     * Gets the number of message contexts removed from the store for any reason.
+     *
+     * @return The total eviction count.
+     */
+    public long getEvictionCount() {
+        return sizeEvictionCount + weightEvictionCount + expirationCount;
+    }
+}
@@ -1,19 +1,29 @@
 package io.github.zezeg2.aisupport.context;
 
 import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.config.properties.LocalContextProperties;
 import io.github.zezeg2.aisupport.core.function.prompt.*;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * The LocalMemoryPromptContextHolder class keeps prompts and message contexts in process memory.
+ * Message contexts are kept in a {@link LocalMessageContextStore}, which bounds them by count, weight and time to live.
+ */
 public class LocalMemoryPromptContextHolder implements PromptContextHolder {
     private static final Map<String, Prompt> promptRegistry = new ConcurrentHashMap<>();
-    private static final Map<ContextType, Map<String, CopyOnWriteArrayList<MessageContext>>> contextRegistry =
-            new ConcurrentHashMap<>(Map.of(ContextType.PROMPT, new ConcurrentHashMap<>(), ContextType.FEEDBACK, new ConcurrentHashMap<>()));
+    private final LocalMessageContextStore store;
 
+    public LocalMemoryPromptContextHolder() {
+        this(new LocalMessageContextStore(new LocalContextProperties()));
+    }
+
+    public LocalMemoryPromptContextHolder(LocalMessageContextStore store) {
+        this.store = store;
+    }
 
     @Override
     public boolean contains(String namespace) {
@@ -33,25 +43,20 @@ public class LocalMemoryPromptContextHolder implements PromptContextHolder {
 
     @Override
     public <T extends MessageContext> T createMessageContext(ContextType contextType, String namespace, String identifier) {
-        Map<String, CopyOnWriteArrayList<MessageContext>> selectedRegistry = contextRegistry.get(contextType);
-        if (!selectedRegistry.containsKey(namespace + ":" + identifier))
-            selectedRegistry.put(namespace + ":" + identifier, new CopyOnWriteArrayList<>());
         String[] split = namespace.split(":");
-        CopyOnWriteArrayList<MessageContext> messageContextList = selectedRegistry.get(namespace + ":" + identifier);
-        Long seq = (long) messageContextList.size();
+        long seq = store.nextSequence();
         T messageContext = (T) (contextType == ContextType.PROMPT
                 ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
                 : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
-        messageContextList.add(messageContext);
+        store.put(contextType, messageContext);
         return messageContext;
     }
 
     @Override
     public void saveMessageContext(ContextType contextType, MessageContext messageContext) {
-        MessageContext origin = contextRegistry.get(contextType).get(messageContext.getNamespace() + ":" + messageContext.getIdentifier()).stream()
-                .filter(ctx -> ctx.getSeq().equals(messageContext.getSeq()))
-                .findFirst().orElseThrow();
-        origin.setMessages(messageContext.getMessages());
+        MessageContext origin = store.get(contextType, messageContext.getNamespace(), messageContext.getIdentifier(), messageContext.getSeq());
+        if (origin != null && origin != messageContext) origin.setMessages(messageContext.getMessages());
+        store.put(contextType, origin == null ? messageContext : origin);
     }
 
 
@@ -62,5 +67,15 @@ public class LocalMemoryPromptContextHolder implements PromptContextHolder {
             int removeIndex = Math.max(0, content.size() - n);
             content.subList(removeIndex, content.size()).clear();
         }
+        saveMessageContext(contextType, messageContext);
+    }
+
+    /**
+     * Gets a snapshot of the size and eviction counts of the message contexts kept by this holder.
+     *
+     * @return The statistics of the message context store.
+     */
+    public LocalContextStatistics getStatistics() {
+        return store.getStatistics();
     }
 }
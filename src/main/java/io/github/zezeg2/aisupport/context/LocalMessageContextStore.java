@@ -0,0 +1,168 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.config.properties.LocalContextProperties;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The LocalMessageContextStore class keeps message contexts in process memory with size, weight and time-to-live eviction.
+ * Contexts are indexed by context type, namespace, identifier and sequence, and ordered by their last write, so lookups,
+ * writes and evictions take constant time. The weight of a context is the number of characters of its messages when it was last stored.
+ * <p>
+ * Sequences are taken from a single counter of the store, so they are unique among all the contexts of the store
+ * and never reused after an eviction.
+ */
+public class LocalMessageContextStore {
+    private final int maxSize;
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private long weight;
+    private long sizeEvictionCount;
+    private long weightEvictionCount;
+    private long expirationCount;
+
+    /**
+     * Constructs a LocalMessageContextStore with the limits of the given properties.
+     *
+     * @param properties The local context properties.
+     */
+    public LocalMessageContextStore(LocalContextProperties properties) {
+        this(properties.getMaxSize(), properties.getMaxWeight(), Duration.ofSeconds(properties.getTtl()));
+    }
+
+    /**
+     * Constructs a LocalMessageContextStore.
+     *
+     * @param maxSize   The maximum number of stored contexts, or 0 for no limit; the least recently written context is evicted beyond it.
+     * @param maxWeight The maximum total number of message characters, or 0 for no limit; the least recently written contexts are evicted beyond it.
+     * @param ttl       The time a context is kept after its last write, or {@link Duration#ZERO} to keep it until it is evicted.
+     */
+    public LocalMessageContextStore(int maxSize, long maxWeight, Duration ttl) {
+        if (maxSize < 0 || maxWeight < 0 || ttl.isNegative()) throw new IllegalArgumentException("Limits of the local context store must not be negative");
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    private static String getKey(ContextType contextType, String namespace, String identifier, Long seq) {
+        return contextType + ":" + namespace + ":" + identifier + ":" + seq;
+    }
+
+    /**
+     * Allocates the sequence of a new message context.
+     *
+     * @return The next sequence of the store.
+     */
+    public long nextSequence() {
+        return sequence.getAndIncrement();
+    }
+
+    /**
+     * Gets a stored message context.
+     *
+     * @param contextType The type of the context.
+     * @param namespace   The namespace of the context.
+     * @param identifier  The identifier of the context.
+     * @param seq         The sequence of the context.
+     * @return The stored message context, or {@code null} if it is absent, evicted or expired.
+     */
+    public synchronized MessageContext get(ContextType contextType, String namespace, String identifier, Long seq) {
+        expire(System.currentTimeMillis());
+        Entry entry = entries.get(getKey(contextType, namespace, identifier, seq));
+        return entry == null ? null : entry.messageContext;
+    }
+
+    /**
+     * Stores a message context, replacing the context with the same type, namespace, identifier and sequence,
+     * and evicts the least recently written contexts exceeding the limits.
+     *
+     * @param contextType    The type of the context.
+     * @param messageContext The message context to store.
+     */
+    public synchronized void put(ContextType contextType, MessageContext messageContext) {
+        long now = System.currentTimeMillis();
+        String key = getKey(contextType, messageContext.getNamespace(), messageContext.getIdentifier(), messageContext.getSeq());
+        Entry entry = entries.remove(key);
+        if (entry == null || entry.messageContext != messageContext) {
+            if (entry != null) weight -= entry.weight;
+            entry = new Entry(messageContext);
+        }
+        weight += entry.weigh();
+        entry.expiresAt = ttlMillis == 0 ? Long.MAX_VALUE : now + ttlMillis;
+        entries.put(key, entry);
+        expire(now);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > 1 && ((maxSize > 0 && entries.size() > maxSize) || (maxWeight > 0 && weight > maxWeight))) {
+            Entry eldest = iterator.next();
+            if (maxSize > 0 && entries.size() > maxSize) sizeEvictionCount++;
+            else weightEvictionCount++;
+            weight -= eldest.weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes the expired contexts, which are at the head of the write order.
+     *
+     * @param now The current time in milliseconds.
+     */
+    private void expire(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (eldest.expiresAt > now) return;
+            expirationCount++;
+            weight -= eldest.weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the size and eviction counts of the store.
+     *
+     * @return The statistics of the store.
+     */
+    public synchronized LocalContextStatistics getStatistics() {
+        expire(System.currentTimeMillis());
+        return LocalContextStatistics.builder()
+                .size(entries.size())
+                .weight(weight)
+                .sizeEvictionCount(sizeEvictionCount)
+                .weightEvictionCount(weightEvictionCount)
+                .expirationCount(expirationCount)
+                .build();
+    }
+
+    private static class Entry {
+        private final MessageContext messageContext;
+        private long weight;
+        private long expiresAt;
+
+        private Entry(MessageContext messageContext) {
+            this.messageContext = messageContext;
+        }
+
+        /**
+         * Weighs the messages of the context again, from a snapshot of the list since callers may replace or change it
+         * while other contexts are stored.
+         *
+         * @return The change of the weight.
+         */
+        private long weigh() {
+            long previous = weight;
+            weight = 0;
+            for (Object message : messageContext.getMessages().toArray()) {
+                if (message instanceof ChatMessage chatMessage && chatMessage.getContent() != null) weight += chatMessage.getContent().length();
+            }
+            return weight - previous;
+        }
+    }
+}
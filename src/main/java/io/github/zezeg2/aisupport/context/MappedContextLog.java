@@ -0,0 +1,463 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.zezeg2.aisupport.core.function.prompt.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The MappedContextLog class persists prompts and message contexts in an append-only log of memory-mapped segment files.
+ * <p>
+ * Every write appends a record holding the serialized prompt or context; an in-memory index maps each prompt namespace and
+ * each (context type, namespace, identifier, seq) to the offset of its latest record. A record is laid out as
+ * {@code [int length][int crc32][byte kind][int keyLength][key][value]}, where the length and checksum cover everything after the header.
+ * The record of a context with a retention has the {@link #EXPIRING} kind flag and an {@code [long expireAt]} in epoch milliseconds
+ * before its value. When the active segment is full, a new segment is started (rolling). Expired contexts are then dropped from
+ * the index, and older segments whose share of live records falls below the compaction threshold are compacted: their live
+ * records are copied to the active segment and the segment file is unmapped and deleted.
+ * <p>
+ * On startup the segments are replayed in order to rebuild the index; a torn record at the tail of a segment ends its replay.
+ * Writes are durable once the operating system writes back the mapped pages, or immediately when {@code fsync} is enabled.
+ * The directory is locked, so a log directory can only be used by one process at a time. All operations are thread-safe.
+ */
+@Slf4j
+public class MappedContextLog implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final byte PROMPT = 1;
+    private static final byte PROMPT_CONTEXT = 2;
+    private static final byte FEEDBACK_CONTEXT = 3;
+    private static final byte EXPIRING = 0x10;
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final boolean fsync;
+    private final ObjectMapper mapper;
+    private final ContextRetention retention;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private final Map<String, Prompt> prompts = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private Segment active;
+    private boolean compacting;
+
+    /**
+     * Opens the log stored in the given directory, creating it when it does not exist.
+     *
+     * @param directory           The directory holding the segment files.
+     * @param segmentSize         The size of a segment file in bytes.
+     * @param compactionThreshold The share of live records below which a full segment is compacted, between 0 and 1.
+     * @param fsync               Whether every write is forced to the storage device before returning.
+     * @param mapper              The ObjectMapper used to serialize prompts and message contexts.
+     */
+    public MappedContextLog(Path directory, int segmentSize, double compactionThreshold, boolean fsync, ObjectMapper mapper) {
+        this(directory, segmentSize, compactionThreshold, fsync, mapper, ContextRetention.NONE);
+    }
+
+    /**
+     * Opens the log stored in the given directory, creating it when it does not exist.
+     *
+     * @param directory           The directory holding the segment files.
+     * @param segmentSize         The size of a segment file in bytes.
+     * @param compactionThreshold The share of live records below which a full segment is compacted, between 0 and 1.
+     * @param fsync               Whether every write is forced to the storage device before returning.
+     * @param mapper              The ObjectMapper used to serialize prompts and message contexts.
+     * @param retention           The retention of message contexts after their last write.
+     */
+    public MappedContextLog(Path directory, int segmentSize, double compactionThreshold, boolean fsync, ObjectMapper mapper, ContextRetention retention) {
+        if (segmentSize < 1024) throw new IllegalArgumentException("segmentSize must be at least 1024 bytes");
+        if (compactionThreshold < 0 || compactionThreshold > 1) throw new IllegalArgumentException("compactionThreshold must be between 0 and 1");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        this.fsync = fsync;
+        this.mapper = mapper;
+        this.retention = retention;
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = FileChannel.open(directory.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.lock = tryLock(lockChannel);
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("The context log directory is already in use: " + directory);
+            }
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening the context log in " + directory, e);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private static String getPromptKey(String namespace) {
+        return "P:" + namespace;
+    }
+
+    private static String getContextKey(ContextType contextType, String namespace, String identifier, Long seq) {
+        return "C:" + contextType + ":" + namespace + ":" + identifier + ":" + seq;
+    }
+
+    /**
+     * Allocates the sequence of a new message context. Sequences are unique among all the contexts of the log, including recovered ones.
+     *
+     * @return The next sequence of the log.
+     */
+    public long nextSequence() {
+        return sequence.getAndIncrement();
+    }
+
+    public synchronized boolean containsPrompt(String namespace) {
+        return index.containsKey(getPromptKey(namespace));
+    }
+
+    public synchronized void writePrompt(String namespace, Prompt prompt) {
+        append(PROMPT, getPromptKey(namespace), serialize(prompt), Long.MAX_VALUE);
+        prompts.put(namespace, prompt);
+        force();
+    }
+
+    public synchronized Prompt readPrompt(String namespace) {
+        Prompt prompt = prompts.get(namespace);
+        if (prompt != null) return prompt;
+        Location location = index.get(getPromptKey(namespace));
+        if (location == null) return null;
+        prompt = (Prompt) read(location);
+        prompts.put(namespace, prompt);
+        return prompt;
+    }
+
+    /**
+     * Appends the current state of message contexts to the log, each expiring after the retention of its type and identifier.
+     *
+     * @param contextType     The type of the contexts.
+     * @param messageContexts The message contexts to write.
+     */
+    public synchronized void writeContexts(ContextType contextType, List<? extends MessageContext> messageContexts) {
+        byte kind = contextType == ContextType.PROMPT ? PROMPT_CONTEXT : FEEDBACK_CONTEXT;
+        long now = System.currentTimeMillis();
+        for (MessageContext messageContext : messageContexts) {
+            Duration ttl = retention.getTtl(contextType, messageContext.getIdentifier());
+            append(kind, getContextKey(contextType, messageContext.getNamespace(), messageContext.getIdentifier(), messageContext.getSeq()), serialize(messageContext),
+                    ttl.isZero() ? Long.MAX_VALUE : now + ttl.toMillis());
+        }
+        force();
+    }
+
+    /**
+     * Reads the latest written state of a message context.
+     *
+     * @param contextType The type of the context.
+     * @param namespace   The namespace of the context.
+     * @param identifier  The identifier of the context.
+     * @param seq         The sequence of the context.
+     * @return A new instance holding the latest written state of the context, or {@code null} if it was never written or has expired.
+     */
+    public synchronized MessageContext readContext(ContextType contextType, String namespace, String identifier, Long seq) {
+        String key = getContextKey(contextType, namespace, identifier, seq);
+        Location location = index.get(key);
+        if (location == null) return null;
+        if (location.expiresAt <= System.currentTimeMillis()) {
+            index.remove(key);
+            release(location);
+            return null;
+        }
+        return (MessageContext) read(location);
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Error serializing the context log record", e);
+        }
+    }
+
+    private Object read(Location location) {
+        ByteBuffer body = location.segment.buffer.duplicate();
+        body.position(location.offset + HEADER_SIZE).limit(location.offset + HEADER_SIZE + location.length);
+        byte kind = body.get();
+        int keyLength = body.getInt();
+        body.position(body.position() + keyLength + ((kind & EXPIRING) != 0 ? 8 : 0));
+        byte[] value = new byte[body.remaining()];
+        body.get(value);
+        Class<?> type = switch (kind & ~EXPIRING) {
+            case PROMPT -> Prompt.class;
+            case PROMPT_CONTEXT -> PromptMessageContext.class;
+            default -> FeedbackMessageContext.class;
+        };
+        try {
+            return mapper.readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readValue(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Error deserializing the context log record", e);
+        }
+    }
+
+    private void append(byte kind, String key, byte[] value, long expiresAt) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        boolean expiring = expiresAt != Long.MAX_VALUE;
+        ByteBuffer body = ByteBuffer.allocate(1 + 4 + keyBytes.length + (expiring ? 8 : 0) + value.length);
+        body.put(expiring ? (byte) (kind | EXPIRING) : kind).putInt(keyBytes.length).put(keyBytes);
+        if (expiring) body.putLong(expiresAt);
+        body.put(value).flip();
+        append(key, body, expiresAt);
+    }
+
+    private void append(String key, ByteBuffer body, long expiresAt) {
+        int length = body.remaining();
+        if (active.position + HEADER_SIZE + length > active.capacity) roll(HEADER_SIZE + length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        int offset = active.position;
+        active.buffer.putInt(offset + 4, (int) crc.getValue());
+        active.buffer.put(offset + HEADER_SIZE, body, body.position(), length);
+        active.buffer.putInt(offset, length);
+        active.position += HEADER_SIZE + length;
+        Location previous = index.put(key, new Location(active, offset, length, expiresAt));
+        active.liveBytes += HEADER_SIZE + length;
+        if (previous != null) release(previous);
+    }
+
+    private void release(Location location) {
+        Segment segment = location.segment;
+        segment.liveBytes -= HEADER_SIZE + location.length;
+        if (segment != active && segment.liveBytes == 0 && !compacting) delete(segment);
+    }
+
+    private void force() {
+        if (fsync) active.buffer.force();
+    }
+
+    /**
+     * Seals the active segment and starts a new one, drops the expired contexts from the index, then deletes the sealed segments
+     * left without live records and compacts those whose share of live records is below the threshold.
+     *
+     * @param required The number of bytes the new segment must be able to hold.
+     */
+    private void roll(int required) {
+        active.buffer.force();
+        active = openSegment(active.id + 1, Math.max(segmentSize, required));
+        if (compacting) return;
+        compacting = true;
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<Location> locations = index.values().iterator();
+            while (locations.hasNext()) {
+                Location location = locations.next();
+                if (location.expiresAt > now) continue;
+                locations.remove();
+                release(location);
+            }
+            for (Segment segment : new ArrayList<>(segments.headMap(active.id).values())) {
+                if (segment.liveBytes == 0) delete(segment);
+                else if (segment.liveBytes < segment.position * compactionThreshold) compact(segment);
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private void compact(Segment segment) {
+        List<Map.Entry<String, Location>> live = index.entrySet().stream()
+                .filter(entry -> entry.getValue().segment == segment)
+                .sorted(Comparator.comparingInt(entry -> entry.getValue().offset))
+                .toList();
+        for (Map.Entry<String, Location> entry : live) {
+            Location location = entry.getValue();
+            ByteBuffer body = segment.buffer.duplicate();
+            body.position(location.offset + HEADER_SIZE).limit(location.offset + HEADER_SIZE + location.length);
+            append(entry.getKey(), body, location.expiresAt);
+        }
+        active.buffer.force();
+        log.debug("Compacted context log segment {} ({} live records)", segment.id, live.size());
+        delete(segment);
+    }
+
+    /**
+     * Closes, unmaps and deletes a segment holding no live record. Unmapping releases the pages and, on most platforms,
+     * the disk space of the file right away instead of when the buffer is garbage collected.
+     *
+     * @param segment The segment to delete.
+     */
+    private void delete(Segment segment) {
+        segments.remove(segment.id);
+        try {
+            segment.channel.close();
+            unmap(segment.buffer);
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Failed to delete context log segment {}", segment.path, e);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Failed to unmap a context log segment", e);
+        }
+    }
+
+    private Segment openSegment(long id, int capacity) {
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%019d", id) + SEGMENT_SUFFIX);
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int size = (int) Math.max(capacity, channel.size());
+            Segment segment = new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size);
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening the context log segment " + path, e);
+        }
+    }
+
+    /**
+     * Replays the segments in order to rebuild the index, and makes the last segment the active one.
+     */
+    private void recover() throws IOException {
+        List<Long> ids;
+        try (Stream<Path> files = Files.list(directory)) {
+            ids = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        long maxSeq = -1;
+        compacting = true;
+        for (long id : ids) {
+            active = openSegment(id, segmentSize);
+            maxSeq = Math.max(maxSeq, replay(active));
+        }
+        compacting = false;
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment != active && segment.liveBytes == 0) delete(segment);
+        }
+        if (active == null) active = openSegment(0, segmentSize);
+        sequence.set(maxSeq + 1);
+    }
+
+    private long replay(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        long now = System.currentTimeMillis();
+        long maxSeq = -1;
+        int offset = 0;
+        while (offset + HEADER_SIZE <= segment.capacity) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > segment.capacity) break;
+            ByteBuffer body = buffer.duplicate();
+            body.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                log.warn("Context log segment {} ends with a torn record at offset {}", segment.path, offset);
+                break;
+            }
+            byte kind = body.get();
+            byte[] keyBytes = new byte[body.getInt()];
+            body.get(keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            long expiresAt = (kind & EXPIRING) != 0 ? body.getLong() : Long.MAX_VALUE;
+            if (kind != PROMPT) maxSeq = Math.max(maxSeq, Long.parseLong(key.substring(key.lastIndexOf(':') + 1)));
+            Location previous;
+            if (expiresAt > now) {
+                previous = index.put(key, new Location(segment, offset, length, expiresAt));
+                segment.liveBytes += HEADER_SIZE + length;
+            } else {
+                previous = index.remove(key);
+            }
+            if (previous != null) release(previous);
+            offset += HEADER_SIZE + length;
+        }
+        segment.position = offset;
+        return maxSeq;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        lock.release();
+        lockChannel.close();
+    }
+
+    private static class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int position;
+        private long liveBytes;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+
+    private static class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final long expiresAt;
+
+        private Location(Segment segment, int offset, int length, long expiresAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 /**
  * Represents a document in the "database_sequences" collection in MongoDB.
  * This class is used to store sequence information by identifier
@@ -27,4 +29,9 @@ public class MongoCollectionSeq {
      * The current value of the sequence.
      */
     private long seq;
+
+    /**
+     * The time at which the counter is removed by the TTL index, or {@code null} to keep it forever.
+     */
+    private Instant expireAt;
 }
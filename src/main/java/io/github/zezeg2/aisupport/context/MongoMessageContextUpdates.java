@@ -0,0 +1,130 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.*;
+
+/**
+ * The MongoMessageContextUpdates class computes targeted updates bringing a stored message context document up to date,
+ * so that saving a context does not replace the whole document.
+ * <p>
+ * It remembers, per context, a copy of every message written, the user input and the number of feedback contexts written.
+ * New messages are appended with {@code $push}, removed messages are trimmed with {@code $pop} or a {@code $push} slice,
+ * new feedback contexts are appended with {@code $push}, and usage, model and expiry are always {@code $set}.
+ * When a written message has been replaced, the message list is {@code $set} entirely. Contexts whose write state is unknown
+ * (e.g. evicted, or created by another instance) must be saved entirely and {@link #register registered} again.
+ */
+public class MongoMessageContextUpdates {
+
+    private static final int MAX_TRACKED_CONTEXTS = 10000;
+
+    private final Map<String, WriteState> writeStates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WriteState> eldest) {
+            return size() > MAX_TRACKED_CONTEXTS;
+        }
+    });
+
+    private static String getKey(MessageContext messageContext) {
+        return messageContext.getNamespace() + ":" + messageContext.getId();
+    }
+
+    public static Query byId(MessageContext messageContext) {
+        return Query.query(Criteria.where("_id").is(messageContext.getId()));
+    }
+
+    /**
+     * Records that a message context has been saved entirely in its current state.
+     *
+     * @param messageContext The saved message context.
+     */
+    public void register(MessageContext messageContext) {
+        if (messageContext.getId() == null) return;
+        writeStates.put(getKey(messageContext), WriteState.of(new ArrayList<>(messageContext.getMessages()), messageContext.getUserInput(), getFeedbackMessageContexts(messageContext)));
+    }
+
+    /**
+     * Forgets the write state of a message context, so that its next save replaces it entirely.
+     *
+     * @param messageContext The message context.
+     */
+    public void invalidate(MessageContext messageContext) {
+        if (messageContext.getId() == null) return;
+        writeStates.remove(getKey(messageContext));
+    }
+
+    /**
+     * Computes the update bringing the stored message context up to date, and records the new write state.
+     * Callers must {@link #invalidate} the context if the update fails or matches no document.
+     *
+     * @param messageContext The message context to save.
+     * @return The update to apply to the document with the id of the context, or {@code null} when the context must be saved entirely.
+     */
+    public Update prepareUpdate(MessageContext messageContext) {
+        if (messageContext.getId() == null) return null;
+        String key = getKey(messageContext);
+        List<ChatMessage> messages = new ArrayList<>(messageContext.getMessages());
+        List<FeedbackMessageContext> feedbackMessageContexts = getFeedbackMessageContexts(messageContext);
+        WriteState newState = WriteState.of(messages, messageContext.getUserInput(), feedbackMessageContexts);
+        synchronized (writeStates) {
+            WriteState state = writeStates.get(key);
+            if (state == null) return null;
+            Update update = new Update();
+            int written = state.getMessages().size();
+            int retained = Math.min(written, messages.size());
+            if (!state.getMessages().subList(0, retained).equals(newState.getMessages().subList(0, retained))) {
+                update.set("messages", messages);
+            } else if (messages.size() == written - 1) {
+                update.pop("messages", Update.Position.LAST);
+            } else if (messages.size() < written) {
+                update.push("messages").slice(messages.size()).each();
+            } else if (messages.size() > written) {
+                update.push("messages").each(messages.subList(written, messages.size()).toArray());
+            }
+            if (state.getUserInput() != messageContext.getUserInput()) update.set("userInput", messageContext.getUserInput());
+            if (feedbackMessageContexts.size() > state.getFeedbackCount()) {
+                update.push("feedbackMessageContexts").each(feedbackMessageContexts.subList(state.getFeedbackCount(), feedbackMessageContexts.size()).toArray());
+            } else if (feedbackMessageContexts.size() < state.getFeedbackCount()) {
+                update.set("feedbackMessageContexts", feedbackMessageContexts);
+            }
+            update.set("model", messageContext.getModel());
+            update.set("usage", messageContext.getUsage());
+            if (messageContext.getExpireAt() != null) update.set("expireAt", messageContext.getExpireAt());
+            writeStates.put(key, newState);
+            return update;
+        }
+    }
+
+    private static List<FeedbackMessageContext> getFeedbackMessageContexts(MessageContext messageContext) {
+        if (messageContext instanceof PromptMessageContext promptMessageContext && promptMessageContext.getFeedbackMessageContexts() != null)
+            return new ArrayList<>(promptMessageContext.getFeedbackMessageContexts());
+        return List.of();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class WriteState {
+        private final List<ChatMessage> messages;
+        private final Map<String, Object> userInput;
+        private final int feedbackCount;
+
+        /**
+         * Creates a write state holding copies of the messages, so that it is not changed by later updates of the messages themselves.
+         */
+        private static WriteState of(List<ChatMessage> messages, Map<String, Object> userInput, List<FeedbackMessageContext> feedbackMessageContexts) {
+            List<ChatMessage> snapshot = new ArrayList<>(messages.size());
+            for (ChatMessage message : messages) {
+                snapshot.add(message == null ? null : new ChatMessage(message.getRole(), message.getContent(), message.getName(), message.getFunctionCall()));
+            }
+            return new WriteState(snapshot, userInput, feedbackMessageContexts.size());
+        }
+    }
+}
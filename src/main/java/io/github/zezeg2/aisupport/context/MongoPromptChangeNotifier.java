@@ -0,0 +1,106 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The MongoPromptChangeNotifier class detects prompt changes with a change stream on the database.
+ * With one collection per namespace, a prompt is stored with the function name as both its id and its collection name,
+ * so the stream only matches changes of such documents and drops of whole collections. With the consolidated schema,
+ * the stream matches changes of the prompt collection, and a drop or rename of it invalidates every prompt.
+ * Publishing is a no-op because the write itself is the event.
+ * Change streams require MongoDB to run as a replica set or sharded cluster.
+ */
+@Slf4j
+public class MongoPromptChangeNotifier implements PromptChangeNotifier {
+    public static final List<Bson> PROMPT_CHANGE_PIPELINE = List.of(new Document("$match", new Document("$or", List.of(
+            new Document("$expr", new Document("$eq", List.of("$documentKey._id", "$ns.coll"))),
+            new Document("operationType", new Document("$in", List.of("drop", "rename")))))));
+
+    private final MongoTemplate mongoTemplate;
+    private final String promptCollection;
+    private final List<Bson> pipeline;
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+
+    public MongoPromptChangeNotifier(MongoTemplate mongoTemplate) {
+        this(mongoTemplate, null);
+    }
+
+    /**
+     * Creates a notifier watching the given prompt collection.
+     *
+     * @param mongoTemplate    The mongo template.
+     * @param promptCollection The collection storing every prompt, or {@code null} when each namespace has its own collection.
+     */
+    public MongoPromptChangeNotifier(MongoTemplate mongoTemplate, String promptCollection) {
+        this.mongoTemplate = mongoTemplate;
+        this.promptCollection = promptCollection;
+        this.pipeline = getPipeline(promptCollection);
+    }
+
+    public static List<Bson> getPipeline(String promptCollection) {
+        if (promptCollection == null) return PROMPT_CHANGE_PIPELINE;
+        return List.of(new Document("$match", new Document("ns.coll", promptCollection)));
+    }
+
+    /**
+     * Gets the namespace of the prompt changed by a change event.
+     *
+     * @param change           The change event.
+     * @param promptCollection The collection storing every prompt, or {@code null} when each namespace has its own collection.
+     * @return The namespace, or {@code null} when every prompt may have changed.
+     */
+    public static String getChangedNamespace(ChangeStreamDocument<Document> change, String promptCollection) {
+        if (promptCollection == null) return change.getNamespace() == null ? null : change.getNamespace().getCollectionName();
+        BsonValue id = change.getDocumentKey() == null ? null : change.getDocumentKey().get("_id");
+        return id != null && id.isString() ? id.asString().getValue() : null;
+    }
+
+    @Override
+    public void publish(String namespace) {
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        running = true;
+        cursor = mongoTemplate.getDb().watch(pipeline).cursor();
+        Thread thread = new Thread(() -> listen(listener), "prompt-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void listen(Consumer<String> listener) {
+        while (running) {
+            try {
+                while (running) listener.accept(getChangedNamespace(cursor.next(), promptCollection));
+            } catch (RuntimeException e) {
+                if (!running) return;
+                log.warn("Prompt change stream interrupted, invalidating all cached prompts.", e);
+                listener.accept(null);
+                try {
+                    Thread.sleep(1000);
+                    cursor = mongoTemplate.getDb().watch(pipeline).cursor();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException ignored) {
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (cursor != null) cursor.close();
+    }
+}
@@ -1,38 +1,116 @@
 package io.github.zezeg2.aisupport.context;
 
 import com.theokanning.openai.completion.chat.ChatMessage;
+import com.mongodb.bulk.BulkWriteResult;
+import io.github.zezeg2.aisupport.config.properties.MongoSchema;
 import io.github.zezeg2.aisupport.core.function.prompt.*;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The MongoPromptContextHolder class stores prompts and message contexts in MongoDB, following the configured {@link MongoSchema}:
+ * either one collection per namespace, or the {@value #PROMPT_COLLECTION} and {@value #CONTEXT_COLLECTION} collections,
+ * the latter indexed by namespace, identifier and sequence. Message contexts carry the expiry computed by the {@link ContextRetention},
+ * enforced by a TTL index on {@code expireAt} in every collection they are written to. Message contexts are saved entirely when created, and then brought up to date with targeted updates
+ * computed by {@link MongoMessageContextUpdates}, so that the write cost does not grow with the history of a context.
+ */
 public class MongoPromptContextHolder implements PromptContextHolder {
+    public static final String PROMPT_COLLECTION = "prompts";
+    public static final String CONTEXT_COLLECTION = "message_contexts";
 
     private final MongoTemplate mongoTemplate;
 
     private final SequenceGenerator sequenceGenerator;
 
+    private final MongoMessageContextUpdates updates = new MongoMessageContextUpdates();
+
+    private final boolean consolidated;
+
+    private final ContextRetention retention;
+
+    private final Set<String> expiringCollections = ConcurrentHashMap.newKeySet();
+
     public MongoPromptContextHolder(MongoTemplate mongoTemplate, SequenceGenerator sequenceGenerator) {
+        this(mongoTemplate, sequenceGenerator, MongoSchema.COLLECTION_PER_NAMESPACE);
+    }
+
+    public MongoPromptContextHolder(MongoTemplate mongoTemplate, SequenceGenerator sequenceGenerator, MongoSchema schema) {
+        this(mongoTemplate, sequenceGenerator, schema, ContextRetention.NONE);
+    }
+
+    public MongoPromptContextHolder(MongoTemplate mongoTemplate, SequenceGenerator sequenceGenerator, MongoSchema schema, ContextRetention retention) {
         this.mongoTemplate = mongoTemplate;
         this.sequenceGenerator = sequenceGenerator;
+        this.consolidated = schema == MongoSchema.CONSOLIDATED;
+        this.retention = retention;
+        if (consolidated) mongoTemplate.indexOps(CONTEXT_COLLECTION).ensureIndex(getContextIndex());
+    }
+
+    /**
+     * Gets the unique index of the {@value #CONTEXT_COLLECTION} collection. The namespace of a context is stored as its
+     * function name and, for feedback contexts, its validator name.
+     *
+     * @return The index on namespace, identifier and sequence.
+     */
+    public static Index getContextIndex() {
+        return new Index().on("functionName", Sort.Direction.ASC).on("validatorName", Sort.Direction.ASC)
+                .on("identifier", Sort.Direction.ASC).on("seq", Sort.Direction.ASC)
+                .unique().named("namespace_identifier_seq");
+    }
+
+    /**
+     * Gets the TTL index removing message contexts once their {@code expireAt} has passed.
+     *
+     * @return The TTL index on the expiry of contexts.
+     */
+    public static Index getExpiryIndex() {
+        return new Index().on("expireAt", Sort.Direction.ASC).expire(0).named("expireAt_ttl");
+    }
+
+    private void ensureExpiryIndex(String collection) {
+        if (retention.isEnabled() && expiringCollections.add(collection)) mongoTemplate.indexOps(collection).ensureIndex(getExpiryIndex());
+    }
+
+    private void renewExpiry(ContextType contextType, MessageContext messageContext) {
+        messageContext.setExpireAt(retention.getExpireAt(contextType, messageContext.getIdentifier()));
+    }
+
+    private String getPromptCollection(String namespace) {
+        return consolidated ? PROMPT_COLLECTION : namespace;
+    }
+
+    private String getContextCollection(MessageContext messageContext) {
+        return consolidated ? CONTEXT_COLLECTION : messageContext.getNamespace();
     }
 
     @Override
     public boolean contains(String namespace) {
-        return mongoTemplate.collectionExists(namespace);
+        return consolidated
+                ? mongoTemplate.exists(Query.query(Criteria.where("_id").is(namespace)), PROMPT_COLLECTION)
+                : mongoTemplate.collectionExists(namespace);
     }
 
     @Override
     public void savePrompt(String namespace, Prompt prompt) {
-        mongoTemplate.save(prompt, namespace);
+        mongoTemplate.save(prompt, getPromptCollection(namespace));
     }
 
     @Override
     public Prompt get(String namespace) {
-        return mongoTemplate.findOne(Query.query(new Criteria()), Prompt.class, namespace);
+        return mongoTemplate.findById(namespace, Prompt.class, getPromptCollection(namespace));
     }
 
     @Override
@@ -42,14 +120,68 @@ public class MongoPromptContextHolder implements PromptContextHolder {
         T messageContext = (T) (contextType == ContextType.PROMPT
                 ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
                 : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
-
-        mongoTemplate.save(messageContext, namespace);
+        renewExpiry(contextType, messageContext);
+        replace(messageContext);
         return messageContext;
     }
 
     @Override
     public void saveMessageContext(ContextType contextType, MessageContext messageContext) {
-        mongoTemplate.save(messageContext, messageContext.getNamespace());
+        renewExpiry(contextType, messageContext);
+        Update update = updates.prepareUpdate(messageContext);
+        if (update == null) {
+            replace(messageContext);
+            return;
+        }
+        try {
+            if (mongoTemplate.updateFirst(MongoMessageContextUpdates.byId(messageContext), update, messageContext.getClass(), getContextCollection(messageContext)).getMatchedCount() == 0)
+                replace(messageContext);
+        } catch (RuntimeException e) {
+            updates.invalidate(messageContext);
+            throw e;
+        }
+    }
+
+    private void replace(MessageContext messageContext) {
+        updates.invalidate(messageContext);
+        ensureExpiryIndex(getContextCollection(messageContext));
+        mongoTemplate.save(messageContext, getContextCollection(messageContext));
+        updates.register(messageContext);
+    }
+
+    @Override
+    public void saveMessageContexts(ContextType contextType, List<? extends MessageContext> messageContexts) {
+        Map<String, List<MessageContext>> messageContextsByCollection = new LinkedHashMap<>();
+        for (MessageContext messageContext : messageContexts) {
+            renewExpiry(contextType, messageContext);
+            if (messageContext.getId() == null) saveMessageContext(contextType, messageContext);
+            else messageContextsByCollection.computeIfAbsent(getContextCollection(messageContext), collection -> new ArrayList<>()).add(messageContext);
+        }
+        messageContextsByCollection.forEach((collection, collectionMessageContexts) -> {
+            ensureExpiryIndex(collection);
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collectionMessageContexts.get(0).getClass(), collection);
+            List<MessageContext> updated = new ArrayList<>();
+            List<MessageContext> replaced = new ArrayList<>();
+            for (MessageContext messageContext : collectionMessageContexts) {
+                Update update = updates.prepareUpdate(messageContext);
+                if (update == null) {
+                    bulkOperations.replaceOne(MongoMessageContextUpdates.byId(messageContext), messageContext, FindAndReplaceOptions.options().upsert());
+                    replaced.add(messageContext);
+                } else {
+                    bulkOperations.updateOne(MongoMessageContextUpdates.byId(messageContext), update);
+                    updated.add(messageContext);
+                }
+            }
+            BulkWriteResult result;
+            try {
+                result = bulkOperations.execute();
+            } catch (RuntimeException e) {
+                collectionMessageContexts.forEach(updates::invalidate);
+                throw e;
+            }
+            replaced.forEach(updates::register);
+            if (result.getMatchedCount() + result.getUpserts().size() < collectionMessageContexts.size()) updated.forEach(this::replace);
+        });
     }
 
     @Override
@@ -59,6 +191,6 @@ public class MongoPromptContextHolder implements PromptContextHolder {
             int removeIndex = Math.max(0, content.size() - n);
             content.subList(removeIndex, content.size()).clear();
         }
-        mongoTemplate.save(messageContext, messageContext.getNamespace());
+        saveMessageContext(contextType, messageContext);
     }
 }
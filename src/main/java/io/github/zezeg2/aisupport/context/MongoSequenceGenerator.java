@@ -0,0 +1,72 @@
+package io.github.zezeg2.aisupport.context;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * A sequence generator using MongoDB as a backend data store.
+ * The counters are stored in the "database_sequences" collection and reserved in blocks as described by {@link BlockSequenceGenerator}.
+ * Counters with a retention, those of temporary identifiers, carry an {@code expireAt} renewed by every reservation and enforced by a TTL index.
+ */
+public class MongoSequenceGenerator extends BlockSequenceGenerator {
+
+    /**
+     * The MongoOperations instance used for interacting with MongoDB.
+     */
+    private final MongoOperations mongoOperations;
+    private final ContextRetention retention;
+    private volatile boolean expiryIndexEnsured;
+
+    public MongoSequenceGenerator(MongoOperations mongoOperations, int blockSize) {
+        this(mongoOperations, blockSize, ContextRetention.NONE);
+    }
+
+    public MongoSequenceGenerator(MongoOperations mongoOperations, int blockSize, ContextRetention retention) {
+        super(blockSize);
+        this.mongoOperations = mongoOperations;
+        this.retention = retention;
+    }
+
+    /**
+     * Creates the update reserving a range of values, renewing the expiry of the counter when it has a retention.
+     *
+     * @param identifier The identifier associated with the sequence.
+     * @param size       The number of values to reserve.
+     * @param retention  The retention of message contexts.
+     * @return The update.
+     */
+    public static Update getReserveUpdate(String identifier, int size, ContextRetention retention) {
+        Update update = new Update().inc("seq", size);
+        Duration ttl = retention.getSequenceTtl(identifier);
+        if (!ttl.isZero()) update.set("expireAt", Instant.now().plus(ttl));
+        return update;
+    }
+
+    @Override
+    protected Duration getBlockLifetime(String seqName, String identifier) {
+        return retention.getSequenceTtl(identifier);
+    }
+
+    @Override
+    protected long reserve(String seqName, String identifier, int size) {
+        if (!expiryIndexEnsured && !retention.getSequenceTtl(identifier).isZero()) {
+            mongoOperations.indexOps(MongoCollectionSeq.class).ensureIndex(MongoPromptContextHolder.getExpiryIndex());
+            expiryIndexEnsured = true;
+        }
+        MongoCollectionSeq counter = mongoOperations.findAndModify(
+                query(where("seqName").is(seqName).and("identifier").is(identifier)),
+                getReserveUpdate(identifier, size, retention),
+                options().returnNew(true).upsert(true),
+                MongoCollectionSeq.class);
+
+        return !Objects.isNull(counter) ? counter.getSeq() : size;
+    }
+}
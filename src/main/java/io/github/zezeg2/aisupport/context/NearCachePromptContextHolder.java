@@ -0,0 +1,98 @@
+package io.github.zezeg2.aisupport.context;
+
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import io.github.zezeg2.aisupport.core.function.prompt.Prompt;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The NearCachePromptContextHolder class decorates a PromptContextHolder with an in-memory cache of prompts.
+ * Prompts are read from the delegate once per node and invalidated when the PromptChangeNotifier reports a change;
+ * message contexts are always handled by the delegate, which is closed together with this holder.
+ */
+public class NearCachePromptContextHolder implements PromptContextHolder, AutoCloseable {
+    private final PromptContextHolder delegate;
+    private final PromptChangeNotifier notifier;
+    private final Map<String, Prompt> prompts = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every invalidation, so that a prompt loaded while an invalidation arrives is not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public NearCachePromptContextHolder(PromptContextHolder delegate, PromptChangeNotifier notifier) {
+        this.delegate = delegate;
+        this.notifier = notifier;
+        notifier.subscribe(this::invalidate);
+    }
+
+    /**
+     * Invalidates the cached prompt of the given namespace.
+     *
+     * @param namespace The namespace of the prompt, or {@code null} to invalidate every cached prompt.
+     */
+    public void invalidate(String namespace) {
+        generation.incrementAndGet();
+        if (namespace == null) prompts.clear();
+        else prompts.remove(namespace);
+    }
+
+    @Override
+    public boolean contains(String namespace) {
+        return prompts.containsKey(namespace) || delegate.contains(namespace);
+    }
+
+    @Override
+    public void savePrompt(String namespace, Prompt prompt) {
+        delegate.savePrompt(namespace, prompt);
+        invalidate(namespace);
+        notifier.publish(namespace);
+    }
+
+    @Override
+    public Prompt get(String namespace) {
+        Prompt prompt = prompts.get(namespace);
+        if (prompt != null) return prompt;
+        long loadedGeneration = generation.get();
+        prompt = delegate.get(namespace);
+        if (prompt != null) {
+            prompts.put(namespace, prompt);
+            if (generation.get() != loadedGeneration) prompts.remove(namespace, prompt);
+        }
+        return prompt;
+    }
+
+    @Override
+    public <T extends MessageContext> T createMessageContext(ContextType contextType, String namespace, String identifier) {
+        return delegate.createMessageContext(contextType, namespace, identifier);
+    }
+
+    @Override
+    public void saveMessageContext(ContextType contextType, MessageContext messageContext) {
+        delegate.saveMessageContext(contextType, messageContext);
+    }
+
+    @Override
+    public void deleteMessagesFromLast(ContextType contextType, MessageContext messageContext, Integer n) {
+        delegate.deleteMessagesFromLast(contextType, messageContext, n);
+    }
+
+    @Override
+    public void close() throws IOException {
+        notifier.close();
+        if (!(delegate instanceof AutoCloseable closeable)) return;
+        try {
+            closeable.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to close the delegate holder", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.zezeg2.aisupport.context;
+
+import java.util.function.Consumer;
+
+/**
+ * The PromptChangeNotifier interface defines the contract for propagating prompt changes across application nodes,
+ * so that nodes caching prompts locally can invalidate them.
+ */
+public interface PromptChangeNotifier extends AutoCloseable {
+
+    /**
+     * Announces that the prompt of the given namespace has changed.
+     *
+     * @param namespace The namespace of the changed prompt.
+     */
+    void publish(String namespace);
+
+    /**
+     * Registers the listener receiving changed namespaces. A {@code null} namespace means that changes may have been missed
+     * and every cached prompt should be invalidated.
+     *
+     * @param listener The listener receiving changed namespaces.
+     */
+    void subscribe(Consumer<String> listener);
+
+    /**
+     * Stops listening for changes.
+     */
+    @Override
+    void close();
+}
@@ -4,6 +4,8 @@ import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
 import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
 import io.github.zezeg2.aisupport.core.function.prompt.Prompt;
 
+import java.util.List;
+
 /**
  * The PromptContextHolder interface defines the contract for managing prompt-related information in the context.
  */
@@ -51,6 +53,17 @@ public interface PromptContextHolder {
      */
     void saveMessageContext(ContextType contextType, MessageContext messageContext);
 
+    /**
+     * Saves several message contexts of the specified type.
+     * Implementations should write them in as few round trips as the store allows.
+     *
+     * @param contextType     The type of context (prompt or feedback).
+     * @param messageContexts The message contexts to save.
+     */
+    default void saveMessageContexts(ContextType contextType, List<? extends MessageContext> messageContexts) {
+        messageContexts.forEach(messageContext -> saveMessageContext(contextType, messageContext));
+    }
+
     /**
      * Deletes a specified number of messages from the end of the message context of the specified type, namespace, and identifier.
      *
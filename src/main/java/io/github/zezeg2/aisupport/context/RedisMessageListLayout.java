@@ -0,0 +1,148 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.context.codec.ContextCodec;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.*;
+
+/**
+ * The RedisMessageListLayout class describes the append-only Redis layout of message contexts.
+ * The messages of a context live in a Redis list ({@code namespace:identifier:seq:messages}), while the hash field
+ * {@code namespace:identifier -> seq} only holds the context metadata, encoded with an empty message list.
+ * <p>
+ * The layout remembers, per context, a copy of every message and the metadata written, so that a save only appends
+ * the new messages and rewrites the metadata when it changed. Contexts whose write state is unknown (e.g. evicted), or whose
+ * written messages have been replaced, are rewritten entirely. Every save is applied atomically in one round trip by {@link #SAVE_SCRIPT}.
+ */
+public class RedisMessageListLayout {
+
+    /**
+     * Applies a save: KEYS[1] is the hash, KEYS[2] the message list; ARGV[1] is the hash field, ARGV[2] the mode
+     * ({@code reset}, {@code trim} or {@code append}), ARGV[3] the length to trim to, ARGV[4] the metadata (empty when unchanged),
+     * ARGV[5] the retention of both keys in seconds (0 to keep them), and the remaining arguments are the messages to append.
+     */
+    public static final RedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>("""
+            if ARGV[2] == 'reset' or (ARGV[2] == 'trim' and tonumber(ARGV[3]) == 0) then
+                redis.call('DEL', KEYS[2])
+            elseif ARGV[2] == 'trim' then
+                redis.call('LTRIM', KEYS[2], 0, tonumber(ARGV[3]) - 1)
+            end
+            if #ARGV > 5 then
+                redis.call('RPUSH', KEYS[2], unpack(ARGV, 6))
+            end
+            if ARGV[4] ~= '' then
+                redis.call('HSET', KEYS[1], ARGV[1], ARGV[4])
+            end
+            if tonumber(ARGV[5]) > 0 then
+                redis.call('EXPIRE', KEYS[1], ARGV[5])
+                redis.call('EXPIRE', KEYS[2], ARGV[5])
+            end
+            return redis.call('LLEN', KEYS[2])
+            """, Long.class);
+
+    private static final int MAX_TRACKED_CONTEXTS = 10000;
+
+    private final ContextCodec codec;
+    private final Map<String, WriteState> writeStates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WriteState> eldest) {
+            return size() > MAX_TRACKED_CONTEXTS;
+        }
+    });
+
+    public RedisMessageListLayout(ContextCodec codec) {
+        this.codec = codec;
+    }
+
+    public static String getHashKey(MessageContext messageContext) {
+        return messageContext.getNamespace() + ":" + messageContext.getIdentifier();
+    }
+
+    public static String getListKey(MessageContext messageContext) {
+        return getHashKey(messageContext) + ":" + messageContext.getSeq() + ":messages";
+    }
+
+    /**
+     * Records that a message context has been written with the given metadata and no messages.
+     *
+     * @param messageContext The created message context.
+     * @param metadata       The encoded metadata written to the hash.
+     */
+    public void register(MessageContext messageContext, byte[] metadata) {
+        writeStates.put(getListKey(messageContext), new WriteState(List.of(), metadata));
+    }
+
+    /**
+     * Forgets the write state of a message context, so that its next save rewrites it entirely.
+     *
+     * @param messageContext The message context.
+     */
+    public void invalidate(MessageContext messageContext) {
+        writeStates.remove(getListKey(messageContext));
+    }
+
+    /**
+     * Computes the arguments of {@link #SAVE_SCRIPT} bringing the stored context up to date, and records the new write state.
+     * Callers must {@link #invalidate} the context if the script fails.
+     *
+     * @param messageContext The message context to save.
+     * @param ttl            The retention of the context in seconds, or 0 to keep it forever.
+     * @return The arguments of the save script.
+     */
+    public List<byte[]> prepareSave(MessageContext messageContext, long ttl) {
+        String listKey = getListKey(messageContext);
+        List<ChatMessage> messages = List.copyOf(messageContext.getMessages());
+        byte[] metadata = codec.encodeMetadata(messageContext);
+        List<ChatMessage> snapshot = snapshot(messages);
+        synchronized (writeStates) {
+            WriteState state = writeStates.get(listKey);
+            String mode;
+            int from;
+            int written = state == null ? 0 : state.getMessages().size();
+            int retained = Math.min(written, messages.size());
+            if (state == null || !state.getMessages().subList(0, retained).equals(snapshot.subList(0, retained))) {
+                mode = "reset";
+                from = 0;
+            } else if (messages.size() < written) {
+                mode = "trim";
+                from = messages.size();
+            } else {
+                mode = "append";
+                from = written;
+            }
+            List<byte[]> args = new ArrayList<>(5 + messages.size() - from);
+            args.add(RedisPromptContextHolder.toBytes(messageContext.getSeq()));
+            args.add(RedisPromptContextHolder.toBytes(mode));
+            args.add(RedisPromptContextHolder.toBytes(messages.size()));
+            args.add(state != null && Arrays.equals(metadata, state.getMetadata()) ? new byte[0] : metadata);
+            args.add(RedisPromptContextHolder.toBytes(ttl));
+            for (ChatMessage message : messages.subList(from, messages.size())) args.add(codec.encode(message));
+            writeStates.put(listKey, new WriteState(snapshot, metadata));
+            return args;
+        }
+    }
+
+    /**
+     * Copies chat messages, so that the written state is not changed by later updates of the messages themselves.
+     * Copies share the content strings of the messages, so they cost little more than the list.
+     */
+    private static List<ChatMessage> snapshot(List<ChatMessage> messages) {
+        List<ChatMessage> snapshot = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            snapshot.add(new ChatMessage(message.getRole(), message.getContent(), message.getName(), message.getFunctionCall()));
+        }
+        return snapshot;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class WriteState {
+        private final List<ChatMessage> messages;
+        private final byte[] metadata;
+    }
+}
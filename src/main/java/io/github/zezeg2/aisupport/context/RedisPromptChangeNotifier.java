@@ -0,0 +1,46 @@
+package io.github.zezeg2.aisupport.context;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * The RedisPromptChangeNotifier class propagates prompt changes through Redis pub/sub.
+ */
+public class RedisPromptChangeNotifier implements PromptChangeNotifier {
+    public static final String CHANNEL = "ai-supporter:prompt-changes";
+
+    private final RedisTemplate<String, String> template;
+    private final RedisMessageListenerContainer container;
+
+    public RedisPromptChangeNotifier(RedisTemplate<String, String> template) {
+        this.template = template;
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(template.getRequiredConnectionFactory());
+    }
+
+    @Override
+    public void publish(String namespace) {
+        template.convertAndSend(CHANNEL, namespace);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        container.addMessageListener((Message message, byte[] pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            throw new RuntimeException("Error stopping the prompt change listener", e);
+        }
+    }
+}
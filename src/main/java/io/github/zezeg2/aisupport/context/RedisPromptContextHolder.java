@@ -1,26 +1,115 @@
 package io.github.zezeg2.aisupport.context;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.context.codec.ContextCodec;
+import io.github.zezeg2.aisupport.context.codec.JacksonContextCodec;
 import io.github.zezeg2.aisupport.core.function.prompt.*;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The RedisPromptContextHolder class stores prompts and message contexts in Redis hashes, as binary values encoded by a {@link ContextCodec}.
+ * The prompt of a namespace is stored in the field {@code prompt} of the hash {@code namespace}, and the message contexts
+ * of an identifier in the fields named after their sequence in the hash {@code namespace:identifier}.
+ */
 public class RedisPromptContextHolder implements PromptContextHolder {
 
-    private final RedisTemplate<String, String> template;
-    private final HashOperations<String, String, String> hashOperations;
-    private final ObjectMapper mapper;
+    /**
+     * Creates a message context in one round trip: KEYS[1] is the hash {@code namespace:identifier}, ARGV[1] and ARGV[2]
+     * are the encoded context split around its sequence, and ARGV[3] the retention of the hash in seconds (0 to keep it).
+     * The next sequence is allocated with HINCRBY and the context is stored under it, and the sequence is returned.
+     */
+    public static final RedisScript<Long> CREATE_SCRIPT = new DefaultRedisScript<>("""
+            local seq = redis.call('HINCRBY', KEYS[1], 'seq', 1)
+            redis.call('HSET', KEYS[1], tostring(seq), ARGV[1] .. seq .. ARGV[2])
+            if tonumber(ARGV[3]) > 0 then
+                redis.call('EXPIRE', KEYS[1], ARGV[3])
+            end
+            return seq
+            """, Long.class);
+
+    /**
+     * Stores a message context and renews the retention of its hash in one round trip: KEYS[1] is the hash
+     * {@code namespace:identifier}, ARGV[1] the sequence, ARGV[2] the encoded context and ARGV[3] the retention in seconds.
+     */
+    public static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>("""
+            local created = redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            return created
+            """, Long.class);
+
+    private static final long SEQUENCE_PLACEHOLDER = Long.MIN_VALUE;
+
+    protected final RedisTemplate<String, byte[]> template;
+    protected final HashOperations<String, String, byte[]> hashOperations;
+    protected final ContextCodec codec;
+    protected final SequenceGenerator sequenceGenerator;
+    protected final ContextRetention retention;
 
     public RedisPromptContextHolder(RedisTemplate<String, String> template, ObjectMapper mapper) {
+        this(createTemplate(template.getRequiredConnectionFactory()), new JacksonContextCodec(mapper));
+    }
+
+    public RedisPromptContextHolder(RedisTemplate<String, byte[]> template, ContextCodec codec) {
+        this(template, codec, null, ContextRetention.NONE);
+    }
+
+    /**
+     * Constructs a RedisPromptContextHolder generating sequences with the given generator.
+     * The generator is called with the key of the context hash as the sequence name.
+     * Every write to the hash of a message context renews its expiry according to the given retention.
+     *
+     * @param template          The RedisTemplate used to store prompts and message contexts, with string keys and binary values.
+     * @param codec             The codec used to encode prompts and message contexts.
+     * @param sequenceGenerator The sequence generator, or {@code null} to allocate sequences in Redis.
+     * @param retention         The retention of message contexts.
+     */
+    public RedisPromptContextHolder(RedisTemplate<String, byte[]> template, ContextCodec codec, SequenceGenerator sequenceGenerator, ContextRetention retention) {
         this.template = template;
         this.hashOperations = template.opsForHash();
-        this.mapper = mapper;
+        this.codec = codec;
+        this.sequenceGenerator = sequenceGenerator;
+        this.retention = retention;
+    }
+
+    /**
+     * Creates a RedisTemplate with string keys and hash fields, and binary values.
+     *
+     * @param connectionFactory The Redis connection factory.
+     * @return The initialized template.
+     */
+    public static RedisTemplate<String, byte[]> createTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * Encodes a script argument as decimal text.
+     *
+     * @param value The argument.
+     * @return The UTF-8 bytes of the argument.
+     */
+    public static byte[] toBytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
     }
 
     @Override
@@ -30,48 +119,95 @@ public class RedisPromptContextHolder implements PromptContextHolder {
 
     @Override
     public void savePrompt(String namespace, Prompt prompt) {
-        try {
-            String serializedPrompt = mapper.writeValueAsString(prompt);
-            hashOperations.put(namespace, "prompt", serializedPrompt);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing the prompt", e);
-        }
+        hashOperations.put(namespace, "prompt", codec.encode(prompt));
     }
 
     @Override
     public Prompt get(String namespace) {
-        String serializedPrompt = hashOperations.get(namespace, "prompt");
-        if (serializedPrompt == null) return null;
-        try {
-            return mapper.readValue(serializedPrompt, Prompt.class);
-        } catch (IOException e) {
-            throw new RuntimeException("Error deserializing the prompt", e);
-        }
+        byte[] encodedPrompt = hashOperations.get(namespace, "prompt");
+        return encodedPrompt == null ? null : codec.decode(encodedPrompt, Prompt.class);
     }
 
+    /**
+     * Creates a message context in one round trip with {@link #CREATE_SCRIPT} when the codec can split the encoded context
+     * around its sequence, and otherwise allocates the sequence before storing the context.
+     */
     @Override
     public <T extends MessageContext> T createMessageContext(ContextType contextType, String namespace, String identifier) {
-        String[] split = namespace.split(":");
-        Long seq = hashOperations.increment(namespace + ":" + identifier, "seq", 1L);
-
-        T messageContext = (T) (contextType == ContextType.PROMPT
-                ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
-                : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
-        try {
-            hashOperations.put(namespace + ":" + identifier, String.valueOf(seq), mapper.writeValueAsString(messageContext));
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing the messages", e);
+        T messageContext = newMessageContext(contextType, namespace, identifier);
+        String hashKey = namespace + ":" + identifier;
+        long ttl = retention.getTtlSeconds(contextType, identifier);
+        if (sequenceGenerator == null) {
+            byte[][] encoded = codec.encodeAroundSequence(messageContext);
+            if (encoded != null) {
+                messageContext.setSeq(template.execute(CREATE_SCRIPT, List.of(hashKey), encoded[0], encoded[1], toBytes(ttl)));
+                return messageContext;
+            }
+            messageContext.setSeq(hashOperations.increment(hashKey, "seq", 1));
+        } else {
+            messageContext.setSeq(sequenceGenerator.generateSequence(hashKey, identifier));
         }
+        put(hashKey, messageContext.getSeq(), codec.encode(messageContext), ttl);
         return messageContext;
     }
 
+    /**
+     * Builds an empty message context whose sequence is yet to be allocated by {@link #CREATE_SCRIPT} or a sequence generator.
+     *
+     * @param contextType The type of the context.
+     * @param namespace   The namespace of the context.
+     * @param identifier  The identifier of the context.
+     * @param <T>         The type of the message context.
+     * @return The empty message context.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends MessageContext> T newMessageContext(ContextType contextType, String namespace, String identifier) {
+        String[] split = namespace.split(":");
+        return (T) (contextType == ContextType.PROMPT
+                ? PromptMessageContext.builder().seq(SEQUENCE_PLACEHOLDER).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
+                : FeedbackMessageContext.builder().seq(SEQUENCE_PLACEHOLDER).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
+    }
+
+    /**
+     * Stores an encoded message context in its hash, renewing the expiry of the hash when the retention is not zero.
+     *
+     * @param hashKey The hash {@code namespace:identifier}.
+     * @param seq     The sequence of the context.
+     * @param encoded The encoded context.
+     * @param ttl     The retention in seconds, or 0 to keep the hash forever.
+     */
+    protected void put(String hashKey, Long seq, byte[] encoded, long ttl) {
+        if (ttl == 0) hashOperations.put(hashKey, String.valueOf(seq), encoded);
+        else template.execute(PUT_SCRIPT, List.of(hashKey), toBytes(seq), encoded, toBytes(ttl));
+    }
+
     @Override
     public void saveMessageContext(ContextType contextType, MessageContext messageContext) {
-        try {
-            hashOperations.put(messageContext.getNamespace() + ":" + messageContext.getIdentifier(), String.valueOf(messageContext.getSeq()), mapper.writeValueAsString(messageContext));
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing the context messages", e);
+        put(messageContext.getNamespace() + ":" + messageContext.getIdentifier(), messageContext.getSeq(), codec.encode(messageContext),
+                retention.getTtlSeconds(contextType, messageContext.getIdentifier()));
+    }
+
+    @Override
+    public void saveMessageContexts(ContextType contextType, List<? extends MessageContext> messageContexts) {
+        List<Object[]> entries = new ArrayList<>(messageContexts.size());
+        for (MessageContext messageContext : messageContexts) {
+            entries.add(new Object[]{messageContext.getNamespace() + ":" + messageContext.getIdentifier(), String.valueOf(messageContext.getSeq()), codec.encode(messageContext),
+                    retention.getTtlSeconds(contextType, messageContext.getIdentifier())});
         }
+        template.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, byte[]> pipelinedOperations = (RedisOperations<String, byte[]>) operations;
+                HashOperations<String, String, byte[]> pipelinedHashOperations = pipelinedOperations.opsForHash();
+                for (Object[] entry : entries) {
+                    pipelinedHashOperations.put((String) entry[0], (String) entry[1], (byte[]) entry[2]);
+                    long ttl = (long) entry[3];
+                    if (ttl > 0) pipelinedOperations.expire((String) entry[0], ttl, TimeUnit.SECONDS);
+                }
+                return null;
+            }
+        });
     }
 
     @Override
@@ -81,10 +217,6 @@ public class RedisPromptContextHolder implements PromptContextHolder {
             int removeIndex = Math.max(0, content.size() - n);
             content.subList(removeIndex, content.size()).clear();
         }
-        try {
-            hashOperations.put(messageContext.getNamespace() + ":" + messageContext.getIdentifier(), String.valueOf(messageContext.getSeq()), mapper.writeValueAsString(messageContext));
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing the context messages after deletion", e);
-        }
+        saveMessageContext(contextType, messageContext);
     }
 }
@@ -0,0 +1,39 @@
+package io.github.zezeg2.aisupport.context;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * A sequence generator using Redis as a backend data store.
+ * The sequence name is the key of the hash holding the counter in its {@code seq} field, which the Redis context holders
+ * set to the hash of their message contexts, so that blocks are reserved from the same counter used by
+ * {@link RedisPromptContextHolder#CREATE_SCRIPT}. Blocks are reserved as described by {@link BlockSequenceGenerator}.
+ * The counter expires with the hash, which every write keeps for at least the shortest retention of the identifier,
+ * so blocks are given up after that retention rather than handed out from a counter another node may have restarted.
+ */
+public class RedisSequenceGenerator extends BlockSequenceGenerator {
+
+    private final RedisTemplate<String, String> template;
+    private final ContextRetention retention;
+
+    public RedisSequenceGenerator(RedisTemplate<String, String> template, int blockSize) {
+        this(template, blockSize, ContextRetention.NONE);
+    }
+
+    public RedisSequenceGenerator(RedisTemplate<String, String> template, int blockSize, ContextRetention retention) {
+        super(blockSize);
+        this.template = template;
+        this.retention = retention;
+    }
+
+    @Override
+    protected Duration getBlockLifetime(String seqName, String identifier) {
+        return retention.getShortestTtl(identifier);
+    }
+
+    @Override
+    protected long reserve(String seqName, String identifier, int size) {
+        return template.<String, String>opsForHash().increment(seqName, "seq", size);
+    }
+}
@@ -1,28 +1,11 @@
 package io.github.zezeg2.aisupport.context;
 
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.mongodb.core.MongoOperations;
-import org.springframework.data.mongodb.core.query.Update;
-import org.springframework.stereotype.Component;
-
-import java.util.Objects;
-
-import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
-import static org.springframework.data.mongodb.core.query.Criteria.where;
-import static org.springframework.data.mongodb.core.query.Query.query;
-
 /**
- * A utility class for generating sequences using MongoDB as a backend data store.
- * This class is responsible for generating unique identifiers based on the provided sequence name and identifier.
+ * The SequenceGenerator interface provides the sequences that identify message contexts sharing a namespace and an identifier.
+ * Implementations must never return the same sequence twice for a sequence name and identifier, across all nodes sharing a context store.
+ * Sequences are not required to be contiguous.
  */
-@Component
-@RequiredArgsConstructor
-public class SequenceGenerator {
-
-    /**
-     * The MongoOperations instance used for interacting with MongoDB.
-     */
-    private final MongoOperations mongoOperations;
+public interface SequenceGenerator {
 
     /**
      * Generates and returns the next value in the specified sequence for the given identifier.
@@ -31,14 +14,5 @@ public class SequenceGenerator {
      * @param identifier The identifier associated with the sequence.
      * @return The next value in the sequence.
      */
-    public long generateSequence(String seqName, String identifier) {
-        MongoCollectionSeq counter = mongoOperations.findAndModify(
-                query(where("seqName").is(seqName).and("identifier").is(identifier)),
-                new Update().inc("seq", 1),
-                options().returnNew(true).upsert(true),
-                MongoCollectionSeq.class);
-
-        return !Objects.isNull(counter) ? counter.getSeq() : 1;
-    }
+    long generateSequence(String seqName, String identifier);
 }
-
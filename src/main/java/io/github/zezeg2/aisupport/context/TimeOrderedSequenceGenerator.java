@@ -0,0 +1,48 @@
+package io.github.zezeg2.aisupport.context;
+
+/**
+ * The TimeOrderedSequenceGenerator class generates time-ordered sequences locally, without any round trip to a backend.
+ * A sequence packs the milliseconds elapsed since 2023-01-01T00:00:00Z (41 bits), the node id (10 bits) and a per-millisecond
+ * counter (12 bits). Sequences of a node are strictly increasing, even if the clock moves backwards, and sequences of nodes
+ * with distinct node ids never collide, so every node sharing a context store must be given its own node id.
+ */
+public class TimeOrderedSequenceGenerator implements SequenceGenerator {
+
+    private static final long EPOCH = 1672531200000L;
+    private static final int NODE_ID_BITS = 10;
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    /**
+     * The highest node id that can be configured.
+     */
+    public static final int MAX_NODE_ID = (1 << NODE_ID_BITS) - 1;
+
+    private final long nodeId;
+    private long lastTimestamp = -1;
+    private long counter;
+
+    /**
+     * Constructs a TimeOrderedSequenceGenerator with the given node id.
+     *
+     * @param nodeId The node id between 0 and {@link #MAX_NODE_ID}.
+     * @throws IllegalArgumentException if the node id is out of range.
+     */
+    public TimeOrderedSequenceGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) throw new IllegalArgumentException("nodeId must be between 0 and " + MAX_NODE_ID);
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public synchronized long generateSequence(String seqName, String identifier) {
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+        if (timestamp == lastTimestamp) {
+            counter = (counter + 1) & COUNTER_MASK;
+            if (counter == 0) timestamp++;
+        } else {
+            counter = 0;
+        }
+        lastTimestamp = timestamp;
+        return ((timestamp - EPOCH) << (NODE_ID_BITS + COUNTER_BITS)) | (nodeId << COUNTER_BITS) | counter;
+    }
+}
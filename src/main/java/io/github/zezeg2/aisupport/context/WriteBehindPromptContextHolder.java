@@ -0,0 +1,161 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.config.properties.WriteBehindProperties;
+import io.github.zezeg2.aisupport.core.function.prompt.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WriteBehindPromptContextHolder class decorates a PromptContextHolder to buffer message context writes.
+ * Saved message contexts are coalesced per context, so only their latest state is written,
+ * and they are flushed in batches through {@link PromptContextHolder#saveMessageContexts} when the flush interval elapses
+ * or the batch size is reached. When the buffer is full, the writing thread flushes synchronously.
+ * Closing the holder flushes the remaining writes.
+ * <p>
+ * Executions never read message contexts back from the store, so buffering does not change their results;
+ * only the persisted history lags behind by up to the flush interval.
+ */
+@Slf4j
+public class WriteBehindPromptContextHolder implements PromptContextHolder, AutoCloseable {
+    private final PromptContextHolder delegate;
+    private final int batchSize;
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+    private Map<String, PendingWrite> pending = new LinkedHashMap<>();
+
+    public WriteBehindPromptContextHolder(PromptContextHolder delegate, WriteBehindProperties properties) {
+        this(delegate, Duration.ofMillis(properties.getFlushInterval()), properties.getBatchSize(), properties.getMaxPending());
+    }
+
+    public WriteBehindPromptContextHolder(PromptContextHolder delegate, Duration flushInterval, int batchSize, int maxPending) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "context-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean contains(String namespace) {
+        return delegate.contains(namespace);
+    }
+
+    @Override
+    public void savePrompt(String namespace, Prompt prompt) {
+        delegate.savePrompt(namespace, prompt);
+    }
+
+    @Override
+    public Prompt get(String namespace) {
+        return delegate.get(namespace);
+    }
+
+    @Override
+    public <T extends MessageContext> T createMessageContext(ContextType contextType, String namespace, String identifier) {
+        return delegate.createMessageContext(contextType, namespace, identifier);
+    }
+
+    @Override
+    public void saveMessageContext(ContextType contextType, MessageContext messageContext) {
+        int size = enqueue(contextType, messageContext);
+        if (size >= maxPending) flush();
+        else if (size == batchSize) scheduler.execute(this::flushQuietly);
+    }
+
+    @Override
+    public void deleteMessagesFromLast(ContextType contextType, MessageContext messageContext, Integer n) {
+        List<ChatMessage> content = messageContext.getMessages();
+        if (!content.isEmpty()) {
+            int removeIndex = Math.max(0, content.size() - n);
+            content.subList(removeIndex, content.size()).clear();
+        }
+        saveMessageContext(contextType, messageContext);
+    }
+
+    /**
+     * Writes all buffered message contexts to the delegate, one batch per context type.
+     * Flushes are serialized, so a later state of a context is never overwritten by an earlier one.
+     * Message contexts that fail to be written are buffered again unless a newer state has been saved meanwhile.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, PendingWrite> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+            Map<ContextType, List<MessageContext>> batchByType = new EnumMap<>(ContextType.class);
+            batch.values().forEach(write -> batchByType.computeIfAbsent(write.getContextType(), type -> new ArrayList<>()).add(write.getMessageContext()));
+            try {
+                batchByType.forEach(delegate::saveMessageContexts);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    batch.forEach(pending::putIfAbsent);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush buffered message contexts, retrying on the next flush.", e);
+        }
+    }
+
+    private synchronized int enqueue(ContextType contextType, MessageContext messageContext) {
+        String key = contextType + ":" + messageContext.getNamespace() + ":" + messageContext.getIdentifier() + ":" + messageContext.getSeq();
+        pending.put(key, new PendingWrite(contextType, snapshot(messageContext)));
+        return pending.size();
+    }
+
+    /**
+     * Copies the mutable parts of a message context, so that it can be serialized while the execution keeps adding messages.
+     */
+    private static MessageContext snapshot(MessageContext messageContext) {
+        if (messageContext instanceof PromptMessageContext context) {
+            return new PromptMessageContext(context.getId(), context.getSeq(), context.getIdentifier(), context.getFunctionName(), context.getUserInput(),
+                    new ArrayList<>(context.getMessages()), context.getModel(), context.getUsage(), new ArrayList<>(context.getFeedbackMessageContexts()));
+        }
+        if (messageContext instanceof FeedbackMessageContext context) {
+            return new FeedbackMessageContext(context.getId(), context.getSeq(), context.getIdentifier(), context.getFunctionName(), context.getValidatorName(),
+                    context.getUserInput(), new ArrayList<>(context.getMessages()), context.getModel(), context.getUsage());
+        }
+        return messageContext;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class PendingWrite {
+        private final ContextType contextType;
+        private final MessageContext messageContext;
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.zezeg2.aisupport.context.codec;
+
+import io.github.zezeg2.aisupport.config.properties.Compression;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The CompressingContextCodec class compresses the values encoded by another codec once they reach a size threshold.
+ * <p>
+ * A compressed value starts with a header byte naming the compression algorithm, followed by the encoded length as a 4-byte integer
+ * and the compressed bytes. A value below the threshold, or one that does not shrink, is stored exactly as encoded. Encoded values
+ * never start with a header byte, since JSON, Smile and CBOR documents start with a printable character or a CBOR major type,
+ * so values of any size are decoded whatever the configured algorithm, including the values stored before compression was enabled.
+ * The values encoded by the delegate must therefore not start with the bytes {@code 0} to {@code 2}, and are rejected if they do.
+ */
+public class CompressingContextCodec implements ContextCodec {
+    private static final byte DEFLATE = 1;
+    private static final byte LZ4 = 2;
+    private static final int HEADER_SIZE = 5;
+    private static final int MAX_SEQUENCE_DIGITS = 20;
+
+    private final ContextCodec delegate;
+    private final Compression compression;
+    private final int threshold;
+    private final LZ4Compressor lz4Compressor;
+    private final LZ4FastDecompressor lz4Decompressor;
+
+    /**
+     * Constructs a CompressingContextCodec.
+     *
+     * @param delegate    The codec encoding values before compression.
+     * @param compression The compression algorithm.
+     * @param threshold   The encoded size in bytes from which values are compressed.
+     */
+    public CompressingContextCodec(ContextCodec delegate, Compression compression, int threshold) {
+        this.delegate = delegate;
+        this.compression = compression;
+        this.threshold = threshold;
+        LZ4Factory lz4Factory = LZ4Factory.fastestInstance();
+        this.lz4Compressor = lz4Factory.fastCompressor();
+        this.lz4Decompressor = lz4Factory.fastDecompressor();
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return compress(delegate.encode(value));
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        return delegate.decode(decompress(bytes), type);
+    }
+
+    @Override
+    public byte[] encodeMetadata(MessageContext messageContext) {
+        return compress(delegate.encodeMetadata(messageContext));
+    }
+
+    /**
+     * Splits the encoded context as the delegate does when it is stored uncompressed, which is the case of new contexts
+     * unless the threshold is smaller than their metadata.
+     */
+    @Override
+    public byte[][] encodeAroundSequence(MessageContext messageContext) {
+        byte[][] parts = delegate.encodeAroundSequence(messageContext);
+        if (parts == null || (compression != Compression.NONE && parts[0].length + parts[1].length + MAX_SEQUENCE_DIGITS >= threshold)) return null;
+        return parts;
+    }
+
+    private byte[] compress(byte[] encoded) {
+        if (encoded.length > 0 && encoded[0] >= 0 && encoded[0] <= LZ4) throw new IllegalStateException("Encoded value starts with a compression header byte");
+        byte[] compressed = encoded.length < threshold ? null : switch (compression) {
+            case NONE -> null;
+            case DEFLATE -> deflate(encoded);
+            case LZ4 -> lz4(encoded);
+        };
+        return compressed == null || compressed.length >= encoded.length ? encoded : compressed;
+    }
+
+    private byte[] deflate(byte[] encoded) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(encoded);
+            deflater.finish();
+            byte[] buffer = new byte[HEADER_SIZE + encoded.length];
+            int length = HEADER_SIZE;
+            while (!deflater.finished() && length < buffer.length) length += deflater.deflate(buffer, length, buffer.length - length);
+            if (!deflater.finished()) return null;
+            ByteBuffer.wrap(buffer).put(DEFLATE).putInt(encoded.length);
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] lz4(byte[] encoded) {
+        byte[] buffer = new byte[HEADER_SIZE + lz4Compressor.maxCompressedLength(encoded.length)];
+        int length = lz4Compressor.compress(encoded, 0, encoded.length, buffer, HEADER_SIZE);
+        ByteBuffer.wrap(buffer).put(LZ4).putInt(encoded.length);
+        return Arrays.copyOf(buffer, HEADER_SIZE + length);
+    }
+
+    private byte[] decompress(byte[] bytes) {
+        if (bytes.length == 0) throw new IllegalArgumentException("Empty encoded value");
+        if (bytes[0] != DEFLATE && bytes[0] != LZ4) return bytes;
+        if (bytes.length < HEADER_SIZE) throw new IllegalArgumentException("Truncated compressed value");
+        int length = ByteBuffer.wrap(bytes, 1, 4).getInt();
+        byte[] encoded = new byte[length];
+        if (bytes[0] == LZ4) {
+            lz4Decompressor.decompress(bytes, HEADER_SIZE, encoded, 0, length);
+            return encoded;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int inflated = inflater.inflate(encoded, read, length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) throw new DataFormatException("Truncated value");
+                read += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new RuntimeException("Error decompressing the value", e);
+        } finally {
+            inflater.end();
+        }
+        return encoded;
+    }
+}
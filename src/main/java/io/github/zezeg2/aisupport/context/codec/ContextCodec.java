@@ -0,0 +1,47 @@
+package io.github.zezeg2.aisupport.context.codec;
+
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+
+/**
+ * The ContextCodec interface defines how prompts, message contexts and chat messages are encoded into the binary values
+ * stored by the redis contexts, and decoded back.
+ */
+public interface ContextCodec {
+
+    /**
+     * Encodes a value.
+     *
+     * @param value The value to encode.
+     * @return The encoded value.
+     */
+    byte[] encode(Object value);
+
+    /**
+     * Decodes a value.
+     *
+     * @param bytes The encoded value.
+     * @param type  The type of the value.
+     * @param <T>   The type of the value.
+     * @return The decoded value.
+     */
+    <T> T decode(byte[] bytes, Class<T> type);
+
+    /**
+     * Encodes the metadata of a message context, that is the context with an empty message list.
+     *
+     * @param messageContext The message context.
+     * @return The encoded metadata.
+     */
+    byte[] encodeMetadata(MessageContext messageContext);
+
+    /**
+     * Encodes a message context and splits the result around its sequence, so that a script can insert another sequence
+     * as decimal text. Formats that do not encode numbers as text cannot be split.
+     *
+     * @param messageContext The message context.
+     * @return The encoded context before and after its sequence, or {@code null} when the format cannot be split.
+     */
+    default byte[][] encodeAroundSequence(MessageContext messageContext) {
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.zezeg2.aisupport.context.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import io.github.zezeg2.aisupport.config.properties.CodecFormat;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The JacksonContextCodec class encodes values with an ObjectMapper, in JSON or in the binary format of its factory.
+ * Decoding ignores unknown properties, such as the derived namespace of serialized message contexts.
+ * The format of a value is detected when it is decoded, from the Smile header, the opening bracket of a JSON document or the
+ * major type of a CBOR map, so that the values stored before the format was changed remain readable.
+ */
+public class JacksonContextCodec implements ContextCodec {
+    private static final Pattern SEQUENCE_PROPERTY = Pattern.compile("(\"seq\"\\s*:\\s*)(-?\\d+)");
+
+    private final ObjectMapper mapper;
+    private final boolean textual;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper cborMapper;
+
+    public JacksonContextCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.textual = JsonFactory.FORMAT_NAME_JSON.equals(mapper.getFactory().getFormatName());
+        this.jsonMapper = textual ? mapper : mapper.copyWith(new JsonFactory());
+        this.smileMapper = mapper.getFactory() instanceof SmileFactory ? mapper : mapper.copyWith(new SmileFactory());
+        this.cborMapper = mapper.getFactory() instanceof CBORFactory ? mapper : mapper.copyWith(new CBORFactory());
+    }
+
+    /**
+     * Creates a codec encoding values in the given format, with the configuration of the given mapper.
+     *
+     * @param mapper The ObjectMapper whose configuration and modules are used.
+     * @param format The format of encoded values.
+     * @return The codec.
+     */
+    public static JacksonContextCodec of(ObjectMapper mapper, CodecFormat format) {
+        return new JacksonContextCodec(switch (format) {
+            case JSON -> mapper;
+            case SMILE -> mapper.copyWith(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build());
+            case CBOR -> mapper.copyWith(new CBORFactory());
+        });
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Error encoding the value", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        try {
+            return detect(bytes).readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readValue(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Error decoding the value", e);
+        }
+    }
+
+    /**
+     * Detects the format of an encoded value, falling back to the format of this codec.
+     */
+    private ObjectMapper detect(byte[] bytes) {
+        if (bytes.length >= 3 && bytes[0] == ':' && bytes[1] == ')' && bytes[2] == '\n') return smileMapper;
+        int i = 0;
+        while (i < bytes.length && Character.isWhitespace(bytes[i])) i++;
+        if (i < bytes.length && (bytes[i] == '{' || bytes[i] == '[' || bytes[i] == '"')) return jsonMapper;
+        if (bytes.length > 0 && (bytes[0] & 0xE0) == 0xA0) return cborMapper;
+        return mapper;
+    }
+
+    @Override
+    public byte[] encodeMetadata(MessageContext messageContext) {
+        ObjectNode node = mapper.valueToTree(messageContext);
+        node.putArray("messages");
+        return encode(node);
+    }
+
+    @Override
+    public byte[][] encodeAroundSequence(MessageContext messageContext) {
+        if (!textual) return null;
+        String encoded = new String(encode(messageContext), StandardCharsets.UTF_8);
+        Matcher matcher = SEQUENCE_PROPERTY.matcher(encoded);
+        String seq = String.valueOf(messageContext.getSeq());
+        while (matcher.find()) {
+            if (matcher.group(2).equals(seq))
+                return new byte[][]{encoded.substring(0, matcher.end(1)).getBytes(StandardCharsets.UTF_8), encoded.substring(matcher.end()).getBytes(StandardCharsets.UTF_8)};
+        }
+        throw new IllegalStateException("Sequence not found in the encoded message context");
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.context.ContextRetention;
+import io.github.zezeg2.aisupport.context.RedisMessageListLayout;
+import io.github.zezeg2.aisupport.context.codec.ContextCodec;
+import io.github.zezeg2.aisupport.context.codec.JacksonContextCodec;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The ReactiveAppendOnlyRedisPromptContextHolder class stores message contexts in the append-only layout described by
+ * {@link RedisMessageListLayout} in a reactive manner: saving a context appends its new messages to a Redis list
+ * instead of rewriting the whole serialized context.
+ */
+public class ReactiveAppendOnlyRedisPromptContextHolder extends ReactiveRedisPromptContextHolder {
+    private final RedisMessageListLayout layout;
+
+    public ReactiveAppendOnlyRedisPromptContextHolder(ReactiveRedisTemplate<String, String> template, ObjectMapper mapper) {
+        this(createTemplate(template.getConnectionFactory()), new JacksonContextCodec(mapper));
+    }
+
+    public ReactiveAppendOnlyRedisPromptContextHolder(ReactiveRedisTemplate<String, byte[]> template, ContextCodec codec) {
+        this(template, codec, null, ContextRetention.NONE);
+    }
+
+    public ReactiveAppendOnlyRedisPromptContextHolder(ReactiveRedisTemplate<String, byte[]> template, ContextCodec codec, ReactiveSequenceGenerator sequenceGenerator, ContextRetention retention) {
+        super(template, codec, sequenceGenerator, retention);
+        this.layout = new RedisMessageListLayout(codec);
+    }
+
+    @Override
+    public <T extends MessageContext> Mono<T> createMessageContext(ContextType contextType, String namespace, String identifier) {
+        return super.<T>createMessageContext(contextType, namespace, identifier)
+                .doOnNext(messageContext -> layout.register(messageContext, codec.encodeMetadata(messageContext)));
+    }
+
+    @Override
+    public Mono<Void> saveMessageContext(ContextType contextType, MessageContext messageContext) {
+        return Mono.defer(() -> template.execute(RedisMessageListLayout.SAVE_SCRIPT,
+                        List.of(RedisMessageListLayout.getHashKey(messageContext), RedisMessageListLayout.getListKey(messageContext)),
+                        layout.prepareSave(messageContext, retention.getTtlSeconds(contextType, messageContext.getIdentifier())))
+                .doOnError(e -> layout.invalidate(messageContext))
+                .then());
+    }
+
+    @Override
+    public Mono<Void> deleteMessagesFromLast(ContextType contextType, MessageContext messageContext, Integer n) {
+        return Mono.defer(() -> {
+            List<ChatMessage> messageList = messageContext.getMessages();
+            int removeIndex = Math.max(0, messageList.size() - n);
+            messageList.subList(removeIndex, messageList.size()).clear();
+            return saveMessageContext(contextType, messageContext);
+        });
+    }
+}
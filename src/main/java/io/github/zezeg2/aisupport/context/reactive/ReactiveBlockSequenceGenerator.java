@@ -0,0 +1,96 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ReactiveBlockSequenceGenerator class generates sequences from blocks reserved in a shared counter (hi/lo allocation) in a reactive manner.
+ * A block of {@code blockSize} values is reserved with a single increment of the counter, and its values are then emitted
+ * without a round trip to the backend.
+ * A block is given up once it outlives the lifetime told by {@link #getBlockLifetime}, after which the counter may have expired
+ * and restarted from zero on another node. When concurrent subscribers reserve blocks for the same sequence at once, only one
+ * of the blocks is kept and the others only yield their first value. A block size of 1 reserves every value individually.
+ */
+public abstract class ReactiveBlockSequenceGenerator implements ReactiveSequenceGenerator {
+
+    private static final int MAX_TRACKED_SEQUENCES = 10000;
+
+    private final int blockSize;
+    private final Map<String, Block> blocks = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Block> eldest) {
+            return size() > MAX_TRACKED_SEQUENCES;
+        }
+    });
+
+    protected ReactiveBlockSequenceGenerator(int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize must be greater than 0");
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Reserves a range of values by incrementing the shared counter of the sequence.
+     *
+     * @param seqName    The name of the sequence.
+     * @param identifier The identifier associated with the sequence.
+     * @param size       The number of values to reserve.
+     * @return A Mono emitting the value of the counter after the increment, that is the highest reserved value.
+     */
+    protected abstract Mono<Long> reserve(String seqName, String identifier, int size);
+
+    /**
+     * Gets how long a reserved block may be used, that is how long its counter is known to exist after the reservation.
+     *
+     * @param seqName    The name of the sequence.
+     * @param identifier The identifier associated with the sequence.
+     * @return The lifetime of a block, or zero to use blocks until they are exhausted.
+     */
+    protected Duration getBlockLifetime(String seqName, String identifier) {
+        return Duration.ZERO;
+    }
+
+    @Override
+    public Mono<Long> generateSequence(String seqName, String identifier) {
+        if (blockSize == 1) return reserve(seqName, identifier, 1);
+        return Mono.defer(() -> {
+            Block block = blocks.computeIfAbsent(seqName + ":" + identifier, key -> new Block());
+            synchronized (block) {
+                if (!block.isExhausted()) return Mono.just(block.next++);
+            }
+            Duration lifetime = getBlockLifetime(seqName, identifier);
+            long reservedAt = System.nanoTime();
+            return reserve(seqName, identifier, blockSize).map(max -> {
+                long first = max - blockSize + 1;
+                synchronized (block) {
+                    if (block.isExhausted()) {
+                        block.reserved(max, blockSize, lifetime, reservedAt);
+                        block.next++;
+                    }
+                }
+                return first;
+            });
+        });
+    }
+
+    private static class Block {
+        private long next = 1;
+        private long max = 0;
+        private long expiresAt;
+        private boolean expiring;
+
+        private boolean isExhausted() {
+            return next > max || (expiring && System.nanoTime() - expiresAt >= 0);
+        }
+
+        private void reserved(long max, int blockSize, Duration lifetime, long reservedAt) {
+            this.max = max;
+            this.next = max - blockSize + 1;
+            this.expiring = !lifetime.isZero();
+            this.expiresAt = reservedAt + lifetime.toNanos();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.context.MappedContextLog;
+import io.github.zezeg2.aisupport.core.function.prompt.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ReactiveFilePromptContextHolder class persists prompts and message contexts on the local disk in a {@link MappedContextLog}
+ * in a reactive manner. Log operations may touch the file system, so they run on the bounded elastic scheduler.
+ */
+public class ReactiveFilePromptContextHolder implements ReactivePromptContextHolder, AutoCloseable {
+    private final MappedContextLog contextLog;
+
+    public ReactiveFilePromptContextHolder(MappedContextLog contextLog) {
+        this.contextLog = contextLog;
+    }
+
+    @Override
+    public Mono<Boolean> contains(String namespace) {
+        return Mono.fromSupplier(() -> contextLog.containsPrompt(namespace));
+    }
+
+    @Override
+    public Mono<Void> savePrompt(String namespace, Prompt prompt) {
+        return Mono.<Void>fromRunnable(() -> contextLog.writePrompt(namespace, prompt)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Prompt> get(String namespace) {
+        return Mono.fromSupplier(() -> contextLog.readPrompt(namespace)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public <T extends MessageContext> Mono<T> createMessageContext(ContextType contextType, String namespace, String identifier) {
+        return Mono.fromSupplier(() -> {
+            String[] split = namespace.split(":");
+            long seq = contextLog.nextSequence();
+            T messageContext = (T) (contextType == ContextType.PROMPT
+                    ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
+                    : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
+            contextLog.writeContexts(contextType, List.of(messageContext));
+            return messageContext;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> saveMessageContext(ContextType contextType, MessageContext messageContext) {
+        return Mono.<Void>fromRunnable(() -> contextLog.writeContexts(contextType, List.of(messageContext))).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> deleteMessagesFromLast(ContextType contextType, MessageContext messageContext, Integer n) {
+        return Mono.defer(() -> {
+            List<ChatMessage> messageList = messageContext.getMessages();
+            if (!messageList.isEmpty()) {
+                int removeIndex = Math.max(0, messageList.size() - n);
+                messageList.subList(removeIndex, messageList.size()).clear();
+            }
+            return saveMessageContext(contextType, messageContext);
+        });
+    }
+
+    /**
+     * Reads the latest saved state of a message context, including contexts saved before a restart.
+     *
+     * @param contextType The type of the context.
+     * @param namespace   The namespace of the context.
+     * @param identifier  The identifier of the context.
+     * @param seq         The sequence of the context.
+     * @param <T>         The type of the message context.
+     * @return A Mono emitting the message context, or an empty Mono if it was never saved.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends MessageContext> Mono<T> getMessageContext(ContextType contextType, String namespace, String identifier, Long seq) {
+        return Mono.fromSupplier(() -> (T) contextLog.readContext(contextType, namespace, identifier, seq)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public void close() throws IOException {
+        contextLog.close();
+    }
+}
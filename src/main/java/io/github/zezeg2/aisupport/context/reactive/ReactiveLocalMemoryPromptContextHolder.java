@@ -1,18 +1,32 @@
 package io.github.zezeg2.aisupport.context.reactive;
 
 import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.config.properties.LocalContextProperties;
+import io.github.zezeg2.aisupport.context.LocalContextStatistics;
+import io.github.zezeg2.aisupport.context.LocalMessageContextStore;
 import io.github.zezeg2.aisupport.core.function.prompt.*;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * The ReactiveLocalMemoryPromptContextHolder class keeps prompts and message contexts in process memory in a reactive manner.
+ * Message contexts are kept in a {@link LocalMessageContextStore}, which bounds them by count, weight and time to live.
+ */
 public class ReactiveLocalMemoryPromptContextHolder implements ReactivePromptContextHolder {
     private static final Map<String, Prompt> PROMPT_REGISTRY = new ConcurrentHashMap<>();
-    private static final Map<ContextType, Map<String, CopyOnWriteArrayList<MessageContext>>> contextRegistry =
-            new ConcurrentHashMap<>(Map.of(ContextType.PROMPT, new ConcurrentHashMap<>(), ContextType.FEEDBACK, new ConcurrentHashMap<>()));
+    private final LocalMessageContextStore store;
+
+    public ReactiveLocalMemoryPromptContextHolder() {
+        this(new LocalMessageContextStore(new LocalContextProperties()));
+    }
+
+    public ReactiveLocalMemoryPromptContextHolder(LocalMessageContextStore store) {
+        this.store = store;
+    }
 
     @Override
     public Mono<Boolean> contains(String namespace) {
@@ -31,31 +45,25 @@ public class ReactiveLocalMemoryPromptContextHolder implements ReactivePromptCon
 
     @Override
     public <T extends MessageContext> Mono<T> createMessageContext(ContextType contextType, String namespace, String identifier) {
-        return Mono.defer(() -> {
-            Map<String, CopyOnWriteArrayList<MessageContext>> selectedRegistry = contextRegistry.get(contextType);
-            if (!selectedRegistry.containsKey(namespace + ":" + identifier))
-                selectedRegistry.put(namespace, new CopyOnWriteArrayList<>());
+        return Mono.fromSupplier(() -> {
             String[] split = namespace.split(":");
-            CopyOnWriteArrayList<MessageContext> messageContextList = selectedRegistry.get(namespace + ":" + identifier);
-            Long seq = (long) messageContextList.size();
+            long seq = store.nextSequence();
 
             T messageContext = (T) (contextType == ContextType.PROMPT
-                    ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new CopyOnWriteArrayList<>()).build()
-                    : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new CopyOnWriteArrayList<>()).build());
+                    ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
+                    : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
 
-            messageContextList.add(messageContext);
-            return Mono.just(messageContext);
+            store.put(contextType, messageContext);
+            return messageContext;
         });
     }
 
     @Override
     public Mono<Void> saveMessageContext(ContextType contextType, MessageContext messageContext) {
-        return Mono.defer(() -> {
-            MessageContext origin = contextRegistry.get(contextType).get(messageContext.getNamespace() + ":" + messageContext.getIdentifier()).stream()
-                    .filter(ctx -> ctx.getSeq().equals(messageContext.getSeq()))
-                    .findFirst().orElseThrow();
-            origin.setMessages(messageContext.getMessages());
-            return Mono.empty();
+        return Mono.fromRunnable(() -> {
+            MessageContext origin = store.get(contextType, messageContext.getNamespace(), messageContext.getIdentifier(), messageContext.getSeq());
+            if (origin != null && origin != messageContext) origin.setMessages(messageContext.getMessages());
+            store.put(contextType, origin == null ? messageContext : origin);
         });
     }
 
@@ -67,7 +75,16 @@ public class ReactiveLocalMemoryPromptContextHolder implements ReactivePromptCon
                 int removeIndex = Math.max(0, messageList.size() - n);
                 messageList.subList(removeIndex, messageList.size()).clear();
             }
-            return Mono.empty();
+            return saveMessageContext(contextType, messageContext);
         });
     }
+
+    /**
+     * Gets a snapshot of the size and eviction counts of the message contexts kept by this holder.
+     *
+     * @return The statistics of the message context store.
+     */
+    public LocalContextStatistics getStatistics() {
+        return store.getStatistics();
+    }
 }
@@ -0,0 +1,49 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import io.github.zezeg2.aisupport.context.MongoPromptChangeNotifier;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The ReactiveMongoPromptChangeNotifier class detects prompt changes with a change stream on the database in a reactive manner.
+ * Publishing is a no-op because the write itself is the event. Since a Flux cannot emit {@code null}, a change of every prompt
+ * (e.g. a drop of the consolidated prompt collection) terminates the stream with an error, upon which subscribers invalidate
+ * every cached prompt and subscribe again.
+ *
+ * @see MongoPromptChangeNotifier
+ */
+public class ReactiveMongoPromptChangeNotifier implements ReactivePromptChangeNotifier {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String promptCollection;
+
+    public ReactiveMongoPromptChangeNotifier(ReactiveMongoTemplate mongoTemplate) {
+        this(mongoTemplate, null);
+    }
+
+    /**
+     * Creates a notifier watching the given prompt collection.
+     *
+     * @param mongoTemplate    The reactive mongo template.
+     * @param promptCollection The collection storing every prompt, or {@code null} when each namespace has its own collection.
+     */
+    public ReactiveMongoPromptChangeNotifier(ReactiveMongoTemplate mongoTemplate, String promptCollection) {
+        this.mongoTemplate = mongoTemplate;
+        this.promptCollection = promptCollection;
+    }
+
+    @Override
+    public Mono<Void> publish(String namespace) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Flux<String> changes() {
+        return mongoTemplate.getMongoDatabase()
+                .flatMapMany(database -> Flux.from(database.watch(MongoPromptChangeNotifier.getPipeline(promptCollection))))
+                .concatMap(change -> {
+                    String namespace = MongoPromptChangeNotifier.getChangedNamespace(change, promptCollection);
+                    return namespace == null ? Flux.error(new IllegalStateException("Every prompt may have changed")) : Flux.just(namespace);
+                });
+    }
+}
@@ -1,39 +1,108 @@
 package io.github.zezeg2.aisupport.context.reactive;
 
 import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.config.properties.MongoSchema;
+import io.github.zezeg2.aisupport.context.ContextRetention;
+import io.github.zezeg2.aisupport.context.MongoMessageContextUpdates;
+import io.github.zezeg2.aisupport.context.MongoPromptContextHolder;
 import io.github.zezeg2.aisupport.core.function.prompt.*;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The ReactiveMongoPromptContextHolder class stores prompts and message contexts in MongoDB in a reactive manner,
+ * following the configured {@link MongoSchema} as described by {@link MongoPromptContextHolder}. Message contexts are saved
+ * entirely when created, and then brought up to date with targeted updates computed by {@link MongoMessageContextUpdates}, so that the write cost does not grow with the history of a context.
+ */
 public class ReactiveMongoPromptContextHolder implements ReactivePromptContextHolder {
 
     private final ReactiveMongoTemplate reactiveMongoTemplate;
 
     private final ReactiveSequenceGenerator sequenceGenerator;
 
+    private final MongoMessageContextUpdates updates = new MongoMessageContextUpdates();
+
+    private final boolean consolidated;
+
+    /**
+     * Completes once the index of the consolidated context collection exists; message contexts are only created after it.
+     */
+    private final Mono<Void> contextIndex;
+
+    private final ContextRetention retention;
+
+    /**
+     * The completion of the TTL index creation, per collection contexts are written to.
+     */
+    private final Map<String, Mono<Void>> expiryIndexes = new ConcurrentHashMap<>();
+
     public ReactiveMongoPromptContextHolder(ReactiveMongoTemplate reactiveMongoTemplate, ReactiveSequenceGenerator sequenceGenerator) {
+        this(reactiveMongoTemplate, sequenceGenerator, MongoSchema.COLLECTION_PER_NAMESPACE);
+    }
+
+    public ReactiveMongoPromptContextHolder(ReactiveMongoTemplate reactiveMongoTemplate, ReactiveSequenceGenerator sequenceGenerator, MongoSchema schema) {
+        this(reactiveMongoTemplate, sequenceGenerator, schema, ContextRetention.NONE);
+    }
+
+    public ReactiveMongoPromptContextHolder(ReactiveMongoTemplate reactiveMongoTemplate, ReactiveSequenceGenerator sequenceGenerator, MongoSchema schema, ContextRetention retention) {
         this.reactiveMongoTemplate = reactiveMongoTemplate;
         this.sequenceGenerator = sequenceGenerator;
+        this.consolidated = schema == MongoSchema.CONSOLIDATED;
+        this.retention = retention;
+        this.contextIndex = consolidated
+                ? reactiveMongoTemplate.indexOps(MongoPromptContextHolder.CONTEXT_COLLECTION).ensureIndex(MongoPromptContextHolder.getContextIndex()).then().transform(ReactiveMongoPromptContextHolder::cacheSuccess)
+                : Mono.empty();
+    }
+
+    private Mono<Void> ensureExpiryIndex(String collection) {
+        if (!retention.isEnabled()) return Mono.empty();
+        return expiryIndexes.computeIfAbsent(collection,
+                c -> reactiveMongoTemplate.indexOps(c).ensureIndex(MongoPromptContextHolder.getExpiryIndex()).then().transform(ReactiveMongoPromptContextHolder::cacheSuccess));
+    }
+
+    /**
+     * Caches the completion of an index creation, but not its failure, so that a failed creation is retried by the next write.
+     */
+    private static Mono<Void> cacheSuccess(Mono<Void> indexCreation) {
+        return indexCreation.cache(v -> Duration.ofMillis(Long.MAX_VALUE), e -> Duration.ZERO, () -> Duration.ofMillis(Long.MAX_VALUE));
+    }
+
+    private void renewExpiry(ContextType contextType, MessageContext messageContext) {
+        messageContext.setExpireAt(retention.getExpireAt(contextType, messageContext.getIdentifier()));
+    }
+
+    private String getPromptCollection(String namespace) {
+        return consolidated ? MongoPromptContextHolder.PROMPT_COLLECTION : namespace;
+    }
+
+    private String getContextCollection(MessageContext messageContext) {
+        return consolidated ? MongoPromptContextHolder.CONTEXT_COLLECTION : messageContext.getNamespace();
     }
 
     @Override
     public Mono<Boolean> contains(String namespace) {
-        return reactiveMongoTemplate.collectionExists(namespace);
+        return consolidated
+                ? reactiveMongoTemplate.exists(Query.query(Criteria.where("_id").is(namespace)), MongoPromptContextHolder.PROMPT_COLLECTION)
+                : reactiveMongoTemplate.collectionExists(namespace);
     }
 
     @Override
     public Mono<Void> savePrompt(String namespace, Prompt prompt) {
-        return reactiveMongoTemplate.save(prompt, namespace).then();
+        return reactiveMongoTemplate.save(prompt, getPromptCollection(namespace)).then();
     }
 
     @Override
     public Mono<Prompt> get(String namespace) {
-        return reactiveMongoTemplate.findOne(Query.query(new Criteria()), Prompt.class, namespace);
+        return reactiveMongoTemplate.findById(namespace, Prompt.class, getPromptCollection(namespace));
     }
 
     @Override
@@ -46,12 +115,29 @@ public class ReactiveMongoPromptContextHolder implements ReactivePromptContextHo
                         (split, seq) -> (T) (contextType == ContextType.PROMPT
                                 ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
                                 : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build()))
-                .flatMap(messageContext -> reactiveMongoTemplate.save(messageContext, namespace));
+                .doOnNext(messageContext -> renewExpiry(contextType, messageContext))
+                .flatMap(messageContext -> contextIndex.then(replace(messageContext)));
     }
 
     @Override
     public Mono<Void> saveMessageContext(ContextType contextType, MessageContext messageContext) {
-        return reactiveMongoTemplate.save(messageContext, messageContext.getNamespace()).then();
+        return Mono.defer(() -> {
+            renewExpiry(contextType, messageContext);
+            Update update = updates.prepareUpdate(messageContext);
+            if (update == null) return replace(messageContext).then();
+            return reactiveMongoTemplate.updateFirst(MongoMessageContextUpdates.byId(messageContext), update, messageContext.getClass(), getContextCollection(messageContext))
+                    .doOnError(e -> updates.invalidate(messageContext))
+                    .flatMap(result -> result.getMatchedCount() == 0 ? replace(messageContext).then() : Mono.empty());
+        });
+    }
+
+    private <T extends MessageContext> Mono<T> replace(T messageContext) {
+        return Mono.defer(() -> {
+            updates.invalidate(messageContext);
+            return ensureExpiryIndex(getContextCollection(messageContext))
+                    .then(reactiveMongoTemplate.save(messageContext, getContextCollection(messageContext)))
+                    .doOnNext(updates::register);
+        });
     }
 
     @Override
@@ -62,7 +148,7 @@ public class ReactiveMongoPromptContextHolder implements ReactivePromptContextHo
                 int removeIndex = Math.max(0, content.size() - n);
                 content.subList(removeIndex, content.size()).clear();
             }
-            return reactiveMongoTemplate.save(messageContext, messageContext.getNamespace()).then();
+            return saveMessageContext(contextType, messageContext);
         });
     }
 }
@@ -0,0 +1,59 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import io.github.zezeg2.aisupport.context.ContextRetention;
+import io.github.zezeg2.aisupport.context.MongoCollectionSeq;
+import io.github.zezeg2.aisupport.context.MongoPromptContextHolder;
+import io.github.zezeg2.aisupport.context.MongoSequenceGenerator;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * A sequence generator using MongoDB as a backend data store in a reactive manner.
+ * The counters are stored in the "database_sequences" collection and reserved in blocks as described by {@link ReactiveBlockSequenceGenerator}.
+ * Counters with a retention expire as described by {@link MongoSequenceGenerator}.
+ */
+public class ReactiveMongoSequenceGenerator extends ReactiveBlockSequenceGenerator {
+
+    /**
+     * The ReactiveMongoOperations instance used for interacting with MongoDB reactively.
+     */
+    private final ReactiveMongoOperations mongoOperations;
+    private final ContextRetention retention;
+    private final Mono<Void> expiryIndex;
+
+    public ReactiveMongoSequenceGenerator(ReactiveMongoOperations mongoOperations, int blockSize) {
+        this(mongoOperations, blockSize, ContextRetention.NONE);
+    }
+
+    public ReactiveMongoSequenceGenerator(ReactiveMongoOperations mongoOperations, int blockSize, ContextRetention retention) {
+        super(blockSize);
+        this.mongoOperations = mongoOperations;
+        this.retention = retention;
+        this.expiryIndex = mongoOperations.indexOps(MongoCollectionSeq.class).ensureIndex(MongoPromptContextHolder.getExpiryIndex()).then()
+                .cache(v -> Duration.ofMillis(Long.MAX_VALUE), e -> Duration.ZERO, () -> Duration.ofMillis(Long.MAX_VALUE));
+    }
+
+    @Override
+    protected Duration getBlockLifetime(String seqName, String identifier) {
+        return retention.getSequenceTtl(identifier);
+    }
+
+    @Override
+    protected Mono<Long> reserve(String seqName, String identifier, int size) {
+        Mono<Void> index = retention.getSequenceTtl(identifier).isZero() ? Mono.empty() : expiryIndex;
+        return index.then(mongoOperations.findAndModify(
+                        query(where("seqName").is(seqName).and("identifier").is(identifier)),
+                        MongoSequenceGenerator.getReserveUpdate(identifier, size, retention),
+                        options().returnNew(true).upsert(true),
+                        MongoCollectionSeq.class))
+                .map(counter -> !Objects.isNull(counter) ? counter.getSeq() : size);
+    }
+}
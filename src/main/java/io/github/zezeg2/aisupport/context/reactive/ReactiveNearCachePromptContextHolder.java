@@ -0,0 +1,96 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import io.github.zezeg2.aisupport.core.function.prompt.Prompt;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ReactiveNearCachePromptContextHolder class decorates a ReactivePromptContextHolder with an in-memory cache of prompts.
+ * Prompts are read from the delegate once per node and invalidated when the ReactivePromptChangeNotifier reports a change;
+ * when the change stream fails, every cached prompt is invalidated and the stream is resubscribed.
+ */
+@Slf4j
+public class ReactiveNearCachePromptContextHolder implements ReactivePromptContextHolder, AutoCloseable {
+    private final ReactivePromptContextHolder delegate;
+    private final ReactivePromptChangeNotifier notifier;
+    private final Map<String, Prompt> prompts = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Disposable subscription;
+
+    public ReactiveNearCachePromptContextHolder(ReactivePromptContextHolder delegate, ReactivePromptChangeNotifier notifier) {
+        this.delegate = delegate;
+        this.notifier = notifier;
+        this.subscription = notifier.changes()
+                .doOnError(e -> {
+                    log.warn("Prompt change stream interrupted, invalidating all cached prompts.", e);
+                    invalidate(null);
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+                .subscribe(this::invalidate);
+    }
+
+    /**
+     * Invalidates the cached prompt of the given namespace.
+     *
+     * @param namespace The namespace of the prompt, or {@code null} to invalidate every cached prompt.
+     */
+    public void invalidate(String namespace) {
+        generation.incrementAndGet();
+        if (namespace == null) prompts.clear();
+        else prompts.remove(namespace);
+    }
+
+    @Override
+    public Mono<Boolean> contains(String namespace) {
+        return prompts.containsKey(namespace) ? Mono.just(true) : delegate.contains(namespace);
+    }
+
+    @Override
+    public Mono<Void> savePrompt(String namespace, Prompt prompt) {
+        return delegate.savePrompt(namespace, prompt)
+                .then(Mono.fromRunnable(() -> invalidate(namespace)))
+                .then(notifier.publish(namespace));
+    }
+
+    @Override
+    public Mono<Prompt> get(String namespace) {
+        return Mono.defer(() -> {
+            Prompt cached = prompts.get(namespace);
+            if (cached != null) return Mono.just(cached);
+            long loadedGeneration = generation.get();
+            return delegate.get(namespace).doOnNext(prompt -> {
+                prompts.put(namespace, prompt);
+                if (generation.get() != loadedGeneration) prompts.remove(namespace, prompt);
+            });
+        });
+    }
+
+    @Override
+    public <T extends MessageContext> Mono<T> createMessageContext(ContextType contextType, String namespace, String identifier) {
+        return delegate.createMessageContext(contextType, namespace, identifier);
+    }
+
+    @Override
+    public Mono<Void> saveMessageContext(ContextType contextType, MessageContext messageContext) {
+        return delegate.saveMessageContext(contextType, messageContext);
+    }
+
+    @Override
+    public Mono<Void> deleteMessagesFromLast(ContextType contextType, MessageContext messageContext, Integer n) {
+        return delegate.deleteMessagesFromLast(contextType, messageContext, n);
+    }
+
+    @Override
+    public void close() {
+        subscription.dispose();
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The ReactivePromptChangeNotifier interface defines the contract for propagating prompt changes across application nodes
+ * in a reactive manner, so that nodes caching prompts locally can invalidate them.
+ */
+public interface ReactivePromptChangeNotifier {
+
+    /**
+     * Announces that the prompt of the given namespace has changed.
+     *
+     * @param namespace The namespace of the changed prompt.
+     * @return A Mono representing the completion of the announcement.
+     */
+    Mono<Void> publish(String namespace);
+
+    /**
+     * Listens for changed namespaces.
+     *
+     * @return A Flux emitting the namespaces of changed prompts.
+     */
+    Flux<String> changes();
+}
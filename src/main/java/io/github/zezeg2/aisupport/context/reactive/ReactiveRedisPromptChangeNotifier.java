@@ -0,0 +1,28 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import io.github.zezeg2.aisupport.context.RedisPromptChangeNotifier;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The ReactiveRedisPromptChangeNotifier class propagates prompt changes through Redis pub/sub in a reactive manner.
+ */
+public class ReactiveRedisPromptChangeNotifier implements ReactivePromptChangeNotifier {
+    private final ReactiveRedisTemplate<String, String> template;
+
+    public ReactiveRedisPromptChangeNotifier(ReactiveRedisTemplate<String, String> template) {
+        this.template = template;
+    }
+
+    @Override
+    public Mono<Void> publish(String namespace) {
+        return template.convertAndSend(RedisPromptChangeNotifier.CHANNEL, namespace).then();
+    }
+
+    @Override
+    public Flux<String> changes() {
+        return template.listenToChannel(RedisPromptChangeNotifier.CHANNEL).map(ReactiveSubscription.Message::getMessage);
+    }
+}
@@ -1,28 +1,74 @@
 package io.github.zezeg2.aisupport.context.reactive;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.context.ContextRetention;
+import io.github.zezeg2.aisupport.context.RedisPromptContextHolder;
+import io.github.zezeg2.aisupport.context.codec.ContextCodec;
+import io.github.zezeg2.aisupport.context.codec.JacksonContextCodec;
 import io.github.zezeg2.aisupport.core.function.prompt.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveHashOperations;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import reactor.core.publisher.Mono;
 
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
+import static io.github.zezeg2.aisupport.context.RedisPromptContextHolder.toBytes;
+
+/**
+ * The ReactiveRedisPromptContextHolder class stores prompts and message contexts in Redis hashes in a reactive manner,
+ * as binary values encoded by a {@link ContextCodec}, in the layout described by {@link RedisPromptContextHolder}.
+ */
 @Slf4j
 public class ReactiveRedisPromptContextHolder implements ReactivePromptContextHolder {
-    private final ReactiveRedisTemplate<String, String> template;
-    private final ReactiveHashOperations<String, String, String> hashOperations;
-    private final ObjectMapper mapper;
+    protected final ReactiveRedisTemplate<String, byte[]> template;
+    protected final ReactiveHashOperations<String, String, byte[]> hashOperations;
+    protected final ContextCodec codec;
+    protected final ReactiveSequenceGenerator sequenceGenerator;
+    protected final ContextRetention retention;
 
     public ReactiveRedisPromptContextHolder(ReactiveRedisTemplate<String, String> template, ObjectMapper mapper) {
+        this(createTemplate(template.getConnectionFactory()), new JacksonContextCodec(mapper));
+    }
+
+    public ReactiveRedisPromptContextHolder(ReactiveRedisTemplate<String, byte[]> template, ContextCodec codec) {
+        this(template, codec, null, ContextRetention.NONE);
+    }
+
+    /**
+     * Constructs a ReactiveRedisPromptContextHolder generating sequences with the given generator.
+     * The generator is called with the key of the context hash as the sequence name.
+     * Every write to the hash of a message context renews its expiry according to the given retention.
+     *
+     * @param template          The ReactiveRedisTemplate used to store prompts and message contexts, with string keys and binary values.
+     * @param codec             The codec used to encode prompts and message contexts.
+     * @param sequenceGenerator The sequence generator, or {@code null} to allocate sequences in Redis.
+     * @param retention         The retention of message contexts.
+     */
+    public ReactiveRedisPromptContextHolder(ReactiveRedisTemplate<String, byte[]> template, ContextCodec codec, ReactiveSequenceGenerator sequenceGenerator, ContextRetention retention) {
         this.template = template;
         this.hashOperations = template.opsForHash();
-        this.mapper = mapper;
+        this.codec = codec;
+        this.sequenceGenerator = sequenceGenerator;
+        this.retention = retention;
+    }
+
+    /**
+     * Creates a ReactiveRedisTemplate with string keys and hash fields, and binary values.
+     *
+     * @param connectionFactory The reactive Redis connection factory.
+     * @return The template.
+     */
+    public static ReactiveRedisTemplate<String, byte[]> createTemplate(ReactiveRedisConnectionFactory connectionFactory) {
+        return new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.<String, byte[]>newSerializationContext(RedisSerializer.string())
+                .value(RedisSerializer.byteArray())
+                .hashKey(RedisSerializer.string())
+                .hashValue(RedisSerializer.byteArray())
+                .build());
     }
 
     @Override
@@ -32,51 +78,61 @@ public class ReactiveRedisPromptContextHolder implements ReactivePromptContextHo
 
     @Override
     public Mono<Void> savePrompt(String namespace, Prompt prompt) {
-        try {
-            String serializedPrompt = mapper.writeValueAsString(prompt);
-            return hashOperations.put(namespace, "prompt", serializedPrompt).then();
-        } catch (JsonProcessingException e) {
-            return Mono.error(new RuntimeException("Error serializing the prompt", e));
-        }
+        return Mono.fromCallable(() -> codec.encode(prompt))
+                .flatMap(encodedPrompt -> hashOperations.put(namespace, "prompt", encodedPrompt))
+                .then();
     }
 
     @Override
     public Mono<Prompt> get(String namespace) {
         return hashOperations.get(namespace, "prompt")
-                .handle((serializedPrompt, sink) -> {
-                    try {
-                        sink.next(mapper.readValue(serializedPrompt, Prompt.class));
-                    } catch (IOException e) {
-                        sink.error(new RuntimeException("Error deserializing the prompt", e));
-                    }
-                });
+                .map(encodedPrompt -> codec.decode(encodedPrompt, Prompt.class));
     }
 
     @Override
     public <T extends MessageContext> Mono<T> createMessageContext(ContextType contextType, String namespace, String identifier) {
-        return Mono.just(namespace)
-                .map(n -> n.split(":"))
-                .zipWith(hashOperations.increment(namespace + ":" + identifier, "seq", 1L),
-                        (split, seq) -> {
-                            T messageContext = (T) (contextType == ContextType.PROMPT
-                                    ? PromptMessageContext.builder().seq(seq).functionName(namespace).identifier(identifier).messages(new ArrayList<>()).build()
-                                    : FeedbackMessageContext.builder().seq(seq).functionName(split[0]).validatorName(split[1]).identifier(identifier).messages(new ArrayList<>()).build());
-                            try {
-                                hashOperations.put(namespace + ":" + identifier, String.valueOf(seq), mapper.writeValueAsString(messageContext));
-                            } catch (JsonProcessingException e) {
-                                throw new RuntimeException("Error serializing the messages", e);
-                            }
+        return Mono.defer(() -> {
+            T messageContext = RedisPromptContextHolder.newMessageContext(contextType, namespace, identifier);
+            String hashKey = namespace + ":" + identifier;
+            long ttl = retention.getTtlSeconds(contextType, identifier);
+            Mono<Long> sequence;
+            if (sequenceGenerator == null) {
+                byte[][] encoded = codec.encodeAroundSequence(messageContext);
+                if (encoded != null) return template.execute(RedisPromptContextHolder.CREATE_SCRIPT, List.of(hashKey), List.of(encoded[0], encoded[1], toBytes(ttl)))
+                        .next()
+                        .map(seq -> {
+                            messageContext.setSeq(seq);
                             return messageContext;
                         });
+                sequence = hashOperations.increment(hashKey, "seq", 1);
+            } else {
+                sequence = sequenceGenerator.generateSequence(hashKey, identifier);
+            }
+            return sequence.flatMap(seq -> {
+                messageContext.setSeq(seq);
+                return put(hashKey, seq, codec.encode(messageContext), ttl).thenReturn(messageContext);
+            });
+        });
+    }
+
+    /**
+     * Stores an encoded message context in its hash, renewing the expiry of the hash when the retention is not zero.
+     *
+     * @param hashKey The hash {@code namespace:identifier}.
+     * @param seq     The sequence of the context.
+     * @param encoded The encoded context.
+     * @param ttl     The retention in seconds, or 0 to keep the hash forever.
+     * @return A Mono representing the completion of the write.
+     */
+    protected Mono<Void> put(String hashKey, Long seq, byte[] encoded, long ttl) {
+        if (ttl == 0) return hashOperations.put(hashKey, String.valueOf(seq), encoded).then();
+        return template.execute(RedisPromptContextHolder.PUT_SCRIPT, List.of(hashKey), List.of(toBytes(seq), encoded, toBytes(ttl))).then();
     }
 
     @Override
     public Mono<Void> saveMessageContext(ContextType contextType, MessageContext messageContext) {
-        try {
-            return hashOperations.put(messageContext.getNamespace() + ":" + messageContext.getIdentifier(), String.valueOf(messageContext.getSeq()), mapper.writeValueAsString(messageContext)).then();
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error serializing the context messages", e);
-        }
+        return Mono.defer(() -> put(messageContext.getNamespace() + ":" + messageContext.getIdentifier(), messageContext.getSeq(), codec.encode(messageContext),
+                retention.getTtlSeconds(contextType, messageContext.getIdentifier())));
     }
 
     @Override
@@ -85,12 +141,7 @@ public class ReactiveRedisPromptContextHolder implements ReactivePromptContextHo
             List<ChatMessage> messageList = messageContext.getMessages();
             int removeIndex = Math.max(0, messageList.size() - n);
             messageList.subList(removeIndex, messageList.size()).clear();
-            try {
-                return hashOperations.put(messageContext.getNamespace() + ":" + messageContext.getIdentifier(), String.valueOf(messageContext.getSeq()), mapper.writeValueAsString(messageContext)).then();
-            } catch (JsonProcessingException e) {
-                return Mono.error(new RuntimeException("Error serializing the messages after deletion", e));
-            }
+            return saveMessageContext(contextType, messageContext);
         });
     }
 }
-
@@ -0,0 +1,42 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import io.github.zezeg2.aisupport.context.ContextRetention;
+import io.github.zezeg2.aisupport.context.RedisPromptContextHolder;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * A sequence generator using Redis as a backend data store in a reactive manner.
+ * The sequence name is the key of the hash holding the counter in its {@code seq} field, which the Redis context holders
+ * set to the hash of their message contexts, so that blocks are reserved from the same counter used by
+ * {@link RedisPromptContextHolder#CREATE_SCRIPT}. Blocks are reserved as described by {@link ReactiveBlockSequenceGenerator}.
+ * The counter expires with the hash, which every write keeps for at least the shortest retention of the identifier,
+ * so blocks are given up after that retention rather than handed out from a counter another node may have restarted.
+ */
+public class ReactiveRedisSequenceGenerator extends ReactiveBlockSequenceGenerator {
+
+    private final ReactiveRedisTemplate<String, String> template;
+    private final ContextRetention retention;
+
+    public ReactiveRedisSequenceGenerator(ReactiveRedisTemplate<String, String> template, int blockSize) {
+        this(template, blockSize, ContextRetention.NONE);
+    }
+
+    public ReactiveRedisSequenceGenerator(ReactiveRedisTemplate<String, String> template, int blockSize, ContextRetention retention) {
+        super(blockSize);
+        this.template = template;
+        this.retention = retention;
+    }
+
+    @Override
+    protected Duration getBlockLifetime(String seqName, String identifier) {
+        return retention.getShortestTtl(identifier);
+    }
+
+    @Override
+    protected Mono<Long> reserve(String seqName, String identifier, int size) {
+        return template.<String, String>opsForHash().increment(seqName, "seq", size);
+    }
+}
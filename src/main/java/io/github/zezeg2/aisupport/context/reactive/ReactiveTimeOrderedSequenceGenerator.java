@@ -0,0 +1,28 @@
+package io.github.zezeg2.aisupport.context.reactive;
+
+import io.github.zezeg2.aisupport.context.TimeOrderedSequenceGenerator;
+import reactor.core.publisher.Mono;
+
+/**
+ * The ReactiveTimeOrderedSequenceGenerator class emits the time-ordered sequences of a {@link TimeOrderedSequenceGenerator},
+ * which are generated locally without any round trip to a backend.
+ */
+public class ReactiveTimeOrderedSequenceGenerator implements ReactiveSequenceGenerator {
+
+    private final TimeOrderedSequenceGenerator generator;
+
+    /**
+     * Constructs a ReactiveTimeOrderedSequenceGenerator with the given node id.
+     *
+     * @param nodeId The node id between 0 and {@link TimeOrderedSequenceGenerator#MAX_NODE_ID}.
+     * @throws IllegalArgumentException if the node id is out of range.
+     */
+    public ReactiveTimeOrderedSequenceGenerator(int nodeId) {
+        this.generator = new TimeOrderedSequenceGenerator(nodeId);
+    }
+
+    @Override
+    public Mono<Long> generateSequence(String seqName, String identifier) {
+        return Mono.fromSupplier(() -> generator.generateSequence(seqName, identifier));
+    }
+}
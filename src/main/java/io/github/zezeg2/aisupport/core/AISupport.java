@@ -2,6 +2,8 @@ package io.github.zezeg2.aisupport.core;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.zezeg2.aisupport.cache.ResultCache;
+import io.github.zezeg2.aisupport.cache.SingleFlight;
 import io.github.zezeg2.aisupport.common.constraint.Constraint;
 import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
 import io.github.zezeg2.aisupport.common.type.BaseSupportType;
@@ -24,6 +26,8 @@ public class AISupport {
     protected final ResultValidatorChain resultValidatorChain;
     private final ConstructResolver resolver;
     private final OpenAIProperties openAIProperties;
+    private final ResultCache resultCache;
+    private final SingleFlight singleFlight;
 
     /**
      * Creates an AI function with the specified return type, function name, command, and constraint list.
@@ -36,7 +40,7 @@ public class AISupport {
      * @return AIFunction instance representing the created AI function.
      */
     public <T extends BaseSupportType> AIFunction<T> createFunction(Class<T> returnType, String functionName, String command, List<Constraint> constraints) {
-        return new AIFunction<>(functionName, null, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new AIFunction<>(functionName, null, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, resultCache, singleFlight);
     }
 
     /**
@@ -51,7 +55,7 @@ public class AISupport {
      * @return AIFunction instance representing the created AI function.
      */
     public <T extends BaseSupportType> AIFunction<T> createFunction(Class<T> returnType, String functionName, String command, List<Constraint> constraints, double topP) {
-        return new AIFunction<>(functionName, null, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new AIFunction<>(functionName, null, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, resultCache, singleFlight);
     }
 
     /**
@@ -66,7 +70,7 @@ public class AISupport {
      * @return AIFunction instance representing the created AI function.
      */
     public <T extends BaseSupportType> AIFunction<T> createFunction(Class<T> returnType, String functionName, String role, String command, List<Constraint> constraints) {
-        return new AIFunction<>(functionName, role, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new AIFunction<>(functionName, role, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, resultCache, singleFlight);
     }
 
     /**
@@ -81,7 +85,7 @@ public class AISupport {
      * @return AIFunction instance representing the created AI function.
      */
     public <T extends BaseSupportType> AIFunction<T> createFunction(Class<T> returnType, String functionName, String role, String command, List<Constraint> constraints, double topP) {
-        return new AIFunction<>(functionName, role, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new AIFunction<>(functionName, role, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, resultCache, singleFlight);
     }
 
 
@@ -2,6 +2,7 @@ package io.github.zezeg2.aisupport.core;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.zezeg2.aisupport.cache.reactive.ReactiveSingleFlight;
 import io.github.zezeg2.aisupport.common.constraint.Constraint;
 import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
 import io.github.zezeg2.aisupport.common.type.BaseSupportType;
@@ -25,6 +26,7 @@ public class ReactiveAISupport {
     protected final ReactiveResultValidatorChain resultValidatorChain;
     protected final ConstructResolver resolver;
     private final OpenAIProperties openAIProperties;
+    private final ReactiveSingleFlight singleFlight;
 
     /**
      * Creates a reactive AI function with the specified return type, function name, command, and constraint list.
@@ -37,7 +39,7 @@ public class ReactiveAISupport {
      * @return ReactiveAIFunction instance representing the created reactive AI function.
      */
     public <T extends BaseSupportType> ReactiveAIFunction<T> createFunction(Class<T> returnType, String functionName, String command, List<Constraint> constraints) {
-        return new ReactiveAIFunction<>(functionName, null, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new ReactiveAIFunction<>(functionName, null, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, singleFlight);
     }
 
     /**
@@ -52,7 +54,7 @@ public class ReactiveAISupport {
      * @return ReactiveAIFunction instance representing the created reactive AI function.
      */
     public <T extends BaseSupportType> ReactiveAIFunction<T> createFunction(Class<T> returnType, String functionName, String command, List<Constraint> constraints, double topP) {
-        return new ReactiveAIFunction<>(functionName, null, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new ReactiveAIFunction<>(functionName, null, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, singleFlight);
     }
 
     /**
@@ -66,7 +68,7 @@ public class ReactiveAISupport {
      * @return ReactiveAIFunction instance representing the created reactive AI function.
      */
     public <T extends BaseSupportType> ReactiveAIFunction<T> createFunction(Class<T> returnType, String functionName, String role, String command, List<Constraint> constraints) {
-        return new ReactiveAIFunction<>(functionName, role, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new ReactiveAIFunction<>(functionName, role, command, constraints, returnType, 1d, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, singleFlight);
     }
 
     /**
@@ -81,7 +83,7 @@ public class ReactiveAISupport {
      * @return ReactiveAIFunction instance representing the created reactive AI function.
      */
     public <T extends BaseSupportType> ReactiveAIFunction<T> createFunction(Class<T> returnType, String functionName, String role, String command, List<Constraint> constraints, double topP) {
-        return new ReactiveAIFunction<>(functionName, role, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties);
+        return new ReactiveAIFunction<>(functionName, role, command, constraints, returnType, topP, mapper, promptManager, resultValidatorChain, resolver, openAIProperties, singleFlight);
     }
 }
 
@@ -2,15 +2,23 @@ package io.github.zezeg2.aisupport.core.function;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.cache.ResultCache;
+import io.github.zezeg2.aisupport.cache.ResultCacheKey;
+import io.github.zezeg2.aisupport.cache.SingleFlight;
 import io.github.zezeg2.aisupport.common.argument.Argument;
+import io.github.zezeg2.aisupport.common.bill.Bill;
 import io.github.zezeg2.aisupport.common.constraint.Constraint;
 import io.github.zezeg2.aisupport.common.enums.Role;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
 import io.github.zezeg2.aisupport.common.enums.model.gpt.ModelMapper;
 import io.github.zezeg2.aisupport.common.exceptions.CustomJsonException;
 import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
+import io.github.zezeg2.aisupport.common.type.BulkResult;
+import io.github.zezeg2.aisupport.common.type.ExecutionResult;
 import io.github.zezeg2.aisupport.common.type.SimpleResult;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
+import io.github.zezeg2.aisupport.context.ContextRetention;
 import io.github.zezeg2.aisupport.context.PromptContextHolder;
 import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
 import io.github.zezeg2.aisupport.core.function.prompt.Prompt;
@@ -24,6 +32,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The AIFunction class represents a generic AI function that interacts with a chat-based AI system.
@@ -45,6 +54,8 @@ public class AIFunction<T> {
     private final ResultValidatorChain resultValidatorChain;
     private final ConstructResolver resolver;
     private final OpenAIProperties openAIProperties;
+    private final ResultCache resultCache;
+    private final SingleFlight singleFlight;
 
 
     /**
@@ -57,31 +68,49 @@ public class AIFunction<T> {
     }
 
     /**
-     * Initializes the AIFunction with the specified execution parameters.
+     * Retrieves the prompt of the AIFunction, creating and saving it on first use.
      *
-     * @param params The execution parameters.
+     * @param args The list of arguments for the AI function.
+     * @return The prompt of the AIFunction.
      */
-    private PromptMessageContext init(ExecuteParameters<T> params) {
-        List<Argument<?>> args = params.getArgs();
-        String identifier = params.getIdentifier();
-        T example = params.getExample();
+    private Prompt getPrompt(List<Argument<?>> args) {
         PromptContextHolder contextHolder = promptManager.getContextHolder();
-
         Prompt prompt = contextHolder.get(functionName);
         if (prompt == null) {
             prompt = new Prompt(functionName, this.role == null ? "" : this.role, command, constraints, args, returnType, topP, resolver);
             contextHolder.savePrompt(functionName, prompt);
         }
+        return prompt;
+    }
 
-        PromptMessageContext promptMessageContext = contextHolder.createMessageContext(ContextType.PROMPT, functionName, identifier);
-        promptMessageContext.setModel(params.getModel());
-        promptMessageContext.setUserInput(createArgsMap(args));
+    /**
+     * Renders the system prompt of the AIFunction with the example of the execution, reusing the registered rendering when available.
+     *
+     * @param prompt  The prompt of the AIFunction.
+     * @param example An example object used in the execution, or {@code null}.
+     * @return The rendered system prompt.
+     */
+    private String createSystemPrompt(Prompt prompt, T example) {
         try {
-            promptManager.addMessageToContext(ContextType.PROMPT, promptMessageContext, Role.SYSTEM, prompt.generate(example == null ? "" : mapper.writerWithDefaultPrettyPrinter().writeValueAsString(example)));
+            return promptManager.getSystemPromptRegistry().getSystemPrompt(prompt, example, mapper);
         } catch (JsonProcessingException e) {
             throw new CustomJsonException(e);
         }
-        promptManager.addMessageToContext(ContextType.PROMPT, promptMessageContext, Role.USER, createArgsString(args));
+    }
+
+    /**
+     * Initializes the AIFunction with the specified execution parameters.
+     *
+     * @param params       The execution parameters.
+     * @param systemPrompt The rendered system prompt.
+     * @param userInput    The string representation of the arguments.
+     */
+    private PromptMessageContext init(ExecuteParameters<T> params, String systemPrompt, String userInput) {
+        PromptMessageContext promptMessageContext = promptManager.getContextHolder().createMessageContext(ContextType.PROMPT, functionName, params.getIdentifier());
+        promptMessageContext.setModel(params.getModel());
+        promptMessageContext.setUserInput(createArgsMap(params.getArgs()));
+        promptManager.addMessageToContext(ContextType.PROMPT, promptMessageContext, Role.SYSTEM, systemPrompt);
+        promptManager.addMessageToContext(ContextType.PROMPT, promptMessageContext, Role.USER, userInput);
         return promptMessageContext;
     }
 
@@ -93,7 +122,7 @@ public class AIFunction<T> {
      */
     private String createArgsString(List<Argument<?>> args) {
         try {
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(createArgsMap(args));
+            return promptManager.getSystemPromptRegistry().getPrettyWriter(mapper).writeValueAsString(createArgsMap(args));
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
@@ -112,13 +141,12 @@ public class AIFunction<T> {
     }
 
     /**
-     * Parses the response from the AI model and validates it using the result validator chain.
+     * Parses the validated result into the return type of the AIFunction.
      *
-     * @param promptMessageContext prompt context contains chat completion result.
-     * @return A Mono that emits the parsed and validated response object.
+     * @param validatedResult The result validated by the result validator chain.
+     * @return The parsed response object.
      */
-    private T parseResponseWithValidate(PromptMessageContext promptMessageContext) {
-        String validatedResult = resultValidatorChain.validate(promptMessageContext);
+    private T parseResult(String validatedResult) {
         try {
             return mapper.readValue(validatedResult, returnType);
         } catch (JsonProcessingException e) {
@@ -133,20 +161,129 @@ public class AIFunction<T> {
      * @return The result of the function execution.
      */
     public T execute(ExecuteParameters<T> params) {
-        if (params.getModel() == null) params.setModel(getDefaultModel());
-        if (params.getIdentifier() == null) params.setIdentifier("temp-identifier-" + UUID.randomUUID());
-        PromptMessageContext promptMessageContext = init(params);
-        PromptMessageContext response = promptManager.exchangeMessages(ContextType.PROMPT, promptMessageContext, params.getModel(), topP, true);
-        return parseResponseWithValidate(response);
+        return executeAndCountBill(params).getResult();
+    }
+
+    /**
+     * Estimates the bill of the first chat completion request of an execution before it is sent, without creating a message context.
+     * Validation feedback rounds are not included, as their number is only known once the execution runs.
+     *
+     * @param params The execution parameters.
+     * @return The estimated bill.
+     */
+    public Bill estimateBill(ExecuteParameters<T> params) {
+        AIModel model = params.getModel() == null ? getDefaultModel() : params.getModel();
+        List<ChatMessage> messages = List.of(
+                new ChatMessage(Role.SYSTEM.getValue(), createSystemPrompt(getPrompt(params.getArgs()), params.getExample())),
+                new ChatMessage(Role.USER.getValue(), createArgsString(params.getArgs())));
+        return promptManager.estimateBill(model, messages);
     }
 
+    /**
+     * Executes the AIFunction with the specified execution parameters and counts the bill of the execution.
+     * When a result cache is configured, a cached result is returned without calling the model or the result validator chain,
+     * and its bill is empty. When coalescing is enabled, concurrent identical executions with the same identifier share one in-flight
+     * execution; only the caller that ran it is billed. Executions with temporary identifiers are shared regardless of the identifier.
+     *
+     * @param params The execution parameters.
+     * @return The result of the function execution with its bill.
+     */
     public SimpleResult<T> executeAndCountBill(ExecuteParameters<T> params) {
         if (params.getModel() == null) params.setModel(getDefaultModel());
-        if (params.getIdentifier() == null) params.setIdentifier("temp-identifier-" + UUID.randomUUID());
-        PromptMessageContext promptMessageContext = init(params);
+        if (params.getIdentifier() == null) params.setIdentifier(ContextRetention.TEMPORARY_IDENTIFIER_PREFIX + UUID.randomUUID());
+        String systemPrompt = createSystemPrompt(getPrompt(params.getArgs()), params.getExample());
+        String userInput = createArgsString(params.getArgs());
+        if (resultCache == null && singleFlight == null) {
+            SimpleResult<String> validatedResult = exchangeAndValidate(params, systemPrompt, userInput, null);
+            return SimpleResult.<T>builder().result(parseResult(validatedResult.getResult())).bill(validatedResult.getBill()).build();
+        }
+
+        String executionKey = ResultCacheKey.of(functionName, params.getModel(), topP, systemPrompt, userInput);
+        if (resultCache != null) {
+            String cachedResult = resultCache.get(executionKey);
+            if (cachedResult != null) return SimpleResult.<T>builder().result(parseResult(cachedResult)).bill(new Bill()).build();
+        }
+
+        SimpleResult<String> validatedResult;
+        if (singleFlight == null) {
+            validatedResult = exchangeAndValidate(params, systemPrompt, userInput, executionKey);
+        } else {
+            AtomicBoolean executed = new AtomicBoolean();
+            validatedResult = singleFlight.execute(ResultCacheKey.forCaller(executionKey, params.getIdentifier()), () -> {
+                executed.set(true);
+                return exchangeAndValidate(params, systemPrompt, userInput, executionKey);
+            });
+            if (!executed.get()) validatedResult = SimpleResult.<String>builder().result(validatedResult.getResult()).bill(new Bill()).build();
+        }
+        return SimpleResult.<T>builder().result(parseResult(validatedResult.getResult())).bill(validatedResult.getBill()).build();
+    }
+
+    /**
+     * Exchanges messages with the AI model and validates the response using the result validator chain.
+     *
+     * @param params       The execution parameters.
+     * @param systemPrompt The rendered system prompt.
+     * @param userInput    The string representation of the arguments.
+     * @param executionKey The key identifying identical executions, or null when there is no result cache.
+     * @return The validated result as a string with the bill of the execution.
+     */
+    private SimpleResult<String> exchangeAndValidate(ExecuteParameters<T> params, String systemPrompt, String userInput, String executionKey) {
+        PromptMessageContext promptMessageContext = init(params, systemPrompt, userInput);
         PromptMessageContext response = promptManager.exchangeMessages(ContextType.PROMPT, promptMessageContext, params.getModel(), topP, true);
-        T result = parseResponseWithValidate(response);
-        return SimpleResult.<T>builder().result(result).bill(promptManager.getExecutionBill(promptMessageContext)).build();
+        String validatedResult = resultValidatorChain.validate(response);
+        if (resultCache != null) resultCache.put(executionKey, validatedResult);
+        return SimpleResult.<String>builder().result(validatedResult).bill(promptManager.getExecutionBill(promptMessageContext)).build();
+    }
+
+    /**
+     * Executes the AIFunction for every execution parameters concurrently, keeping at most
+     * {@code ai-supporter.api.max-in-flight} executions in flight.
+     *
+     * @param paramsList The list of execution parameters.
+     * @return The per-item results in input order.
+     */
+    public List<ExecutionResult<T>> executeAll(List<ExecuteParameters<T>> paramsList) {
+        return executeAll(paramsList, openAIProperties.getMaxInFlight());
+    }
+
+    /**
+     * Executes the AIFunction for every execution parameters concurrently, keeping at most maxInFlight executions in flight.
+     * A failed execution is reported in its own result and does not abort the others.
+     *
+     * @param paramsList  The list of execution parameters.
+     * @param maxInFlight The maximum number of concurrent executions.
+     * @return The per-item results in input order.
+     */
+    public List<ExecutionResult<T>> executeAll(List<ExecuteParameters<T>> paramsList, int maxInFlight) {
+        return BulkExecutor.executeAll(paramsList, maxInFlight, params -> ExecutionResult.<T>builder().result(execute(params)).build());
+    }
+
+    /**
+     * Executes the AIFunction for every execution parameters concurrently and merges the bills of the successful executions.
+     *
+     * @param paramsList The list of execution parameters.
+     * @return The per-item results in input order with the merged bill.
+     */
+    public BulkResult<T> executeAllAndCountBill(List<ExecuteParameters<T>> paramsList) {
+        return executeAllAndCountBill(paramsList, openAIProperties.getMaxInFlight());
+    }
+
+    /**
+     * Executes the AIFunction for every execution parameters concurrently, keeping at most maxInFlight executions in flight,
+     * and merges the bills of the successful executions.
+     *
+     * @param paramsList  The list of execution parameters.
+     * @param maxInFlight The maximum number of concurrent executions.
+     * @return The per-item results in input order with the merged bill.
+     */
+    public BulkResult<T> executeAllAndCountBill(List<ExecuteParameters<T>> paramsList, int maxInFlight) {
+        List<ExecutionResult<T>> results = BulkExecutor.executeAll(paramsList, maxInFlight, params -> {
+            SimpleResult<T> simpleResult = executeAndCountBill(params);
+            return ExecutionResult.<T>builder().result(simpleResult.getResult()).bill(simpleResult.getBill()).build();
+        });
+        Bill bill = new Bill();
+        results.stream().filter(ExecutionResult::isSuccess).forEach(result -> bill.merge(result.getBill()));
+        return BulkResult.<T>builder().results(results).bill(bill).build();
     }
 }
 
@@ -0,0 +1,91 @@
+package io.github.zezeg2.aisupport.core.function;
+
+import io.github.zezeg2.aisupport.common.type.ExecutionResult;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * The BulkExecutor class fans a list of executions out to concurrent threads while keeping at most
+ * a given number of them in flight. Virtual threads are used when the running JDK provides them (21+),
+ * otherwise a cached platform thread pool is used; the in-flight limit bounds the thread count either way.
+ */
+public final class BulkExecutor {
+
+    private static final Method VIRTUAL_THREAD_EXECUTOR_FACTORY = findVirtualThreadExecutorFactory();
+
+    private BulkExecutor() {
+    }
+
+    /**
+     * Runs the task for every input and collects the results in input order.
+     * A task failure is captured in its own ExecutionResult and does not affect the other executions.
+     *
+     * @param inputs      The inputs to execute.
+     * @param maxInFlight The maximum number of tasks running at the same time.
+     * @param task        The task producing an ExecutionResult for a single input.
+     * @param <P>         The type of the inputs.
+     * @param <T>         The type of the return value for the AI function.
+     * @return The execution results in input order.
+     */
+    public static <P, T> List<ExecutionResult<T>> executeAll(List<P> inputs, int maxInFlight, Function<P, ExecutionResult<T>> task) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        Semaphore permits = new Semaphore(maxInFlight);
+        ExecutorService executor = newExecutor();
+        try {
+            List<Future<ExecutionResult<T>>> futures = new ArrayList<>(inputs.size());
+            for (P input : inputs) {
+                permits.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return task.apply(input);
+                    } catch (Throwable e) {
+                        return ExecutionResult.<T>builder().error(e).build();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            List<ExecutionResult<T>> results = new ArrayList<>(futures.size());
+            for (Future<ExecutionResult<T>> future : futures) results.add(future.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bulk execution interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Bulk execution failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates an executor running every task on a thread of its own, virtual when the running JDK provides them.
+     *
+     * @return The executor, to be shut down by the caller.
+     */
+    public static ExecutorService newExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR_FACTORY != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke(null);
+            } catch (ReflectiveOperationException ignored) {
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
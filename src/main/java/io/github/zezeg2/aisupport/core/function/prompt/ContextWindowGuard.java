@@ -0,0 +1,129 @@
+package io.github.zezeg2.aisupport.core.function.prompt;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.common.bill.Bill;
+import io.github.zezeg2.aisupport.common.enums.Role;
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.exceptions.ContextWindowExceededException;
+import io.github.zezeg2.aisupport.common.util.TokenCountUtil;
+import io.github.zezeg2.aisupport.config.properties.ContextWindowProperties;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The ContextWindowGuard class counts the tokens of chat completion requests before they are sent, and applies the configured
+ * {@link io.github.zezeg2.aisupport.config.properties.ContextWindowOverflow} policy to requests that do not fit the context window of their model.
+ */
+@RequiredArgsConstructor
+public class ContextWindowGuard {
+
+    private final ContextWindowProperties properties;
+
+    /**
+     * Checks a request against the context window of its model.
+     *
+     * @param model    The AI model of the request.
+     * @param messages The chat messages of the request.
+     * @return The request to send, whose model or messages may differ from the given ones according to the overflow policy.
+     * @throws ContextWindowExceededException if the request does not fit and the policy cannot make it fit.
+     */
+    public Request check(AIModel model, List<ChatMessage> messages) {
+        if (!properties.isEnabled()) return new Request(model, messages, -1);
+        int tokens = TokenCountUtil.countTokens(model, messages);
+        if (fits(model, tokens)) return new Request(model, messages, tokens);
+        return switch (properties.getOverflow()) {
+            case REJECT -> throw new ContextWindowExceededException(model, required(tokens));
+            case TRUNCATE -> truncate(model, messages, tokens);
+            case UPGRADE -> upgrade(model, messages, tokens);
+        };
+    }
+
+    /**
+     * Estimates the bill of a request as it would be sent, with the completion reserve as the completion size.
+     *
+     * @param model    The AI model of the request.
+     * @param messages The chat messages of the request.
+     * @return The estimated bill.
+     * @throws ContextWindowExceededException if the request does not fit and the policy cannot make it fit.
+     */
+    public Bill estimateBill(AIModel model, List<ChatMessage> messages) {
+        Request request = check(model, messages);
+        return Bill.estimate(request.getModel(), request.getMessages(), properties.getCompletionReserve());
+    }
+
+    /**
+     * Gets the tokens a checked request is expected to use, its prompt tokens plus the completion reserve.
+     *
+     * @param request The checked request.
+     * @return The expected tokens of the request.
+     */
+    public long getRequestTokens(Request request) {
+        int promptTokens = request.getPromptTokens() < 0 ? TokenCountUtil.countTokens(request.getModel(), request.getMessages()) : request.getPromptTokens();
+        return required(promptTokens);
+    }
+
+    private int required(int tokens) {
+        return tokens + properties.getCompletionReserve();
+    }
+
+    private boolean fits(AIModel model, int tokens) {
+        return required(tokens) <= model.getContextWindow();
+    }
+
+    /**
+     * Leaves out the oldest retry turns, pairs of an answer and the feedback on it following the first user message,
+     * keeping the latest turn so that the model still sees the feedback it has to address.
+     */
+    private Request truncate(AIModel model, List<ChatMessage> messages, int tokens) {
+        int first = 0;
+        while (first < messages.size() && !Role.USER.getValue().equals(messages.get(first).getRole())) first++;
+        List<ChatMessage> truncated = new ArrayList<>(messages);
+        while (!fits(model, tokens) && truncated.size() - (first + 1) >= 4) {
+            tokens -= TokenCountUtil.countTokens(model, truncated.remove(first + 1));
+            tokens -= TokenCountUtil.countTokens(model, truncated.remove(first + 1));
+        }
+        if (!fits(model, tokens)) throw new ContextWindowExceededException(model, required(tokens));
+        return new Request(model, truncated, tokens);
+    }
+
+    /**
+     * Moves the request to the model of the same family with the smallest context window it fits in, the cheapest one among equals.
+     */
+    private Request upgrade(AIModel model, List<ChatMessage> messages, int tokens) {
+        if (!(model instanceof Enum<?> constant)) throw new ContextWindowExceededException(model, required(tokens));
+        return Arrays.stream(constant.getDeclaringClass().getEnumConstants())
+                .map(AIModel.class::cast)
+                .filter(candidate -> fits(candidate, tokens))
+                .min(Comparator.comparingInt(AIModel::getContextWindow).thenComparingDouble(AIModel::getRequestPrice))
+                .map(candidate -> new Request(candidate, messages, tokens))
+                .orElseThrow(() -> new ContextWindowExceededException(model, required(tokens)));
+    }
+
+    /**
+     * The Request class holds a chat completion request checked against the context window of its model.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Request {
+
+        /**
+         * The AI model the request is sent to.
+         */
+        private final AIModel model;
+
+        /**
+         * The chat messages sent.
+         */
+        private final List<ChatMessage> messages;
+
+        /**
+         * The prompt tokens of the request, or -1 when the check is disabled.
+         */
+        private final int promptTokens;
+    }
+}
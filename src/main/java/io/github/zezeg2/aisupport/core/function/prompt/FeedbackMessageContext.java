@@ -1,15 +1,20 @@
 package io.github.zezeg2.aisupport.core.function.prompt;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.theokanning.openai.Usage;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.annotation.PersistenceCreator;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +29,7 @@ import java.util.Map;
  */
 @Data
 @Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Document
 public class FeedbackMessageContext implements Serializable, MessageContext {
     private String id;
@@ -59,6 +65,12 @@ public class FeedbackMessageContext implements Serializable, MessageContext {
     private AIModel model;
     private Usage usage;
 
+    /**
+     * The time at which this FeedbackMessageContext expires in stores supporting per-document expiry, or null to keep it forever.
+     */
+    @JsonIgnore
+    private Instant expireAt;
+
     /**
      * Constructs a new FeedbackMessageContext instance with the specified properties.
      *
@@ -68,6 +80,7 @@ public class FeedbackMessageContext implements Serializable, MessageContext {
      * @param messages      The list of chat messages to be stored in the FeedbackMessageContext.
      */
     @JsonCreator
+    @PersistenceCreator
     public FeedbackMessageContext(@JsonProperty("id") String id,
                                   @JsonProperty("seq") long seq,
                                   @JsonProperty("identifier") String identifier,
@@ -4,6 +4,7 @@ import com.theokanning.openai.Usage;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -103,6 +104,20 @@ public interface MessageContext {
 
     void setUsage(Usage usage);
 
+    /**
+     * Get the time at which this context expires in stores supporting per-document expiry.
+     *
+     * @return The expiry time, or null to keep the context forever.
+     */
+    Instant getExpireAt();
+
+    /**
+     * Set the time at which this context expires in stores supporting per-document expiry.
+     *
+     * @param expireAt The expiry time, or null to keep the context forever.
+     */
+    void setExpireAt(Instant expireAt);
+
     String getNamespace();
 
     static String getSequenceName(String namespace, String identifier) {
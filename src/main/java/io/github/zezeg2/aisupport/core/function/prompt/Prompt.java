@@ -1,15 +1,17 @@
 package io.github.zezeg2.aisupport.core.function.prompt;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.github.zezeg2.aisupport.common.argument.Argument;
 import io.github.zezeg2.aisupport.common.constraint.Constraint;
 import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
+import io.github.zezeg2.aisupport.common.template.CompiledTemplate;
 import io.github.zezeg2.aisupport.common.util.BuildFormatUtil;
 import io.github.zezeg2.aisupport.core.validator.FeedbackResponse;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.io.Serializable;
@@ -28,6 +30,9 @@ import static io.github.zezeg2.aisupport.common.constants.TemplateConstants.*;
 @Document
 @NoArgsConstructor
 public class Prompt implements Serializable {
+    private static final CompiledTemplate BODY_TEMPLATE = CompiledTemplate.compile(PROMPT_TEMPLATE_BODY);
+    private static final CompiledTemplate STATEMENT_WITH_ROLE_TEMPLATE = CompiledTemplate.compile(PROMPT_STATEMENT_WITH_ROLE_PARTICLE);
+    private static final CompiledTemplate EXAMPLE_TEMPLATE = CompiledTemplate.compile(PROMPT_EXAMPLE_PARTICLE);
 
     @Id
     private String functionName;
@@ -38,8 +43,21 @@ public class Prompt implements Serializable {
     private String resultFormat;
     private String feedbackFormat;
     private String classStructureInfo;
+    private String resultType;
     private double topP;
 
+    /**
+     * The template body bound to the fields of the prompt, leaving the statement and example slots.
+     * It is compiled on first use, so a prompt must not be modified once it has been generated.
+     */
+    @JsonIgnore
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient volatile CompiledTemplate template;
+
     /**
      * Constructs a new Prompt instance.
      *
@@ -49,6 +67,7 @@ public class Prompt implements Serializable {
      * @param inputFormat    The format of the input.
      * @param resultFormat   The format of the result.
      * @param feedbackFormat The format of the feedback.
+     * @param resultType     The class name of the result type.
      * @param topP           The topP value.
      */
     @JsonCreator
@@ -60,6 +79,7 @@ public class Prompt implements Serializable {
                   @JsonProperty("resultFormat") String resultFormat,
                   @JsonProperty("feedbackFormat") String feedbackFormat,
                   @JsonProperty("classStructureInfo") String classStructureInfo,
+                  @JsonProperty("resultType") String resultType,
                   @JsonProperty("topP") double topP) {
         this.functionName = functionName;
         this.role = role;
@@ -69,6 +89,7 @@ public class Prompt implements Serializable {
         this.resultFormat = resultFormat;
         this.feedbackFormat = feedbackFormat;
         this.classStructureInfo = classStructureInfo;
+        this.resultType = resultType;
         this.topP = topP;
     }
 
@@ -92,6 +113,7 @@ public class Prompt implements Serializable {
         this.inputFormat = BuildFormatUtil.getArgumentsFormatMapString(args);
         this.resultFormat = BuildFormatUtil.getFormatString(returnType);
         this.feedbackFormat = BuildFormatUtil.getFormatString(FeedbackResponse.class);
+        this.resultType = returnType == null ? null : returnType.getName();
         this.topP = topP;
         Set<Class<?>> classes = args.stream().map(Argument::getType).collect(Collectors.toSet());
         if (returnType != null) classes.add(returnType);
@@ -116,8 +138,12 @@ public class Prompt implements Serializable {
      * @throws RuntimeException if there is an error during serialization.
      */
     public String generate(String example) {
-        String intermediateOutput = PROMPT_TEMPLATE_BODY.formatted(this.command, this.constraints, this.inputFormat, this.resultFormat, this.feedbackFormat);
-        String statement = role.isEmpty() ? PROMPT_STATEMENT_PARTICLE : PROMPT_STATEMENT_WITH_ROLE_PARTICLE.formatted(role);
-        return intermediateOutput.formatted(statement, example.isEmpty() ? "" : PROMPT_EXAMPLE_PARTICLE.formatted(example));
+        CompiledTemplate compiled = template;
+        if (compiled == null) {
+            compiled = BODY_TEMPLATE.bind(this.command, this.constraints, this.inputFormat, this.resultFormat, this.feedbackFormat);
+            template = compiled;
+        }
+        String statement = role.isEmpty() ? PROMPT_STATEMENT_PARTICLE : STATEMENT_WITH_ROLE_TEMPLATE.render(role);
+        return compiled.render(statement, example.isEmpty() ? "" : EXAMPLE_TEMPLATE.render(example));
     }
 }
@@ -7,13 +7,27 @@ import com.theokanning.openai.service.OpenAiService;
 import io.github.zezeg2.aisupport.common.enums.Role;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
 import io.github.zezeg2.aisupport.common.bill.Bill;
+import io.github.zezeg2.aisupport.common.exceptions.RateLimitExceededException;
 import io.github.zezeg2.aisupport.common.util.JsonUtil;
 import io.github.zezeg2.aisupport.config.properties.ContextProperties;
 import io.github.zezeg2.aisupport.context.PromptContextHolder;
+import io.github.zezeg2.aisupport.ratelimit.RateLimiter;
+import io.github.zezeg2.aisupport.resilience.CallCancellation;
+import io.github.zezeg2.aisupport.resilience.CircuitBreaker;
+import io.github.zezeg2.aisupport.resilience.HedgePolicy;
+import io.github.zezeg2.aisupport.resilience.RetryPolicy;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The PromptManager class is responsible for managing prompts and exchanging messages in a chat-based AI system.
@@ -25,6 +39,13 @@ public class PromptManager {
     private final OpenAiService service;
     private final PromptContextHolder contextHolder;
     private final ContextProperties contextProperties;
+    private final ContextWindowGuard contextWindowGuard;
+    private final RetryHistoryCompactor retryHistoryCompactor;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgePolicy hedgePolicy;
+    private final SystemPromptRegistry systemPromptRegistry;
 
     /**
      * Adds a message to the prompt context.
@@ -41,6 +62,8 @@ public class PromptManager {
 
     /**
      * Exchange messages in the chat-based AI system and retrieve the chat completion result.
+     * Only the messages selected by the retry history strategy are sent, and the request is checked against the context window of the model; when the overflow policy moves it to a larger-context
+     * model, the model of the message context is updated so that the execution is billed for the model actually used.
      *
      * @param contextType    The type of context (prompt or feedback).
      * @param messageContext Message context for calling openai chat completion api
@@ -51,7 +74,9 @@ public class PromptManager {
      */
 
     public <T extends MessageContext> T exchangeMessages(ContextType contextType, MessageContext messageContext, AIModel model, double topP, boolean save) {
-        ChatCompletionResult response = createChatCompletion(model, messageContext.getMessages(), topP);
+        ContextWindowGuard.Request request = contextWindowGuard.check(model, retryHistoryCompactor.compact(contextType, messageContext.getMessages()));
+        if (request.getModel() != model) messageContext.setModel(request.getModel());
+        ChatCompletionResult response = createHedgedChatCompletion(messageContext.getFunctionName(), request, topP);
         ChatMessage responseMessage = response.getChoices().get(0).getMessage();
         responseMessage.setContent(JsonUtil.extractJsonFromMessage(responseMessage.getContent()));
         messageContext.setUsage(response.getUsage());
@@ -60,6 +85,132 @@ public class PromptManager {
         return (T) messageContext;
     }
 
+    /**
+     * Creates a chat completion request, hedging it when its function opted in: if no response arrives within the hedge delay
+     * and the hedge budget allows, the request is sent again, the first successful response is taken and the other request is cancelled.
+     * Both requests run on the executor of the hedge policy, and a losing request has its HTTP call cancelled through {@link CallCancellation}.
+     *
+     * @param functionName The name of the function the request belongs to.
+     * @param request      The request checked against the context window of its model.
+     * @param topP         The top-p value for generating diverse completions.
+     * @return The chat completion result.
+     */
+    protected ChatCompletionResult createHedgedChatCompletion(String functionName, ContextWindowGuard.Request request, double topP) {
+        if (hedgePolicy == null || !hedgePolicy.isHedged(functionName)) return createResilientChatCompletion(request, topP);
+        AIModel model = request.getModel();
+        long delay = hedgePolicy.getDelay(functionName, model);
+        CompletionService<ChatCompletionResult> completionService = new ExecutorCompletionService<>(hedgePolicy.getExecutor());
+        Map<Future<ChatCompletionResult>, CallCancellation> pending = new HashMap<>(4);
+        boolean answered = false;
+        try {
+            long start = System.nanoTime();
+            Future<ChatCompletionResult> primary = submitAttempt(completionService, pending, request, topP);
+            Future<ChatCompletionResult> done = completionService.poll(delay, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                if (hedgePolicy.tryHedge()) submitAttempt(completionService, pending, request, topP);
+                done = completionService.take();
+            }
+            while (true) {
+                pending.remove(done);
+                try {
+                    ChatCompletionResult response = done.get();
+                    answered = true;
+                    hedgePolicy.record(functionName, model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), done != primary);
+                    return response;
+                } catch (ExecutionException e) {
+                    if (pending.isEmpty()) {
+                        if (e.getCause() instanceof RuntimeException cause) throw cause;
+                        throw new RuntimeException(e.getCause());
+                    }
+                    done = completionService.take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Hedged chat completion interrupted", e);
+        } finally {
+            for (Map.Entry<Future<ChatCompletionResult>, CallCancellation> attempt : pending.entrySet()) {
+                cancelAttempt(attempt.getKey(), attempt.getValue(), answered);
+            }
+        }
+    }
+
+    private Future<ChatCompletionResult> submitAttempt(CompletionService<ChatCompletionResult> completionService, Map<Future<ChatCompletionResult>, CallCancellation> pending,
+                                                       ContextWindowGuard.Request request, double topP) {
+        CallCancellation cancellation = new CallCancellation();
+        Future<ChatCompletionResult> attempt = completionService.submit(() -> cancellation.run(() -> createResilientChatCompletion(request, topP)));
+        pending.put(attempt, cancellation);
+        return attempt;
+    }
+
+    private void cancelAttempt(Future<ChatCompletionResult> attempt, CallCancellation cancellation, boolean lost) {
+        if (attempt.isDone()) {
+            try {
+                if (lost) hedgePolicy.recordLoser(attempt.get().getUsage());
+            } catch (ExecutionException | InterruptedException | CancellationException ignored) {
+            }
+            return;
+        }
+        attempt.cancel(true);
+        cancellation.cancel();
+        if (lost) hedgePolicy.recordCancelled();
+    }
+
+    /**
+     * Creates a chat completion request through the circuit breaker of its model, if any, retrying transient failures
+     * with the backoff of the retry policy, if any. Every attempt goes through the rate limiter again.
+     *
+     * @param request The request checked against the context window of its model.
+     * @param topP    The top-p value for generating diverse completions.
+     * @return The chat completion result.
+     * @throws io.github.zezeg2.aisupport.common.exceptions.CircuitBreakerOpenException if the circuit of the model is open.
+     */
+    protected ChatCompletionResult createResilientChatCompletion(ContextWindowGuard.Request request, double topP) {
+        AIModel model = request.getModel();
+        for (int attempt = 1; ; attempt++) {
+            if (circuitBreaker != null) circuitBreaker.acquirePermission(model);
+            try {
+                ChatCompletionResult response = createRateLimitedChatCompletion(request, topP);
+                if (circuitBreaker != null) circuitBreaker.record(model, false);
+                return response;
+            } catch (RateLimitExceededException e) {
+                if (circuitBreaker != null) circuitBreaker.release(model);
+                throw e;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted() || e.getCause() instanceof InterruptedException) {
+                    if (circuitBreaker != null) circuitBreaker.release(model);
+                    throw e;
+                }
+                if (circuitBreaker != null) circuitBreaker.record(model, RetryPolicy.isTransient(e));
+                long backoff = retryPolicy == null ? -1 : retryPolicy.getBackoff(e, attempt);
+                if (backoff < 0) throw e;
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a chat completion request once the rate limiter, if any, lets it through,
+     * and then corrects the tokens acquired for it with the tokens it actually used.
+     *
+     * @param request The request checked against the context window of its model.
+     * @param topP    The top-p value for generating diverse completions.
+     * @return The chat completion result.
+     */
+    protected ChatCompletionResult createRateLimitedChatCompletion(ContextWindowGuard.Request request, double topP) {
+        if (rateLimiter == null) return createChatCompletion(request.getModel(), request.getMessages(), topP);
+        long tokens = contextWindowGuard.getRequestTokens(request);
+        rateLimiter.acquire(request.getModel(), tokens);
+        ChatCompletionResult response = createChatCompletion(request.getModel(), request.getMessages(), topP);
+        if (response.getUsage() != null) rateLimiter.settle(request.getModel(), tokens, response.getUsage().getTotalTokens());
+        return response;
+    }
+
     /**
      * Creates a chat completion request using the AI model and chat messages.
      *
@@ -76,6 +227,17 @@ public class PromptManager {
                 .build());
     }
 
+    /**
+     * Estimates the bill of a chat completion request before it is sent, as it would be sent after the context window check.
+     *
+     * @param model    The AI model to use for the chat completion.
+     * @param messages The list of chat messages.
+     * @return The estimated bill, with the configured completion reserve as the completion size.
+     */
+    public Bill estimateBill(AIModel model, List<ChatMessage> messages) {
+        return contextWindowGuard.estimateBill(model, messages);
+    }
+
     public Bill getExecutionBill(PromptMessageContext messageContext) {
         Bill bill = new Bill();
         bill.addUsage(messageContext.getModel(), messageContext.getUsage());
@@ -1,15 +1,20 @@
 package io.github.zezeg2.aisupport.core.function.prompt;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.theokanning.openai.Usage;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.annotation.PersistenceCreator;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -25,6 +30,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 @Data
 @Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Document
 public class PromptMessageContext implements Serializable, MessageContext {
     private String id;
@@ -54,6 +60,12 @@ public class PromptMessageContext implements Serializable, MessageContext {
     private List<ChatMessage> messages;
     private AIModel model;
     private Usage usage;
+
+    /**
+     * The time at which this PromptMessageContext expires in stores supporting per-document expiry, or null to keep it forever.
+     */
+    @JsonIgnore
+    private Instant expireAt;
     @Builder.Default
     private List<FeedbackMessageContext> feedbackMessageContexts = new CopyOnWriteArrayList<>();
 
@@ -65,6 +77,7 @@ public class PromptMessageContext implements Serializable, MessageContext {
      * @param messages     The list of chat messages to be stored in the PromptMessageContext.
      */
     @JsonCreator
+    @PersistenceCreator
     public PromptMessageContext(@JsonProperty("id") String id,
                                 @JsonProperty("seq") long seq,
                                 @JsonProperty("identifier") String identifier,
@@ -0,0 +1,44 @@
+package io.github.zezeg2.aisupport.core.function.prompt;
+
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.common.enums.Role;
+import io.github.zezeg2.aisupport.config.properties.RetryHistory;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The RetryHistoryCompactor class selects the messages of a message context sent with a chat completion request according to the
+ * configured {@link RetryHistory} strategy, so that the prompt tokens of the validation feedback loop do not grow with every retry.
+ * The messages of the context itself are never modified.
+ */
+@RequiredArgsConstructor
+public class RetryHistoryCompactor {
+
+    private final RetryHistory retryHistory;
+
+    /**
+     * Selects the messages to send for a message context.
+     *
+     * @param contextType The type of context (prompt or feedback).
+     * @param messages    The messages of the context.
+     * @return The messages to send, the given list itself when nothing is left out.
+     */
+    public List<ChatMessage> compact(ContextType contextType, List<ChatMessage> messages) {
+        if (retryHistory == RetryHistory.FULL) return messages;
+        int first = 0;
+        while (first < messages.size() && !Role.USER.getValue().equals(messages.get(first).getRole())) first++;
+
+        // A prompt context keeps its original user input and the latest candidate with its feedback,
+        // a feedback context only the latest candidate, as every candidate is reviewed on its own.
+        int prefix = contextType == ContextType.PROMPT ? first + 1 : first;
+        int latest = contextType == ContextType.PROMPT ? 2 : 1;
+        if (messages.size() - prefix <= latest) return messages;
+
+        List<ChatMessage> compacted = new ArrayList<>(prefix + latest);
+        compacted.addAll(messages.subList(0, prefix));
+        compacted.addAll(messages.subList(messages.size() - latest, messages.size()));
+        return compacted;
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.zezeg2.aisupport.core.function.prompt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SystemPromptRegistry class holds the system prompts rendered per function and example.
+ * A rendered system prompt is looked up by the content of the prompt and the compact JSON form of the example, so repeated
+ * executions with equal prompts and examples skip rendering the template and pretty printing the example, even when the
+ * context holder deserializes a new prompt and the caller builds a new example for every execution.
+ * The least recently used system prompt is evicted beyond the maximum size.
+ */
+public class SystemPromptRegistry {
+    private static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * The rendered system prompts by the fingerprint of their prompt and example.
+     */
+    private final Map<Fingerprint, String> registry;
+
+    /**
+     * The pretty printing writers, one per ObjectMapper in use.
+     */
+    private final Map<ObjectMapper, ObjectWriter> prettyWriters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a SystemPromptRegistry holding at most 1024 system prompts.
+     */
+    public SystemPromptRegistry() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a SystemPromptRegistry.
+     *
+     * @param maxSize The maximum number of system prompts held.
+     */
+    public SystemPromptRegistry(int maxSize) {
+        this.registry = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the system prompt rendered from the prompt and the example, rendering and registering it when absent.
+     *
+     * @param prompt  The prompt of the function.
+     * @param example An example object used in the execution, or {@code null}.
+     * @param mapper  The ObjectMapper used to serialize the example.
+     * @return The rendered system prompt.
+     * @throws JsonProcessingException if the example cannot be serialized.
+     */
+    public String getSystemPrompt(Prompt prompt, Object example, ObjectMapper mapper) throws JsonProcessingException {
+        Fingerprint fingerprint = new Fingerprint(prompt.getFunctionName(), prompt.getRole(), prompt.getCommand(), prompt.getConstraints(),
+                prompt.getInputFormat(), prompt.getResultFormat(), prompt.getFeedbackFormat(), mapper,
+                example == null ? null : mapper.writeValueAsString(example));
+        String systemPrompt;
+        synchronized (registry) {
+            systemPrompt = registry.get(fingerprint);
+        }
+        if (systemPrompt != null) return systemPrompt;
+
+        systemPrompt = prompt.generate(example == null ? "" : getPrettyWriter(mapper).writeValueAsString(example));
+        synchronized (registry) {
+            registry.put(fingerprint, systemPrompt);
+        }
+        return systemPrompt;
+    }
+
+    /**
+     * Retrieves the pretty printing writer of the given ObjectMapper.
+     *
+     * @param mapper The ObjectMapper.
+     * @return The pretty printing writer.
+     */
+    public ObjectWriter getPrettyWriter(ObjectMapper mapper) {
+        return prettyWriters.computeIfAbsent(mapper, ObjectMapper::writerWithDefaultPrettyPrinter);
+    }
+
+    /**
+     * The content a system prompt is rendered from: the prompt fields used by the template, the ObjectMapper
+     * and the compact JSON form of the example.
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Fingerprint {
+        private final String functionName;
+        private final String role;
+        private final String command;
+        private final String constraints;
+        private final String inputFormat;
+        private final String resultFormat;
+        private final String feedbackFormat;
+        private final ObjectMapper mapper;
+        private final String example;
+    }
+}
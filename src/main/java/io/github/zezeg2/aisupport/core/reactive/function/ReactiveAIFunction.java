@@ -2,7 +2,11 @@ package io.github.zezeg2.aisupport.core.reactive.function;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.cache.ResultCacheKey;
+import io.github.zezeg2.aisupport.cache.reactive.ReactiveSingleFlight;
 import io.github.zezeg2.aisupport.common.argument.Argument;
+import io.github.zezeg2.aisupport.common.bill.Bill;
 import io.github.zezeg2.aisupport.common.constraint.Constraint;
 import io.github.zezeg2.aisupport.common.enums.Role;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
@@ -10,7 +14,9 @@ import io.github.zezeg2.aisupport.common.enums.model.gpt.ModelMapper;
 import io.github.zezeg2.aisupport.common.exceptions.CustomJsonException;
 import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
 import io.github.zezeg2.aisupport.common.type.SimpleResult;
+import io.github.zezeg2.aisupport.common.type.StreamResult;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
+import io.github.zezeg2.aisupport.context.ContextRetention;
 import io.github.zezeg2.aisupport.context.reactive.ReactivePromptContextHolder;
 import io.github.zezeg2.aisupport.core.function.ExecuteParameters;
 import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
@@ -19,12 +25,14 @@ import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
 import io.github.zezeg2.aisupport.core.reactive.function.prompt.ReactivePromptManager;
 import io.github.zezeg2.aisupport.core.reactive.validator.ReactiveResultValidatorChain;
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The ReactiveAIFunction class represents a reactive version of an AI function that interacts with a chat-based AI system.
@@ -45,6 +53,7 @@ public class ReactiveAIFunction<T> {
     private final ReactiveResultValidatorChain resultValidatorChain;
     private final ConstructResolver resolver;
     private final OpenAIProperties openAIProperties;
+    private final ReactiveSingleFlight singleFlight;
 
     /**
      * Retrieves the default AI model.
@@ -55,6 +64,19 @@ public class ReactiveAIFunction<T> {
         return ModelMapper.map(openAIProperties.getModel());
     }
 
+    /**
+     * Retrieves the prompt of the ReactiveAIFunction, creating and saving it on first use.
+     *
+     * @param args The list of arguments for the AI function.
+     * @return A Mono that emits the prompt of the ReactiveAIFunction.
+     */
+    private Mono<Prompt> getPrompt(List<Argument<?>> args) {
+        ReactivePromptContextHolder contextHolder = promptManager.getContextHolder();
+        return contextHolder.get(functionName)
+                .switchIfEmpty(Mono.just(new Prompt(functionName, this.role == null ? "" : this.role, command, constraints, args, returnType, topP, resolver))
+                        .flatMap(prompt -> contextHolder.savePrompt(functionName, prompt).thenReturn(prompt)));
+    }
+
     /**
      * Initializes the ReactiveAIFunction with the specified execution parameters using reactive operations.
      *
@@ -66,15 +88,13 @@ public class ReactiveAIFunction<T> {
         String identifier = params.getIdentifier();
         T example = params.getExample();
         ReactivePromptContextHolder contextHolder = promptManager.getContextHolder();
-        return contextHolder.get(functionName)
-                .switchIfEmpty(Mono.just(new Prompt(functionName, this.role == null ? "" : this.role, command, constraints, args, returnType, topP, resolver))
-                        .flatMap(prompt -> contextHolder.savePrompt(functionName, prompt).thenReturn(prompt)))
+        return getPrompt(args)
                 .flatMap(prompt -> contextHolder.<PromptMessageContext>createMessageContext(ContextType.PROMPT, functionName, identifier)
                         .flatMap(promptMessageContext -> {
                             promptMessageContext.setUserInput(createArgsMap(args));
                             promptMessageContext.setModel(params.getModel());
                             try {
-                                promptManager.addMessageToContext(ContextType.PROMPT, promptMessageContext, Role.SYSTEM, prompt.generate(example == null ? "" : mapper.writerWithDefaultPrettyPrinter().writeValueAsString(example)));
+                                promptManager.addMessageToContext(ContextType.PROMPT, promptMessageContext, Role.SYSTEM, promptManager.getSystemPromptRegistry().getSystemPrompt(prompt, example, mapper));
                             } catch (JsonProcessingException e) {
                                 return Mono.error(new CustomJsonException(e));
                             }
@@ -92,7 +112,7 @@ public class ReactiveAIFunction<T> {
      */
     private String createArgsString(List<Argument<?>> args) {
         try {
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(createArgsMap(args));
+            return promptManager.getSystemPromptRegistry().getPrettyWriter(mapper).writeValueAsString(createArgsMap(args));
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
@@ -119,14 +139,21 @@ public class ReactiveAIFunction<T> {
 
     private Mono<T> parseResponseWithValidate(PromptMessageContext promptMessageContext) {
         return resultValidatorChain.validate(promptMessageContext)
-                .flatMap((validatedResult) -> {
-                    try {
-                        return Mono.just(mapper.readValue(validatedResult, returnType));
-                    } catch (JsonProcessingException e) {
-                        return Mono.error(new RuntimeException(e));
-                    }
-                })
-                .onErrorResume(Mono::error);
+                .flatMap(this::parseResult);
+    }
+
+    /**
+     * Parses the validated result into the return type of the ReactiveAIFunction.
+     *
+     * @param validatedResult The result validated by the result validator chain.
+     * @return A Mono that emits the parsed response object.
+     */
+    private Mono<T> parseResult(String validatedResult) {
+        try {
+            return Mono.just(mapper.readValue(validatedResult, returnType));
+        } catch (JsonProcessingException e) {
+            return Mono.error(new RuntimeException(e));
+        }
     }
 
     /**
@@ -136,24 +163,97 @@ public class ReactiveAIFunction<T> {
      * @return A Mono that emits the result of the execution.
      */
     public Mono<T> execute(ExecuteParameters<T> params) {
-        if (params.getModel() == null) params.setModel(getDefaultModel());
-        if (params.getIdentifier() == null) params.setIdentifier("temp-identifier-" + UUID.randomUUID());
-        return init(params)
-                .flatMap(promptMessageContext -> promptManager.exchangeMessages(ContextType.PROMPT, promptMessageContext, params.getModel(), topP, true)
-                        .flatMap(chatCompletionResult -> parseResponseWithValidate(promptMessageContext)));
+        return executeAndCountBill(params).map(SimpleResult::getResult);
+    }
+
+    /**
+     * Estimates the bill of the first chat completion request of an execution before it is sent, without creating a message context.
+     * Validation feedback rounds are not included, as their number is only known once the execution runs.
+     *
+     * @param params The execution parameters.
+     * @return A Mono that emits the estimated bill.
+     */
+    public Mono<Bill> estimateBill(ExecuteParameters<T> params) {
+        AIModel model = params.getModel() == null ? getDefaultModel() : params.getModel();
+        return getPrompt(params.getArgs())
+                .flatMap(prompt -> Mono.fromCallable(() -> List.of(
+                        new ChatMessage(Role.SYSTEM.getValue(), promptManager.getSystemPromptRegistry().getSystemPrompt(prompt, params.getExample(), mapper)),
+                        new ChatMessage(Role.USER.getValue(), createArgsString(params.getArgs())))))
+                .onErrorMap(JsonProcessingException.class, CustomJsonException::new)
+                .flatMap(messages -> promptManager.estimateBill(model, messages));
     }
 
+    /**
+     * Executes the ReactiveAIFunction with the specified execution parameters and counts the bill of the execution.
+     * When coalescing is enabled, concurrent identical executions share one in-flight execution;
+     * only the subscriber that ran it is billed.
+     *
+     * @param params The execution parameters.
+     * @return A Mono that emits the result of the execution with its bill.
+     */
     public Mono<SimpleResult<T>> executeAndCountBill(ExecuteParameters<T> params) {
         if (params.getModel() == null) params.setModel(getDefaultModel());
-        if (params.getIdentifier() == null) params.setIdentifier("temp-identifier-" + UUID.randomUUID());
-        return init(params)
+        if (params.getIdentifier() == null) params.setIdentifier(ContextRetention.TEMPORARY_IDENTIFIER_PREFIX + UUID.randomUUID());
+        Mono<SimpleResult<String>> execution = Mono.defer(() -> init(params)
                 .flatMap(promptMessageContext -> promptManager.exchangeMessages(ContextType.PROMPT, promptMessageContext, params.getModel(), topP, true).ofType(PromptMessageContext.class)
-                        .flatMap(response -> parseResponseWithValidate(response)
-                                .flatMap(result -> promptManager.getExecutionBill(response)
-                                        .flatMap(bill -> Mono.just(SimpleResult.<T>builder().result(result).bill(bill).build()))
-                                )
-                        )
-                );
+                        .flatMap(response -> resultValidatorChain.validate(response)
+                                .flatMap(validatedResult -> promptManager.getExecutionBill(response)
+                                        .map(bill -> SimpleResult.<String>builder().result(validatedResult).bill(bill).build())))));
+        if (singleFlight != null) execution = coalesce(params, execution);
+        return execution.flatMap(validated -> parseResult(validated.getResult())
+                .map(result -> SimpleResult.<T>builder().result(result).bill(validated.getBill()).build()));
+    }
+
+    /**
+     * Shares the execution with concurrent identical executions with the same identifier, or with any temporary identifier.
+     *
+     * @param params    The execution parameters.
+     * @param execution The execution producing the validated result with its bill.
+     * @return A Mono that emits the validated result, with an empty bill when another execution was shared.
+     */
+    private Mono<SimpleResult<String>> coalesce(ExecuteParameters<T> params, Mono<SimpleResult<String>> execution) {
+        return Mono.defer(() -> {
+            AtomicBoolean executed = new AtomicBoolean();
+            String executionKey = ResultCacheKey.of(functionName, params.getModel(), topP, createExampleString(params.getExample()), createArgsString(params.getArgs()));
+            return singleFlight.execute(ResultCacheKey.forCaller(executionKey, params.getIdentifier()), () -> {
+                        executed.set(true);
+                        return execution;
+                    })
+                    .map(validated -> executed.get() ? validated : SimpleResult.<String>builder().result(validated.getResult()).bill(new Bill()).build());
+        });
+    }
+
+    /**
+     * Creates a string representation of the example for the AI function.
+     *
+     * @param example An example object used in the execution, or {@code null}.
+     * @return The string representation of the example.
+     */
+    private String createExampleString(T example) {
+        try {
+            return example == null ? "" : promptManager.getSystemPromptRegistry().getPrettyWriter(mapper).writeValueAsString(example);
+        } catch (JsonProcessingException e) {
+            throw new CustomJsonException(e);
+        }
+    }
+
+    /**
+     * Executes the ReactiveAIFunction as a streamed chat completion.
+     * Content deltas are emitted while the completion is generated; the final element carries the result
+     * parsed and validated by the result validator chain, together with the execution bill.
+     *
+     * @param params The execution parameters.
+     * @return A Flux that emits the content deltas followed by the validated result.
+     */
+    public Flux<StreamResult<T>> executeStream(ExecuteParameters<T> params) {
+        if (params.getModel() == null) params.setModel(getDefaultModel());
+        if (params.getIdentifier() == null) params.setIdentifier(ContextRetention.TEMPORARY_IDENTIFIER_PREFIX + UUID.randomUUID());
+        return init(params)
+                .flatMapMany(promptMessageContext -> promptManager.exchangeMessagesStream(ContextType.PROMPT, promptMessageContext, params.getModel(), topP, true)
+                        .map(delta -> StreamResult.<T>builder().delta(delta).build())
+                        .concatWith(Mono.defer(() -> parseResponseWithValidate(promptMessageContext)
+                                .flatMap(result -> promptManager.getExecutionBill(promptMessageContext)
+                                        .map(bill -> StreamResult.<T>builder().result(result).bill(bill).build())))));
     }
 }
 
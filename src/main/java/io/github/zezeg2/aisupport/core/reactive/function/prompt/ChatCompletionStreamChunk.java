@@ -0,0 +1,23 @@
+package io.github.zezeg2.aisupport.core.reactive.function.prompt;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.theokanning.openai.Usage;
+import com.theokanning.openai.completion.chat.ChatCompletionChoice;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The ChatCompletionStreamChunk class represents a single server-sent event of a streamed chat completion.
+ * Each choice carries a content delta; the last chunk carries the usage of the whole completion when the API reports it.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ChatCompletionStreamChunk {
+    private String id;
+    private String model;
+    private List<ChatCompletionChoice> choices;
+    private Usage usage;
+}
@@ -0,0 +1,169 @@
+package io.github.zezeg2.aisupport.core.reactive.function.prompt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.theokanning.openai.OpenAiError;
+import com.theokanning.openai.OpenAiHttpException;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.service.OpenAiService;
+import io.github.zezeg2.aisupport.common.exceptions.ChatCompletionHttpException;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ReactiveChatCompletionClient class calls the OpenAI chat completion API over Reactor Netty.
+ * Requests are written and responses are decoded without blocking the subscribing thread,
+ * and cancelling the returned Mono closes the in-flight HTTP exchange.
+ */
+public class ReactiveChatCompletionClient {
+    private static final String BASE_URL = "https://api.openai.com";
+    private static final String CHAT_COMPLETION_PATH = "/v1/chat/completions";
+    private static final String EVENT_DATA_PREFIX = "data:";
+    private static final String EVENT_STREAM_DONE = "[DONE]";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper mapper;
+
+    /**
+     * Constructs a ReactiveChatCompletionClient authenticated with the given API token.
+     *
+     * @param token   The API token used for authentication with the OpenAI service.
+     * @param timeout The response timeout for API requests.
+     */
+    public ReactiveChatCompletionClient(String token, Duration timeout) {
+        this(HttpClient.create()
+                .baseUrl(BASE_URL)
+                .responseTimeout(timeout)
+                .headers(headers -> headers
+                        .set(HttpHeaderNames.AUTHORIZATION, "Bearer " + token)
+                        .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)), OpenAiService.defaultObjectMapper());
+    }
+
+    /**
+     * Constructs a ReactiveChatCompletionClient with a preconfigured HttpClient.
+     *
+     * @param httpClient The HttpClient carrying the base url and authorization header.
+     * @param mapper     The ObjectMapper using the OpenAI API naming strategy.
+     */
+    public ReactiveChatCompletionClient(HttpClient httpClient, ObjectMapper mapper) {
+        this.httpClient = httpClient;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Sends a chat completion request.
+     *
+     * @param request The chat completion request.
+     * @return A Mono emitting the chat completion result, or an OpenAiHttpException when the API responds with an error.
+     */
+    public Mono<ChatCompletionResult> createChatCompletion(ChatCompletionRequest request) {
+        return Mono.fromCallable(() -> mapper.writeValueAsBytes(request))
+                .flatMap(body -> httpClient.post()
+                        .uri(CHAT_COMPLETION_PATH)
+                        .send(Mono.fromSupplier(() -> Unpooled.wrappedBuffer(body)))
+                        .responseSingle((response, content) -> content.asByteArray()
+                                .defaultIfEmpty(new byte[0])
+                                .handle((bytes, sink) -> {
+                                    int statusCode = response.status().code();
+                                    try {
+                                        if (statusCode >= 400) sink.error(toHttpException(statusCode, response.responseHeaders().get(HttpHeaderNames.RETRY_AFTER), bytes));
+                                        else sink.next(mapper.readValue(bytes, ChatCompletionResult.class));
+                                    } catch (IOException e) {
+                                        sink.error(new RuntimeException("Error deserializing the chat completion result", e));
+                                    }
+                                })));
+    }
+
+    /**
+     * Sends a chat completion request with {@code stream=true} and emits the server-sent chunks as they arrive.
+     * Usage reporting is requested so that the last chunk carries the usage of the whole completion.
+     *
+     * @param request The chat completion request.
+     * @return A Flux emitting the streamed chunks, or an OpenAiHttpException when the API responds with an error.
+     */
+    public Flux<ChatCompletionStreamChunk> streamChatCompletion(ChatCompletionRequest request) {
+        return Mono.fromCallable(() -> {
+                    ObjectNode body = mapper.valueToTree(request);
+                    body.put("stream", true);
+                    body.putObject("stream_options").put("include_usage", true);
+                    return mapper.writeValueAsBytes(body);
+                })
+                .flatMapMany(body -> httpClient.post()
+                        .uri(CHAT_COMPLETION_PATH)
+                        .send(Mono.fromSupplier(() -> Unpooled.wrappedBuffer(body)))
+                        .response((response, content) -> {
+                            int statusCode = response.status().code();
+                            if (statusCode >= 400) return content.aggregate().asByteArray()
+                                    .defaultIfEmpty(new byte[0])
+                                    .flatMapMany(bytes -> Flux.<String>error(toHttpException(statusCode, response.responseHeaders().get(HttpHeaderNames.RETRY_AFTER), bytes)));
+                            return splitLines(content.asByteArray());
+                        }))
+                .filter(line -> line.startsWith(EVENT_DATA_PREFIX))
+                .map(line -> line.substring(EVENT_DATA_PREFIX.length()).trim())
+                .takeWhile(data -> !data.equals(EVENT_STREAM_DONE))
+                .handle((data, sink) -> {
+                    try {
+                        sink.next(mapper.readValue(data, ChatCompletionStreamChunk.class));
+                    } catch (IOException e) {
+                        sink.error(new RuntimeException("Error deserializing the chat completion chunk", e));
+                    }
+                });
+    }
+
+    /**
+     * Splits the raw response body into lines, buffering partial lines (and multibyte characters) across network chunks.
+     *
+     * @param content The raw response body.
+     * @return A Flux emitting the lines of the response body.
+     */
+    private static Flux<String> splitLines(Flux<byte[]> content) {
+        return Flux.defer(() -> {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            return content.concatMapIterable(bytes -> {
+                List<String> lines = new ArrayList<>();
+                for (byte b : bytes) {
+                    if (b == '\n') {
+                        lines.add(buffer.toString(StandardCharsets.UTF_8).strip());
+                        buffer.reset();
+                    } else {
+                        buffer.write(b);
+                    }
+                }
+                return lines;
+            }).concatWith(Mono.fromSupplier(() -> buffer.toString(StandardCharsets.UTF_8).strip()));
+        });
+    }
+
+    /**
+     * Converts an error response of the OpenAI API into the exception thrown by the blocking OpenAiService,
+     * keeping the Retry-After header of the response for the retry policy.
+     *
+     * @param statusCode The HTTP status code of the response.
+     * @param retryAfter The Retry-After header of the response, or {@code null} if absent.
+     * @param body       The response body.
+     * @return The OpenAiHttpException describing the error.
+     */
+    protected OpenAiHttpException toHttpException(int statusCode, String retryAfter, byte[] body) {
+        OpenAiError error;
+        try {
+            error = mapper.readValue(body, OpenAiError.class);
+        } catch (IOException e) {
+            error = null;
+        }
+        if (error == null || error.getError() == null)
+            error = new OpenAiError(new OpenAiError.OpenAiErrorDetails(new String(body, StandardCharsets.UTF_8), null, null, null));
+        return new ChatCompletionHttpException(error, statusCode, retryAfter);
+    }
+}
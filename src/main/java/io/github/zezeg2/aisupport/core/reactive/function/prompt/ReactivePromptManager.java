@@ -1,5 +1,7 @@
 package io.github.zezeg2.aisupport.core.reactive.function.prompt;
 
+import com.theokanning.openai.Usage;
+import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
@@ -7,19 +9,34 @@ import com.theokanning.openai.service.OpenAiService;
 import io.github.zezeg2.aisupport.common.enums.Role;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
 import io.github.zezeg2.aisupport.common.bill.Bill;
+import io.github.zezeg2.aisupport.common.exceptions.RateLimitExceededException;
 import io.github.zezeg2.aisupport.common.util.JsonUtil;
 import io.github.zezeg2.aisupport.config.properties.ContextProperties;
 import io.github.zezeg2.aisupport.context.reactive.ReactivePromptContextHolder;
 import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextWindowGuard;
 import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
 import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
 import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
+import io.github.zezeg2.aisupport.core.function.prompt.RetryHistoryCompactor;
+import io.github.zezeg2.aisupport.core.function.prompt.SystemPromptRegistry;
+import io.github.zezeg2.aisupport.ratelimit.reactive.ReactiveRateLimiter;
+import io.github.zezeg2.aisupport.resilience.CircuitBreaker;
+import io.github.zezeg2.aisupport.resilience.HedgePolicy;
+import io.github.zezeg2.aisupport.resilience.RetryPolicy;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The ReactivePromptManager class is responsible for managing prompts and exchanging messages in a chat-based AI system in a reactive manner.
@@ -30,6 +47,14 @@ public class ReactivePromptManager {
     protected final OpenAiService service;
     protected final ReactivePromptContextHolder contextHolder;
     protected final ContextProperties contextProperties;
+    protected final ReactiveChatCompletionClient client;
+    protected final ContextWindowGuard contextWindowGuard;
+    protected final RetryHistoryCompactor retryHistoryCompactor;
+    protected final ReactiveRateLimiter rateLimiter;
+    protected final RetryPolicy retryPolicy;
+    protected final CircuitBreaker circuitBreaker;
+    protected final HedgePolicy hedgePolicy;
+    protected final SystemPromptRegistry systemPromptRegistry;
 
     /**
      * Adds a message to the prompt context.
@@ -48,6 +73,7 @@ public class ReactivePromptManager {
 
     /**
      * Exchange messages in the chat-based AI system and retrieve the chat completion result.
+     * Only the messages selected by the retry history strategy are sent, and the request is checked against the context window of the model, as {@link ContextWindowGuard} describes.
      *
      * @param contextType    The type of context (prompt or feedback).
      * @param messageContext Message context for calling openai chat completion api.
@@ -58,7 +84,8 @@ public class ReactivePromptManager {
      */
 
     public <T extends MessageContext> Mono<T> exchangeMessages(ContextType contextType, MessageContext messageContext, AIModel model, double topP, boolean save) {
-        return createChatCompletion(model, messageContext.getMessages(), topP)
+        return Mono.fromCallable(() -> checkContextWindow(contextType, messageContext, model))
+                .flatMap(request -> createHedgedChatCompletion(messageContext.getFunctionName(), request, topP))
                 .flatMap(response -> {
                     ChatMessage responseMessage = response.getChoices().get(0).getMessage();
                     responseMessage.setContent(JsonUtil.extractJsonFromMessage(responseMessage.getContent()));
@@ -71,8 +98,193 @@ public class ReactivePromptManager {
     }
 
 
+    /**
+     * Exchange messages in the chat-based AI system as a streamed chat completion.
+     * Content deltas are emitted as they arrive; once the stream completes, the assembled response and the reported usage
+     * are added to the message context, exactly as {@link #exchangeMessages} does for a non-streamed completion.
+     * A stream failing transiently is retried only as long as it has not emitted any chunk.
+     *
+     * @param contextType    The type of context (prompt or feedback).
+     * @param messageContext Message context for calling openai chat completion api.
+     * @param model          The AI model to use for the chat completion.
+     * @param topP           The top-p value for generating diverse completions.
+     * @param save           Specifies whether to save the generated response in the prompt context.
+     * @return A Flux emitting the content deltas of the chat completion.
+     */
+    public Flux<String> exchangeMessagesStream(ContextType contextType, MessageContext messageContext, AIModel model, double topP, boolean save) {
+        return Flux.defer(() -> {
+            StringBuilder content = new StringBuilder();
+            AtomicReference<Usage> usage = new AtomicReference<>();
+            ContextWindowGuard.Request request = checkContextWindow(contextType, messageContext, model);
+            long tokens = rateLimiter == null ? 0 : contextWindowGuard.getRequestTokens(request);
+            Mono<Void> turn = rateLimiter == null ? Mono.empty() : rateLimiter.acquire(request.getModel(), tokens);
+            Flux<ChatCompletionStreamChunk> chunks = turn.thenMany(createChatCompletionStream(request.getModel(), request.getMessages(), topP));
+            return withRetry(withCircuitBreaker(request.getModel(), chunks))
+                    .doOnNext(chunk -> {
+                        if (chunk.getUsage() != null) usage.set(chunk.getUsage());
+                    })
+                    .flatMapIterable(chunk -> chunk.getChoices() == null ? List.<ChatCompletionChoice>of() : chunk.getChoices())
+                    .map(choice -> choice.getMessage() == null || choice.getMessage().getContent() == null ? "" : choice.getMessage().getContent())
+                    .filter(delta -> !delta.isEmpty())
+                    .doOnNext(content::append)
+                    .concatWith(Mono.defer(() -> {
+                        messageContext.getMessages().add(new ChatMessage(Role.ASSISTANT.getValue(), JsonUtil.extractJsonFromMessage(content.toString())));
+                        messageContext.setUsage(usage.get());
+                        if (rateLimiter != null && usage.get() != null) rateLimiter.settle(request.getModel(), tokens, usage.get().getTotalTokens());
+                        return save ? contextHolder.saveMessageContext(contextType, messageContext) : Mono.<Void>empty();
+                    }).then(Mono.empty()));
+        });
+    }
+
+    /**
+     * Selects the messages of a context to send and checks them against the context window of the model,
+     * updating the model of the context when the request is moved to another model.
+     *
+     * @param contextType    The type of context (prompt or feedback).
+     * @param messageContext Message context for calling openai chat completion api.
+     * @param model          The AI model to use for the chat completion.
+     * @return The request to send.
+     */
+    protected ContextWindowGuard.Request checkContextWindow(ContextType contextType, MessageContext messageContext, AIModel model) {
+        ContextWindowGuard.Request request = contextWindowGuard.check(model, retryHistoryCompactor.compact(contextType, messageContext.getMessages()));
+        if (request.getModel() != model) messageContext.setModel(request.getModel());
+        return request;
+    }
+
+    /**
+     * Creates a chat completion request, hedging it when its function opted in: if no response arrives within the hedge delay
+     * and the hedge budget allows, the request is sent again, the first successful response is taken and the other request is cancelled.
+     * A request failing before the hedge delay is not hedged.
+     *
+     * @param functionName The name of the function the request belongs to.
+     * @param request      The request checked against the context window of its model.
+     * @param topP         The top-p value for generating diverse completions.
+     * @return A Mono containing the chat completion result.
+     */
+    protected Mono<ChatCompletionResult> createHedgedChatCompletion(String functionName, ContextWindowGuard.Request request, double topP) {
+        if (hedgePolicy == null || !hedgePolicy.isHedged(functionName)) return createResilientChatCompletion(request, topP);
+        AIModel model = request.getModel();
+        return Mono.defer(() -> {
+            long delay = hedgePolicy.getDelay(functionName, model);
+            long start = System.nanoTime();
+            AtomicBoolean answered = new AtomicBoolean();
+            Sinks.One<Boolean> primaryFailed = Sinks.one();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Mono<ChatCompletionResult> primary = raced(functionName, model, createResilientChatCompletion(request, topP), false, start, answered)
+                    .doOnError(e -> primaryFailed.tryEmitValue(true));
+            Mono<ChatCompletionResult> hedge = Mono.delay(Duration.ofMillis(delay))
+                    .takeUntilOther(primaryFailed.asMono())
+                    .filter(tick -> hedgePolicy.tryHedge())
+                    .flatMap(tick -> raced(functionName, model, createResilientChatCompletion(request, topP), true, start, answered));
+            return Flux.merge(primary.materialize(), hedge.materialize())
+                    .doOnNext(signal -> {
+                        if (signal.isOnError()) failure.compareAndSet(null, signal.getThrowable());
+                    })
+                    .filter(Signal::isOnNext)
+                    .next()
+                    .map(Signal::get)
+                    .switchIfEmpty(Mono.error(failure::get));
+        });
+    }
+
+    /**
+     * Records the outcome of one request of a race: the first response records the race with the time since the primary request
+     * was sent, a later response is recorded as a loser, and a request cancelled after the race was answered as a cancelled one.
+     */
+    private Mono<ChatCompletionResult> raced(String functionName, AIModel model, Mono<ChatCompletionResult> call, boolean hedge, long start, AtomicBoolean answered) {
+        return Mono.defer(() -> {
+            AtomicBoolean responded = new AtomicBoolean();
+            return call.doOnNext(response -> {
+                        responded.set(true);
+                        if (answered.compareAndSet(false, true)) hedgePolicy.record(functionName, model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), hedge);
+                        else hedgePolicy.recordLoser(response.getUsage());
+                    })
+                    .doOnCancel(() -> {
+                        if (answered.get() && !responded.get()) hedgePolicy.recordCancelled();
+                    });
+        });
+    }
+
+    /**
+     * Creates a chat completion request through the circuit breaker of its model, if any, retrying transient failures
+     * with the backoff of the retry policy, if any. Every attempt goes through the rate limiter again.
+     *
+     * @param request The request checked against the context window of its model.
+     * @param topP    The top-p value for generating diverse completions.
+     * @return A Mono containing the chat completion result, or failing with a
+     * {@link io.github.zezeg2.aisupport.common.exceptions.CircuitBreakerOpenException} if the circuit of the model is open.
+     */
+    protected Mono<ChatCompletionResult> createResilientChatCompletion(ContextWindowGuard.Request request, double topP) {
+        return withRetry(withCircuitBreaker(request.getModel(), createRateLimitedChatCompletion(request, topP).flux())).singleOrEmpty();
+    }
+
+    /**
+     * Subscribes to a call only if the circuit breaker of the model lets it through, and records its outcome.
+     * Cancelled calls and calls turned down by the rate limiter give their permission back.
+     *
+     * @param model The AI model of the call.
+     * @param call  The call.
+     * @return The call guarded by the circuit breaker, or the call itself if there is no circuit breaker.
+     */
+    protected <T> Flux<T> withCircuitBreaker(AIModel model, Flux<T> call) {
+        if (circuitBreaker == null) return call;
+        return Flux.defer(() -> {
+            circuitBreaker.acquirePermission(model);
+            AtomicBoolean recorded = new AtomicBoolean();
+            return call.doOnComplete(() -> {
+                        if (recorded.compareAndSet(false, true)) circuitBreaker.record(model, false);
+                    })
+                    .doOnError(e -> {
+                        if (!recorded.compareAndSet(false, true)) return;
+                        if (e instanceof RateLimitExceededException) circuitBreaker.release(model);
+                        else circuitBreaker.record(model, RetryPolicy.isTransient(e));
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) circuitBreaker.release(model);
+                    });
+        });
+    }
+
+    /**
+     * Resubscribes to a call failing transiently after the backoff of the retry policy,
+     * as long as the call has not emitted anything that a retry would emit again.
+     *
+     * @param call The call.
+     * @return The retried call, or the call itself if there is no retry policy.
+     */
+    protected <T> Flux<T> withRetry(Flux<T> call) {
+        if (retryPolicy == null) return call;
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            return call.doOnNext(item -> emitted.set(true))
+                    .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                        long backoff = emitted.get() ? -1 : retryPolicy.getBackoff(signal.failure(), (int) signal.totalRetries() + 1);
+                        return backoff < 0 ? Mono.error(signal.failure()) : Mono.delay(Duration.ofMillis(backoff));
+                    })));
+        });
+    }
+
+    /**
+     * Creates a chat completion request once the rate limiter, if any, lets it through,
+     * and then corrects the tokens acquired for it with the tokens it actually used.
+     *
+     * @param request The request checked against the context window of its model.
+     * @param topP    The top-p value for generating diverse completions.
+     * @return A Mono containing the chat completion result.
+     */
+    protected Mono<ChatCompletionResult> createRateLimitedChatCompletion(ContextWindowGuard.Request request, double topP) {
+        if (rateLimiter == null) return createChatCompletion(request.getModel(), request.getMessages(), topP);
+        long tokens = contextWindowGuard.getRequestTokens(request);
+        return rateLimiter.acquire(request.getModel(), tokens)
+                .then(Mono.defer(() -> createChatCompletion(request.getModel(), request.getMessages(), topP)))
+                .doOnNext(response -> {
+                    if (response.getUsage() != null) rateLimiter.settle(request.getModel(), tokens, response.getUsage().getTotalTokens());
+                });
+    }
+
     /**
      * Creates a chat completion request using the AI model and chat messages.
+     * The request is sent through the non-blocking ReactiveChatCompletionClient, so disposing the returned Mono aborts the HTTP call.
      *
      * @param model    The AI model to use for the chat completion.
      * @param messages The list of chat messages.
@@ -80,11 +292,38 @@ public class ReactivePromptManager {
      * @return A Mono containing the chat completion result.
      */
     protected Mono<ChatCompletionResult> createChatCompletion(AIModel model, List<ChatMessage> messages, double topP) {
-        return Mono.fromCallable(() -> service.createChatCompletion(ChatCompletionRequest.builder()
+        return client.createChatCompletion(ChatCompletionRequest.builder()
+                .model(model.getValue())
+                .messages(messages)
+                .topP(topP)
+                .build());
+    }
+
+    /**
+     * Creates a streamed chat completion request using the AI model and chat messages.
+     *
+     * @param model    The AI model to use for the chat completion.
+     * @param messages The list of chat messages.
+     * @param topP     The top-p value for generating diverse completions.
+     * @return A Flux emitting the streamed chunks of the chat completion.
+     */
+    protected Flux<ChatCompletionStreamChunk> createChatCompletionStream(AIModel model, List<ChatMessage> messages, double topP) {
+        return client.streamChatCompletion(ChatCompletionRequest.builder()
                 .model(model.getValue())
                 .messages(messages)
                 .topP(topP)
-                .build()));
+                .build());
+    }
+
+    /**
+     * Estimates the bill of a chat completion request before it is sent, as it would be sent after the context window check.
+     *
+     * @param model    The AI model to use for the chat completion.
+     * @param messages The list of chat messages.
+     * @return A Mono containing the estimated bill, with the configured completion reserve as the completion size.
+     */
+    public Mono<Bill> estimateBill(AIModel model, List<ChatMessage> messages) {
+        return Mono.fromCallable(() -> contextWindowGuard.estimateBill(model, messages));
     }
 
     public Mono<Bill> getExecutionBill(PromptMessageContext messageContext) {
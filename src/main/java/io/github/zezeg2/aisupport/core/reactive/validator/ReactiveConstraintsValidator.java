@@ -2,6 +2,7 @@ package io.github.zezeg2.aisupport.core.reactive.validator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.zezeg2.aisupport.common.constants.TemplateConstants;
+import io.github.zezeg2.aisupport.common.template.CompiledTemplate;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
 import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
 import io.github.zezeg2.aisupport.core.reactive.function.prompt.ReactivePromptManager;
@@ -23,6 +24,7 @@ import reactor.core.publisher.Mono;
 @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "reactive")
 @ValidateTarget(global = true, order = Integer.MAX_VALUE - 1)
 public class ReactiveConstraintsValidator extends ReactiveResultValidator {
+    private static final CompiledTemplate CONSTRAINT_VALIDATE_TEMPLATE = CompiledTemplate.compile(TemplateConstants.CONSTRAINT_VALIDATE_TEMPLATE);
 
     /**
      * Constructs a ReactiveConstraintsValidator with the necessary dependencies.
@@ -46,7 +48,7 @@ public class ReactiveConstraintsValidator extends ReactiveResultValidator {
     protected Mono<String> addTemplateContents(String functionName, FeedbackMessageContext feedbackMessageContext) {
         return getPrompt(functionName)
                 .flatMap(prompt -> Mono.just(prompt.getConstraints()))
-                .map(constraintsString -> (TemplateConstants.CONSTRAINT_VALIDATE_TEMPLATE.formatted(constraintsString)));
+                .map(constraintsString -> CONSTRAINT_VALIDATE_TEMPLATE.render(constraintsString));
     }
 
     /**
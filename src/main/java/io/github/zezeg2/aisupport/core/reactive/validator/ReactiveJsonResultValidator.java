@@ -2,11 +2,13 @@ package io.github.zezeg2.aisupport.core.reactive.validator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.zezeg2.aisupport.common.constants.TemplateConstants;
-import io.github.zezeg2.aisupport.common.util.BuildFormatUtil;
+import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
+import io.github.zezeg2.aisupport.common.template.CompiledTemplate;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
 import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
+import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
 import io.github.zezeg2.aisupport.core.reactive.function.prompt.ReactivePromptManager;
-import io.github.zezeg2.aisupport.core.validator.FeedbackResponse;
+import io.github.zezeg2.aisupport.core.validator.JsonStructureChecker;
 import io.github.zezeg2.aisupport.core.validator.ValidateTarget;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
@@ -20,11 +22,16 @@ import reactor.core.publisher.Mono;
  * It is conditionally enabled based on the property "ai-supporter.context.environment" with the value "reactive".
  * Additionally, it is annotated with @ValidateTarget(global = true) to indicate that this validator is applicable globally
  * for validation.
+ * <p>
+ * Responses that already comply with the structure of the result type are accepted locally by a JsonStructureChecker,
+ * without asking the AI model for feedback.
  */
 @Component
 @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "reactive")
 @ValidateTarget(global = true)
 public class ReactiveJsonResultValidator extends ReactiveResultValidator {
+    private static final CompiledTemplate JSON_VALIDATE_TEMPLATE = CompiledTemplate.compile(TemplateConstants.JSON_VALIDATE_TEMPLATE);
+    private final JsonStructureChecker structureChecker;
 
     /**
      * Constructs a ReactiveJsonResultValidator with the necessary dependencies.
@@ -32,9 +39,27 @@ public class ReactiveJsonResultValidator extends ReactiveResultValidator {
      * @param promptManager    The ReactivePromptManager instance for managing prompts and messages in a reactive context.
      * @param mapper           The ObjectMapper for JSON serialization and deserialization.
      * @param openAIProperties The properties for configuring the OpenAI service.
+     * @param resolver         The ConstructResolver for resolving the structure of result types.
      */
-    public ReactiveJsonResultValidator(ReactivePromptManager promptManager, ObjectMapper mapper, OpenAIProperties openAIProperties) {
+    public ReactiveJsonResultValidator(ReactivePromptManager promptManager, ObjectMapper mapper, OpenAIProperties openAIProperties, ConstructResolver resolver) {
         super(promptManager, mapper, openAIProperties);
+        this.structureChecker = new JsonStructureChecker(mapper, resolver);
+    }
+
+    /**
+     * Validates the AI model results, accepting the last response without a feedback round trip
+     * when it complies with the structure of the result type.
+     *
+     * @param promptMessageContext Prompt Message context for calling openai chat completion api.
+     * @return A {@code Mono<String>} representing the validated result as a string.
+     */
+    @Override
+    public Mono<String> validate(PromptMessageContext promptMessageContext) {
+        return getLastPromptResponseContent(promptMessageContext)
+                .zipWith(getPrompt(promptMessageContext.getFunctionName()))
+                .flatMap(tuple -> structureChecker.check(tuple.getT1(), tuple.getT2().getResultType())
+                        ? Mono.just(tuple.getT1())
+                        : super.validate(promptMessageContext));
     }
 
     @Override
@@ -42,7 +67,7 @@ public class ReactiveJsonResultValidator extends ReactiveResultValidator {
         return promptManager.getContextHolder().get(functionName).flatMap(prompt -> {
             String requiredFormat = prompt.getResultFormat();
             String structureInfo = prompt.getClassStructureInfo();
-            return Mono.just(TemplateConstants.JSON_VALIDATE_TEMPLATE.formatted(structureInfo, requiredFormat, BuildFormatUtil.getFormatString(FeedbackResponse.class)));
+            return Mono.just(JSON_VALIDATE_TEMPLATE.render(structureInfo, requiredFormat, FEEDBACK_RESPONSE_FORMAT));
         });
     }
 
@@ -7,6 +7,7 @@ import io.github.zezeg2.aisupport.common.constants.TemplateConstants;
 import io.github.zezeg2.aisupport.common.enums.Role;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
 import io.github.zezeg2.aisupport.common.enums.model.gpt.ModelMapper;
+import io.github.zezeg2.aisupport.common.template.CompiledTemplate;
 import io.github.zezeg2.aisupport.common.util.BuildFormatUtil;
 import io.github.zezeg2.aisupport.config.properties.Model;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
@@ -25,6 +26,14 @@ import java.util.List;
  */
 @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "reactive")
 public abstract class ReactiveResultValidator {
+    private static final CompiledTemplate FEEDBACK_FRAME_TEMPLATE = CompiledTemplate.compile(TemplateConstants.FEEDBACK_FRAME);
+    private static final CompiledTemplate FEEDBACK_FRAME_WITH_ROLE_TEMPLATE = CompiledTemplate.compile(TemplateConstants.FEEDBACK_FRAME_WITH_ROLE);
+
+    /**
+     * The format of the feedback response, which the feedback templates ask for.
+     */
+    protected static final String FEEDBACK_RESPONSE_FORMAT = BuildFormatUtil.getFormatString(FeedbackResponse.class);
+
     /**
      * The role of Validator for optimizing validation prompts
      */
@@ -82,8 +91,8 @@ public abstract class ReactiveResultValidator {
     protected Mono<String> buildTemplate(String functionName, FeedbackMessageContext feedbackMessageContext) {
         return addTemplateContents(functionName, feedbackMessageContext)
                 .flatMap(content -> getPrompt(functionName).map(Prompt::getResultFormat)
-                        .flatMap(resultFormat -> Mono.just(this.role == null ? TemplateConstants.FEEDBACK_FRAME.formatted(content, resultFormat, BuildFormatUtil.getFormatString(FeedbackResponse.class)) :
-                                TemplateConstants.FEEDBACK_FRAME_WITH_ROLE.formatted(this.role, content, resultFormat, BuildFormatUtil.getFormatString(FeedbackResponse.class)))));
+                        .flatMap(resultFormat -> Mono.just(this.role == null ? FEEDBACK_FRAME_TEMPLATE.render(content, resultFormat, FEEDBACK_RESPONSE_FORMAT) :
+                                FEEDBACK_FRAME_WITH_ROLE_TEMPLATE.render(this.role, content, resultFormat, FEEDBACK_RESPONSE_FORMAT))));
     }
 
 
@@ -121,6 +130,24 @@ public abstract class ReactiveResultValidator {
         });
     }
 
+    /**
+     * Asks the AI model for feedback on a candidate result, without requesting a correction.
+     *
+     * @param feedbackMessageContext Feedback message context initialized by this validator.
+     * @param candidate              The candidate result to review.
+     * @return A {@code Mono<FeedbackResponse>} emitting the feedback on the candidate, or completing empty if the feedback could not be parsed.
+     */
+    protected Mono<FeedbackResponse> review(FeedbackMessageContext feedbackMessageContext, String candidate) {
+        return exchangeMessages(feedbackMessageContext, candidate, ContextType.FEEDBACK, feedbackMessageContext.getModel())
+                .flatMap(feedbackContent -> {
+                    try {
+                        return Mono.just(mapper.readValue(feedbackContent, FeedbackResponse.class));
+                    } catch (JsonProcessingException e) {
+                        return promptManager.getContextHolder().deleteMessagesFromLast(ContextType.FEEDBACK, feedbackMessageContext, 2).then(Mono.empty());
+                    }
+                });
+    }
+
     /**
      * Exchanges messages with the AI model and retrieves the response content.
      * This method returns a {@code Mono<String>} representing the content of the AI model's response as a string.
@@ -1,13 +1,18 @@
 package io.github.zezeg2.aisupport.core.reactive.validator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.common.exceptions.CustomJsonException;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
 import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
+import io.github.zezeg2.aisupport.core.validator.FeedbackResponse;
+import io.github.zezeg2.aisupport.core.validator.Issue;
 import io.github.zezeg2.aisupport.core.validator.ValidateTarget;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -38,19 +43,91 @@ public class ReactiveResultValidatorChain {
      * The validation is performed based on the target function's annotations defined in the validators.
      * If a target function is marked as "global" or is explicitly listed in the validator's target names,
      * the corresponding validator is used to validate the results.
+     * Consecutive validators marked as independent are run concurrently (see {@link #validateConcurrently}).
      *
      * @param promptMessageContext Prompt Message context for calling openai chat completion api.
      * @return A {@code Mono<String>} representing the validated result as a string.
      */
 
     public Mono<String> validate(PromptMessageContext promptMessageContext) {
-        return Flux.fromIterable(validators)
-                .filter(validator -> {
-                    ValidateTarget targetFunction = validator.getClass().getAnnotation(ValidateTarget.class);
-                    List<String> targetFunctionList = Arrays.stream(targetFunction.names()).toList();
-                    return targetFunction.global() || targetFunctionList.contains(promptMessageContext.getFunctionName());
-                })
-                .concatMap(validator -> validator.validate(promptMessageContext)).last();
+        return Flux.fromIterable(groupValidators(peekValidators(promptMessageContext.getFunctionName())))
+                .concatMap(group -> group.size() > 1 ? validateConcurrently(promptMessageContext, group) : group.get(0).validate(promptMessageContext))
+                .last();
+    }
+
+    /**
+     * Groups the validators in validation order, putting consecutive independent validators into the same group.
+     *
+     * @param validators The validators in validation order.
+     * @return The groups of validators.
+     */
+    protected List<List<ReactiveResultValidator>> groupValidators(List<ReactiveResultValidator> validators) {
+        List<List<ReactiveResultValidator>> groups = new ArrayList<>();
+        boolean previousIndependent = false;
+        for (ReactiveResultValidator validator : validators) {
+            boolean independent = validator.getClass().getAnnotation(ValidateTarget.class).independent();
+            if (independent && previousIndependent) groups.get(groups.size() - 1).add(validator);
+            else groups.add(new ArrayList<>(List.of(validator)));
+            previousIndependent = independent;
+        }
+        return groups;
+    }
+
+    /**
+     * Validates the last response with a group of independent validators.
+     * Every validator reviews the same candidate concurrently; when any of them reports issues, the issues of all
+     * validators are merged into a single feedback, and the AI model is asked for one correction.
+     *
+     * @param promptMessageContext Prompt Message context for calling openai chat completion api.
+     * @param group                The independent validators.
+     * @return A {@code Mono<String>} emitting the result accepted by every validator of the group.
+     */
+    protected Mono<String> validateConcurrently(PromptMessageContext promptMessageContext, List<ReactiveResultValidator> group) {
+        return Flux.fromIterable(group)
+                .filterWhen(validator -> validator.ignoreCondition(promptMessageContext.getFunctionName(), promptMessageContext.getIdentifier()).map(ignore -> !ignore))
+                .collectList()
+                .flatMap(activeValidators -> {
+                    List<ChatMessage> messages = promptMessageContext.getMessages();
+                    String candidate = messages.get(messages.size() - 1).getContent();
+                    if (activeValidators.isEmpty()) return Mono.just(candidate);
+                    return Flux.fromIterable(activeValidators)
+                            .concatMap(validator -> validator.init(promptMessageContext, promptMessageContext.getIdentifier()))
+                            .collectList()
+                            .flatMap(feedbackMessageContexts -> reviewConcurrently(promptMessageContext, activeValidators, feedbackMessageContexts, candidate, 1));
+                });
+    }
+
+    private Mono<String> reviewConcurrently(PromptMessageContext promptMessageContext, List<ReactiveResultValidator> activeValidators,
+                                            List<FeedbackMessageContext> feedbackMessageContexts, String candidate, int count) {
+        ReactiveResultValidator leader = activeValidators.get(0);
+        if (count > leader.openAIProperties.getValidateRetry()) return Mono.error(new RuntimeException("Maximum Validate count over"));
+        return Flux.range(0, activeValidators.size())
+                .flatMap(i -> activeValidators.get(i).review(feedbackMessageContexts.get(i), candidate).map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .collectList()
+                .flatMap(reviews -> {
+                    if (reviews.stream().allMatch(review -> review.isPresent() && review.get().isValid())) {
+                        promptMessageContext.getFeedbackMessageContexts().addAll(feedbackMessageContexts);
+                        return leader.promptManager.getContextHolder().saveMessageContext(ContextType.PROMPT, promptMessageContext).thenReturn(candidate);
+                    }
+                    List<Issue> issues = reviews.stream()
+                            .flatMap(Optional::stream)
+                            .filter(feedbackResult -> !feedbackResult.isValid() && feedbackResult.getIssueList() != null)
+                            .flatMap(feedbackResult -> feedbackResult.getIssueList().stream())
+                            .toList();
+                    if (issues.isEmpty()) return reviewConcurrently(promptMessageContext, activeValidators, feedbackMessageContexts, candidate, count + 1);
+
+                    FeedbackResponse mergedFeedback = new FeedbackResponse();
+                    mergedFeedback.setValid(false);
+                    mergedFeedback.setIssueList(issues);
+                    String mergedFeedbackContent;
+                    try {
+                        mergedFeedbackContent = leader.mapper.writeValueAsString(mergedFeedback);
+                    } catch (JsonProcessingException e) {
+                        return Mono.error(new CustomJsonException(e));
+                    }
+                    return leader.exchangeMessages(promptMessageContext, mergedFeedbackContent, ContextType.PROMPT, promptMessageContext.getModel())
+                            .flatMap(corrected -> reviewConcurrently(promptMessageContext, activeValidators, feedbackMessageContexts, corrected, count + 1));
+                });
     }
 
     /**
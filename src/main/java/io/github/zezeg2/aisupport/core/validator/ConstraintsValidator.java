@@ -2,6 +2,7 @@ package io.github.zezeg2.aisupport.core.validator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.zezeg2.aisupport.common.constants.TemplateConstants;
+import io.github.zezeg2.aisupport.common.template.CompiledTemplate;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
 import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
 import io.github.zezeg2.aisupport.core.function.prompt.PromptManager;
@@ -21,6 +22,7 @@ import org.springframework.stereotype.Component;
 @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "synchronous")
 @ValidateTarget(global = true, order = Integer.MAX_VALUE - 1)
 public class ConstraintsValidator extends ResultValidator {
+    private static final CompiledTemplate CONSTRAINT_VALIDATE_TEMPLATE = CompiledTemplate.compile(TemplateConstants.CONSTRAINT_VALIDATE_TEMPLATE);
 
     /**
      * Constructs a ConstraintsValidator with the necessary dependencies.
@@ -42,7 +44,7 @@ public class ConstraintsValidator extends ResultValidator {
     @Override
     protected String addTemplateContents(String functionName, FeedbackMessageContext feedbackMessageContext) {
         String constraints = getPrompt(functionName).getConstraints();
-        return TemplateConstants.CONSTRAINT_VALIDATE_TEMPLATE.formatted(constraints);
+        return CONSTRAINT_VALIDATE_TEMPLATE.render(constraints);
     }
 
     /**
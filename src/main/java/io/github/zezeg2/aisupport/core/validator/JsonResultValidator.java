@@ -2,11 +2,13 @@ package io.github.zezeg2.aisupport.core.validator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.zezeg2.aisupport.common.constants.TemplateConstants;
-import io.github.zezeg2.aisupport.common.util.BuildFormatUtil;
+import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
+import io.github.zezeg2.aisupport.common.template.CompiledTemplate;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
 import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
 import io.github.zezeg2.aisupport.core.function.prompt.Prompt;
 import io.github.zezeg2.aisupport.core.function.prompt.PromptManager;
+import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
@@ -18,11 +20,16 @@ import org.springframework.stereotype.Component;
  * It is conditionally enabled based on the property "ai-supporter.context.environment" with the value "synchronous".
  * Additionally, it is annotated with @ValidateTarget(global = true) to indicate that this validator is applicable
  * globally for validation.
+ * <p>
+ * Responses that already comply with the structure of the result type are accepted locally by a JsonStructureChecker,
+ * without asking the AI model for feedback.
  */
 @Component
 @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "synchronous")
 @ValidateTarget(global = true)
 public class JsonResultValidator extends ResultValidator {
+    private static final CompiledTemplate JSON_VALIDATE_TEMPLATE = CompiledTemplate.compile(TemplateConstants.JSON_VALIDATE_TEMPLATE);
+    private final JsonStructureChecker structureChecker;
 
     /**
      * Constructs a JsonResultValidator with the necessary dependencies.
@@ -30,9 +37,26 @@ public class JsonResultValidator extends ResultValidator {
      * @param promptManager    The PromptManager instance for managing prompts and messages.
      * @param mapper           The ObjectMapper for JSON serialization and deserialization.
      * @param openAIProperties The properties for configuring the OpenAI service.
+     * @param resolver         The ConstructResolver for resolving the structure of result types.
      */
-    public JsonResultValidator(PromptManager promptManager, ObjectMapper mapper, OpenAIProperties openAIProperties) {
+    public JsonResultValidator(PromptManager promptManager, ObjectMapper mapper, OpenAIProperties openAIProperties, ConstructResolver resolver) {
         super(promptManager, mapper, openAIProperties);
+        this.structureChecker = new JsonStructureChecker(mapper, resolver);
+    }
+
+    /**
+     * Validates the AI model results, accepting the last response without a feedback round trip
+     * when it complies with the structure of the result type.
+     *
+     * @param promptMessageContext Prompt Message context for calling openai chat completion api
+     * @return The validated result as a string.
+     */
+    @Override
+    public String validate(PromptMessageContext promptMessageContext) {
+        String lastResponseContent = getLastPromptResponseContent(promptMessageContext);
+        if (structureChecker.check(lastResponseContent, getPrompt(promptMessageContext.getFunctionName()).getResultType()))
+            return lastResponseContent;
+        return super.validate(promptMessageContext);
     }
 
     /**
@@ -47,7 +71,7 @@ public class JsonResultValidator extends ResultValidator {
         Prompt prompt = promptManager.getContextHolder().get(functionName);
         String requiredFormat = prompt.getResultFormat();
         String structureInfo = prompt.getClassStructureInfo();
-        return TemplateConstants.JSON_VALIDATE_TEMPLATE.formatted(structureInfo, requiredFormat, BuildFormatUtil.getFormatString(FeedbackResponse.class));
+        return JSON_VALIDATE_TEMPLATE.render(structureInfo, requiredFormat, FEEDBACK_RESPONSE_FORMAT);
     }
 
     @Override
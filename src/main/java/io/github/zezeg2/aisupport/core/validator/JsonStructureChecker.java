@@ -0,0 +1,136 @@
+package io.github.zezeg2.aisupport.core.validator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.zezeg2.aisupport.common.annotation.FormatIgnore;
+import io.github.zezeg2.aisupport.common.resolver.ConstructResolver;
+import io.github.zezeg2.aisupport.common.util.BuildFormatUtil;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The JsonStructureChecker class checks locally whether a response complies with the structure of the result type,
+ * so that the JSON result validators only ask the AI model for feedback when the local check fails.
+ * A response complies when it is a single JSON object in which every field of the result type and of its nested types
+ * (as resolved by the ConstructResolver class map) is present and not null, and which deserializes into the result type
+ * without unknown properties, mismatching types or unknown enum values.
+ */
+public class JsonStructureChecker {
+    private final ObjectMapper mapper;
+    private final ConstructResolver resolver;
+    private final Map<Class<?>, Map<Class<?>, Map<String, List<String>>>> classMaps = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a JsonStructureChecker.
+     *
+     * @param mapper   The ObjectMapper used to deserialize the response.
+     * @param resolver The ConstructResolver used to resolve the structure of the result type.
+     */
+    public JsonStructureChecker(ObjectMapper mapper, ConstructResolver resolver) {
+        this.mapper = mapper;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Checks whether the response complies with the structure of the result type.
+     *
+     * @param content    The content of the response.
+     * @param resultType The class name of the result type, as recorded in the prompt.
+     * @return {@code true} if the response complies with the result type, {@code false} if it does not or cannot be checked locally.
+     */
+    public boolean check(String content, String resultType) {
+        if (content == null || resultType == null) return false;
+        Class<?> type;
+        try {
+            type = ClassUtils.forName(resultType, null);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+        if (!BuildFormatUtil.isBaseSupportType(type)) return false;
+
+        try {
+            JsonNode tree = mapper.reader().with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS).readTree(content);
+            if (!hasRequiredFields(tree, type)) return false;
+            ObjectReader reader = mapper.readerFor(type).with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
+                    DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES, DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS);
+            reader.readValue(tree);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks that every field of the given class is present and not null in the node, recursing into nested types.
+     *
+     * @param node  The JSON node to check.
+     * @param clazz The class the node should represent.
+     * @return {@code true} if every field is present.
+     */
+    private boolean hasRequiredFields(JsonNode node, Class<?> clazz) {
+        Map<String, List<String>> fields = classMaps.computeIfAbsent(clazz, c -> resolver.generateClassMap(Set.of(c), null)).get(clazz);
+        if (fields == null) return true;
+        if (!node.isObject()) return false;
+        for (String fieldName : fields.keySet()) {
+            Field field = findField(clazz, fieldName);
+            if (field == null || isIgnored(field)) continue;
+            JsonProperty property = field.getAnnotation(JsonProperty.class);
+            JsonNode child = node.get(property == null || property.value().isEmpty() ? fieldName : property.value());
+            if (child == null || child.isNull()) return false;
+
+            Class<?> nestedType = getNestedType(field);
+            if (nestedType == null || !BuildFormatUtil.isBaseSupportType(nestedType)) continue;
+            if (field.getType().isArray() || Collection.class.isAssignableFrom(field.getType())) {
+                if (!child.isArray()) return false;
+                for (JsonNode element : child) if (!hasRequiredFields(element, nestedType)) return false;
+            } else if (Map.class.isAssignableFrom(field.getType())) {
+                if (!child.isObject()) return false;
+                for (JsonNode value : child) if (!hasRequiredFields(value, nestedType)) return false;
+            } else if (!hasRequiredFields(child, nestedType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIgnored(Field field) {
+        int modifiers = field.getModifiers();
+        return Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                || field.getAnnotation(FormatIgnore.class) != null || field.getAnnotation(JsonIgnore.class) != null;
+    }
+
+    private static Field findField(Class<?> clazz, String fieldName) {
+        for (Class<?> current = clazz; current != null && !current.equals(Object.class); current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(fieldName);
+            } catch (NoSuchFieldException ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the type of the values held by a field: the component type of an array, the element type of a collection,
+     * the value type of a map, or the type of the field itself.
+     *
+     * @param field The field.
+     * @return The type of the values, or {@code null} if it cannot be determined.
+     */
+    private static Class<?> getNestedType(Field field) {
+        Class<?> type = field.getType();
+        if (type.isArray()) return type.getComponentType();
+        if (!Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)) return type;
+        if (!(field.getGenericType() instanceof ParameterizedType parameterizedType)) return null;
+        Type[] typeArguments = parameterizedType.getActualTypeArguments();
+        Type valueType = typeArguments[typeArguments.length - 1];
+        return valueType instanceof Class<?> valueClass ? valueClass : null;
+    }
+}
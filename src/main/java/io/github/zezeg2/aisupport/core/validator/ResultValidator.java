@@ -7,6 +7,7 @@ import io.github.zezeg2.aisupport.common.constants.TemplateConstants;
 import io.github.zezeg2.aisupport.common.enums.Role;
 import io.github.zezeg2.aisupport.common.enums.model.AIModel;
 import io.github.zezeg2.aisupport.common.enums.model.gpt.ModelMapper;
+import io.github.zezeg2.aisupport.common.template.CompiledTemplate;
 import io.github.zezeg2.aisupport.common.util.BuildFormatUtil;
 import io.github.zezeg2.aisupport.config.properties.Model;
 import io.github.zezeg2.aisupport.config.properties.OpenAIProperties;
@@ -21,6 +22,14 @@ import java.util.List;
  */
 @ConditionalOnProperty(name = "ai-supporter.context.environment", havingValue = "synchronous")
 public abstract class ResultValidator {
+    private static final CompiledTemplate FEEDBACK_FRAME_TEMPLATE = CompiledTemplate.compile(TemplateConstants.FEEDBACK_FRAME);
+    private static final CompiledTemplate FEEDBACK_FRAME_WITH_ROLE_TEMPLATE = CompiledTemplate.compile(TemplateConstants.FEEDBACK_FRAME_WITH_ROLE);
+
+    /**
+     * The format of the feedback response, which the feedback templates ask for.
+     */
+    protected static final String FEEDBACK_RESPONSE_FORMAT = BuildFormatUtil.getFormatString(FeedbackResponse.class);
+
     /**
      * The role of Validator for optimizing validation prompts
      */
@@ -79,8 +88,8 @@ public abstract class ResultValidator {
      */
     protected String buildTemplate(String functionName, FeedbackMessageContext feedbackMessageContext) {
         String templateContents = addTemplateContents(functionName, feedbackMessageContext);
-        return this.role == null ? TemplateConstants.FEEDBACK_FRAME.formatted(templateContents, getPrompt(functionName).getResultFormat(), BuildFormatUtil.getFormatString(FeedbackResponse.class)) :
-                TemplateConstants.FEEDBACK_FRAME_WITH_ROLE.formatted(this.role, templateContents, getPrompt(functionName).getResultFormat(), BuildFormatUtil.getFormatString(FeedbackResponse.class));
+        return this.role == null ? FEEDBACK_FRAME_TEMPLATE.render(templateContents, getPrompt(functionName).getResultFormat(), FEEDBACK_RESPONSE_FORMAT) :
+                FEEDBACK_FRAME_WITH_ROLE_TEMPLATE.render(this.role, templateContents, getPrompt(functionName).getResultFormat(), FEEDBACK_RESPONSE_FORMAT);
     }
 
 
@@ -118,6 +127,23 @@ public abstract class ResultValidator {
         throw new RuntimeException("Maximum Validate count over");
     }
 
+    /**
+     * Asks the AI model for feedback on a candidate result, without requesting a correction.
+     *
+     * @param feedbackMessageContext Feedback message context initialized by this validator.
+     * @param candidate              The candidate result to review.
+     * @return The feedback on the candidate, or {@code null} if the feedback could not be parsed.
+     */
+    protected FeedbackResponse review(FeedbackMessageContext feedbackMessageContext, String candidate) {
+        String feedbackContent = exchangeMessages(feedbackMessageContext, candidate, ContextType.FEEDBACK, feedbackMessageContext.getModel());
+        try {
+            return mapper.readValue(feedbackContent, FeedbackResponse.class);
+        } catch (JsonProcessingException e) {
+            promptManager.getContextHolder().deleteMessagesFromLast(ContextType.FEEDBACK, feedbackMessageContext, 2);
+            return null;
+        }
+    }
+
     /**
      * Exchanges messages with the AI model and retrieves the response content.
      *
@@ -1,12 +1,20 @@
 package io.github.zezeg2.aisupport.core.validator;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.common.exceptions.CustomJsonException;
+import io.github.zezeg2.aisupport.common.type.ExecutionResult;
+import io.github.zezeg2.aisupport.core.function.BulkExecutor;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.FeedbackMessageContext;
 import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The ResultValidatorChain class represents a chain of ResultValidator instances that are used to validate AI model results in a chat-based AI system.
@@ -35,6 +43,7 @@ public class ResultValidatorChain {
      * The validation is performed based on the target function's annotations defined in the validators.
      * If a target function is marked as "global" or is explicitly listed in the validator's target names,
      * the corresponding validator is used to validate the results.
+     * Consecutive validators marked as independent are run concurrently (see {@link #validateConcurrently}).
      *
      * @param promptMessageContext Prompt message context for calling openai chat completion api
      * @return The validated result of all validator chain(all validators) as a string.
@@ -42,14 +51,85 @@ public class ResultValidatorChain {
     public String validate(PromptMessageContext promptMessageContext) {
         List<ChatMessage> messages = promptMessageContext.getMessages();
         String result = messages.get(messages.size() - 1).getContent();
+        for (List<ResultValidator> group : groupValidators(peekValidators(promptMessageContext.getFunctionName()))) {
+            result = group.size() > 1 ? validateConcurrently(promptMessageContext, group) : group.get(0).validate(promptMessageContext);
+        }
+        return result;
+    }
+
+    /**
+     * Groups the validators in validation order, putting consecutive independent validators into the same group.
+     *
+     * @param validators The validators in validation order.
+     * @return The groups of validators.
+     */
+    protected List<List<ResultValidator>> groupValidators(List<ResultValidator> validators) {
+        List<List<ResultValidator>> groups = new ArrayList<>();
+        boolean previousIndependent = false;
         for (ResultValidator validator : validators) {
-            ValidateTarget targetFunction = validator.getClass().getAnnotation(ValidateTarget.class);
-            List<String> targetFunctionList = Arrays.stream(targetFunction.names()).toList();
-            if (targetFunction.global() || targetFunctionList.contains(promptMessageContext.getFunctionName())) {
-                result = validator.validate(promptMessageContext);
+            boolean independent = validator.getClass().getAnnotation(ValidateTarget.class).independent();
+            if (independent && previousIndependent) groups.get(groups.size() - 1).add(validator);
+            else groups.add(new ArrayList<>(List.of(validator)));
+            previousIndependent = independent;
+        }
+        return groups;
+    }
+
+    /**
+     * Validates the last response with a group of independent validators.
+     * Every validator reviews the same candidate concurrently; when any of them reports issues, the issues of all
+     * validators are merged into a single feedback, and the AI model is asked for one correction.
+     *
+     * @param promptMessageContext Prompt message context for calling openai chat completion api
+     * @param group                The independent validators.
+     * @return The result accepted by every validator of the group.
+     */
+    protected String validateConcurrently(PromptMessageContext promptMessageContext, List<ResultValidator> group) {
+        List<ChatMessage> messages = promptMessageContext.getMessages();
+        String candidate = messages.get(messages.size() - 1).getContent();
+        List<ResultValidator> activeValidators = group.stream()
+                .filter(validator -> !validator.ignoreCondition(promptMessageContext.getFunctionName(), promptMessageContext.getIdentifier()))
+                .toList();
+        if (activeValidators.isEmpty()) return candidate;
+
+        ResultValidator leader = activeValidators.get(0);
+        List<FeedbackMessageContext> feedbackMessageContexts = activeValidators.stream()
+                .map(validator -> validator.init(promptMessageContext, promptMessageContext.getIdentifier()))
+                .toList();
+        List<Integer> indices = IntStream.range(0, activeValidators.size()).boxed().toList();
+        for (int count = 1; count <= leader.openAIProperties.getValidateRetry(); count++) {
+            String reviewed = candidate;
+            List<ExecutionResult<FeedbackResponse>> reviews = BulkExecutor.executeAll(indices, indices.size(), i ->
+                    ExecutionResult.<FeedbackResponse>builder().result(activeValidators.get(i).review(feedbackMessageContexts.get(i), reviewed)).build());
+
+            boolean valid = true;
+            List<Issue> issues = new ArrayList<>();
+            for (ExecutionResult<FeedbackResponse> review : reviews) {
+                if (!review.isSuccess()) throw new RuntimeException("Validation failed", review.getError());
+                FeedbackResponse feedbackResult = review.getResult();
+                if (feedbackResult != null && feedbackResult.isValid()) continue;
+                valid = false;
+                if (feedbackResult != null && feedbackResult.getIssueList() != null) issues.addAll(feedbackResult.getIssueList());
+            }
+
+            if (valid) {
+                promptMessageContext.getFeedbackMessageContexts().addAll(feedbackMessageContexts);
+                leader.promptManager.getContextHolder().saveMessageContext(ContextType.PROMPT, promptMessageContext);
+                return candidate;
+            }
+            if (issues.isEmpty()) continue;
+
+            FeedbackResponse mergedFeedback = new FeedbackResponse();
+            mergedFeedback.setValid(false);
+            mergedFeedback.setIssueList(issues);
+            try {
+                candidate = leader.exchangeMessages(promptMessageContext, leader.mapper.writeValueAsString(mergedFeedback), ContextType.PROMPT, promptMessageContext.getModel());
+            } catch (JsonProcessingException e) {
+                throw new CustomJsonException(e);
             }
         }
-        return result;
+
+        throw new RuntimeException("Maximum Validate count over");
     }
 
     /**
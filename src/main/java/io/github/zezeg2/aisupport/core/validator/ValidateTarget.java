@@ -36,6 +36,15 @@ public @interface ValidateTarget {
      */
     int order() default Integer.MAX_VALUE;
 
+    /**
+     * Specifies if the validation is independent of the corrections requested by other validators.
+     * Consecutive independent validators (in validation order) review the same result concurrently,
+     * and their feedback is merged into a single correction round.
+     *
+     * @return {@code true} if the validation is independent, {@code false} otherwise.
+     */
+    boolean independent() default false;
+
     /**
      * Specifies the topP value for the validation.
      *
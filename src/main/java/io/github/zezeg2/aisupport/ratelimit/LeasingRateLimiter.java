@@ -0,0 +1,140 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.enums.model.gpt.ModelMapper;
+import io.github.zezeg2.aisupport.common.exceptions.RateLimitExceededException;
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The LeasingRateLimiter class limits the chat completion requests of every process sharing a rate limit per model.
+ * Permits are leased from the shared limit in batches of {@code lease-requests} requests and {@code lease-tokens} tokens,
+ * so only a request that finds the lease of its model exhausted needs a round trip to the backend. Permits leased but not
+ * used before the process stops are lost for the rest of the minute.
+ * A single request per model leases at a time, outside the lock of the lease, so that requests served from the lease meanwhile
+ * are not held up by the round trip; the requests waiting for the lease to be refilled count towards the queue depth and give up
+ * after the maximum wait.
+ */
+public abstract class LeasingRateLimiter implements RateLimiter {
+    private final Map<AIModel, RateLimitLease> leases = new HashMap<>();
+    private final Map<AIModel, ReentrantLock> refillLocks = new HashMap<>();
+
+    protected LeasingRateLimiter(RateLimitProperties properties) {
+        properties.getModels().forEach((model, limit) -> {
+            AIModel aiModel = ModelMapper.map(model);
+            if (aiModel != null) leases.put(aiModel, new RateLimitLease(aiModel, limit, properties.getLeaseRequests(), properties.getLeaseTokens(),
+                    new RateLimitRecorder(aiModel, properties.getMaxWait(), properties.getMaxQueueDepth())));
+            if (aiModel != null) refillLocks.put(aiModel, new ReentrantLock());
+        });
+    }
+
+    /**
+     * Leases permits from the shared limit of a model, taking them only if they are available within the maximum wait.
+     *
+     * @param lease         The lease of the model.
+     * @param requests      The request permits to lease.
+     * @param tokens        The token permits to lease.
+     * @param maxWaitMillis The longest time to wait for the permits in milliseconds.
+     * @return The permits granted and the time to wait for them.
+     */
+    protected abstract RateLimitLease.Grant lease(RateLimitLease lease, long requests, long tokens, long maxWaitMillis);
+
+    @Override
+    public void acquire(AIModel model, long tokens) {
+        RateLimitLease lease = leases.get(model);
+        if (lease == null) return;
+        long wait;
+        synchronized (lease) {
+            wait = lease.take(tokens, System.nanoTime());
+        }
+        if (wait < 0) wait = refill(lease, tokens);
+        if (wait == 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (lease) {
+                lease.release(tokens);
+            }
+            throw new RateLimitExceededException(model, "interrupted while waiting");
+        } finally {
+            lease.getRecorder().dequeue();
+        }
+    }
+
+    /**
+     * Refills the lease of a model from the shared limit and takes the permits of a request from it, unless another request
+     * refilled the lease in the meantime.
+     *
+     * @param lease  The lease of the model.
+     * @param tokens The tokens of the request.
+     * @return The time to wait before sending the request in nanoseconds.
+     */
+    private long refill(RateLimitLease lease, long tokens) {
+        RateLimitRecorder recorder = lease.getRecorder();
+        ReentrantLock refillLock = refillLocks.get(lease.getModel());
+        long maxWaitMillis = recorder.getMaxWaitMillis();
+        long start = System.nanoTime();
+        recorder.enqueue();
+        try {
+            if (!refillLock.tryLock(maxWaitMillis, TimeUnit.MILLISECONDS))
+                throw recorder.reject("the lease was not refilled within %d ms".formatted(maxWaitMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RateLimitExceededException(lease.getModel(), "interrupted while waiting");
+        } finally {
+            recorder.dequeue();
+        }
+        try {
+            long requestBatch;
+            long tokenBatch;
+            long requestShortfall;
+            long tokenShortfall;
+            synchronized (lease) {
+                long wait = lease.take(tokens, System.nanoTime());
+                if (wait >= 0) return wait;
+                requestBatch = lease.getRequestBatch();
+                tokenBatch = lease.getTokenBatch(tokens);
+                requestShortfall = lease.getRequestShortfall();
+                tokenShortfall = lease.getTokenShortfall(tokens);
+            }
+            long remainingMillis = Math.max(0, maxWaitMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            RateLimitLease.Grant grant = lease(lease, requestBatch, tokenBatch, remainingMillis);
+            if (grant.isRefused() && (requestBatch > requestShortfall || tokenBatch > tokenShortfall)) {
+                requestBatch = requestShortfall;
+                tokenBatch = tokenShortfall;
+                grant = lease(lease, requestBatch, tokenBatch, remainingMillis);
+            }
+            if (grant.isRefused()) throw recorder.reject("the request would wait %d ms".formatted(-grant.getWaitMillis()));
+            synchronized (lease) {
+                long now = System.nanoTime();
+                lease.add(grant, now);
+                long wait = lease.take(tokens, now);
+                if (wait < 0) throw recorder.reject("the request exceeds the shared limit per minute");
+                return wait;
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    @Override
+    public void settle(AIModel model, long acquiredTokens, long usedTokens) {
+        RateLimitLease lease = leases.get(model);
+        if (lease == null) return;
+        synchronized (lease) {
+            lease.settle(acquiredTokens, usedTokens);
+        }
+    }
+
+    @Override
+    public Map<AIModel, RateLimitStatistics> getStatistics() {
+        Map<AIModel, RateLimitStatistics> statistics = new HashMap<>();
+        leases.forEach((model, lease) -> statistics.put(model, lease.getRecorder().getStatistics()));
+        return statistics;
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.enums.model.gpt.ModelMapper;
+import io.github.zezeg2.aisupport.common.exceptions.RateLimitExceededException;
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LocalRateLimiter class limits the chat completion requests of this process with in-memory token buckets per model.
+ * Requests over the limits block the calling thread until their turn comes.
+ */
+public class LocalRateLimiter implements RateLimiter {
+    private final Map<AIModel, ModelRateLimit> limits = new HashMap<>();
+
+    /**
+     * Constructs a LocalRateLimiter with the limits configured per model.
+     *
+     * @param properties The rate limit properties.
+     */
+    public LocalRateLimiter(RateLimitProperties properties) {
+        properties.getModels().forEach((model, limit) -> {
+            AIModel aiModel = ModelMapper.map(model);
+            if (aiModel != null) limits.put(aiModel, new ModelRateLimit(aiModel, limit.getRequestsPerMinute(), limit.getTokensPerMinute(),
+                    properties.getMaxWait(), properties.getMaxQueueDepth()));
+        });
+    }
+
+    /**
+     * Gets the rate limit of a model.
+     *
+     * @param model The AI model.
+     * @return The rate limit of the model, or {@code null} if the model is not limited.
+     */
+    public ModelRateLimit getLimit(AIModel model) {
+        return limits.get(model);
+    }
+
+    @Override
+    public void acquire(AIModel model, long tokens) {
+        ModelRateLimit limit = limits.get(model);
+        if (limit == null) return;
+        long wait = limit.reserve(tokens);
+        if (wait == 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            limit.release(tokens);
+            throw new RateLimitExceededException(model, "interrupted while waiting");
+        } finally {
+            limit.dequeue();
+        }
+    }
+
+    @Override
+    public void settle(AIModel model, long acquiredTokens, long usedTokens) {
+        ModelRateLimit limit = limits.get(model);
+        if (limit != null) limit.settle(acquiredTokens, usedTokens);
+    }
+
+    @Override
+    public Map<AIModel, RateLimitStatistics> getStatistics() {
+        Map<AIModel, RateLimitStatistics> statistics = new HashMap<>();
+        limits.forEach((model, limit) -> statistics.put(model, limit.getStatistics()));
+        return statistics;
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.exceptions.RateLimitExceededException;
+
+/**
+ * The ModelRateLimit class holds the request and token buckets of a model. A request takes its permits from both buckets at once,
+ * and is told how long to wait for them; requests that would wait longer than the maximum wait, or find the queue full, are rejected.
+ */
+public class ModelRateLimit {
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final RateLimitRecorder recorder;
+
+    /**
+     * Constructs a ModelRateLimit.
+     *
+     * @param model             The AI model limited.
+     * @param requestsPerMinute The requests allowed per minute, or 0 for no request limit.
+     * @param tokensPerMinute   The tokens allowed per minute, or 0 for no token limit.
+     * @param maxWaitMillis     The longest time a request waits for its turn in milliseconds.
+     * @param maxQueueDepth     The maximum number of requests waiting for their turn.
+     */
+    public ModelRateLimit(AIModel model, long requestsPerMinute, long tokensPerMinute, long maxWaitMillis, int maxQueueDepth) {
+        long now = System.nanoTime();
+        this.requests = requestsPerMinute > 0 ? new TokenBucket(requestsPerMinute, now) : null;
+        this.tokens = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute, now) : null;
+        this.recorder = new RateLimitRecorder(model, maxWaitMillis, maxQueueDepth);
+    }
+
+    /**
+     * Takes the permits of a request and enters the queue when they are not available yet.
+     * A caller told to wait must call {@link #dequeue()} once the wait is over.
+     *
+     * @param tokenCount The tokens of the request.
+     * @return The time to wait before sending the request in nanoseconds, 0 to send it now.
+     * @throws RateLimitExceededException if the request would wait longer than the maximum wait, or the queue is full.
+     */
+    public synchronized long reserve(long tokenCount) {
+        long now = System.nanoTime();
+        long wait = Math.max(requests == null ? 0 : requests.nanosUntilAvailable(1, now), tokens == null ? 0 : tokens.nanosUntilAvailable(tokenCount, now));
+        recorder.check(wait);
+        if (requests != null) requests.take(1);
+        if (tokens != null) tokens.take(tokenCount);
+        recorder.admit(wait);
+        return wait;
+    }
+
+    /**
+     * Leaves the queue once the wait told by {@link #reserve(long)} is over.
+     */
+    public void dequeue() {
+        recorder.dequeue();
+    }
+
+    /**
+     * Gives back the permits of a request that was not sent.
+     *
+     * @param tokenCount The tokens of the request.
+     */
+    public synchronized void release(long tokenCount) {
+        if (requests != null) requests.give(1);
+        if (tokens != null) tokens.give(tokenCount);
+    }
+
+    /**
+     * Corrects the tokens taken for a request with the tokens it actually used.
+     *
+     * @param reservedTokens The tokens taken when the request was reserved.
+     * @param usedTokens     The tokens reported by the usage of the response.
+     */
+    public synchronized void settle(long reservedTokens, long usedTokens) {
+        if (tokens == null || usedTokens == reservedTokens) return;
+        if (usedTokens < reservedTokens) tokens.give(reservedTokens - usedTokens);
+        else tokens.take(usedTokens - reservedTokens);
+    }
+
+    /**
+     * Gets a snapshot of the queue depth and wait times.
+     *
+     * @return The rate limit statistics.
+     */
+    public RateLimitStatistics getStatistics() {
+        return recorder.getStatistics();
+    }
+}
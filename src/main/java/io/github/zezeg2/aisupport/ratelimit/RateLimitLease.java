@@ -0,0 +1,181 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RateLimitLease class holds the request and token permits a process leased in batches from a shared rate limit of a model,
+ * so that most requests take their permits locally. Permits of a batch the shared limit made wait for become available at the time
+ * it told; requests served from the batch before then wait as well. When a full batch is not available within the maximum wait,
+ * only the missing permits are leased. A limit of 0 is not leased, as it does not limit anything.
+ * It is not thread safe; callers synchronize on the lease, and never while a batch is being leased.
+ */
+public class RateLimitLease {
+    @Getter
+    private final AIModel model;
+    @Getter
+    private final RateLimitProperties.Limit limit;
+    @Getter
+    private final RateLimitRecorder recorder;
+    private final long leaseRequests;
+    private final long leaseTokens;
+    private long requests;
+    private long tokens;
+    private long availableAt = System.nanoTime();
+
+    /**
+     * Constructs an empty RateLimitLease.
+     *
+     * @param model         The AI model limited.
+     * @param limit         The shared limit of the model.
+     * @param leaseRequests The request permits leased per batch.
+     * @param leaseTokens   The token permits leased per batch.
+     * @param recorder      The recorder bounding the wait and the queue of the requests.
+     */
+    public RateLimitLease(AIModel model, RateLimitProperties.Limit limit, long leaseRequests, long leaseTokens, RateLimitRecorder recorder) {
+        this.model = model;
+        this.limit = limit;
+        this.leaseRequests = Math.max(1, leaseRequests);
+        this.leaseTokens = Math.max(1, leaseTokens);
+        this.recorder = recorder;
+    }
+
+    /**
+     * Takes the permits of a request from the lease.
+     *
+     * @param tokenCount The tokens of the request.
+     * @param now        The current time in nanoseconds.
+     * @return The time to wait before sending the request in nanoseconds, or -1 if the lease does not hold enough permits.
+     */
+    public long take(long tokenCount, long now) {
+        if (getRequestShortfall() > 0 || getTokenShortfall(tokenCount) > 0) return -1;
+        long wait = Math.max(0, availableAt - now);
+        recorder.check(wait);
+        if (limit.getRequestsPerMinute() > 0) requests--;
+        if (limit.getTokensPerMinute() > 0) tokens -= tokenCount;
+        recorder.admit(wait);
+        return wait;
+    }
+
+    /**
+     * Gets the request permits missing from the lease to take a request.
+     *
+     * @return The missing request permits, 0 if the lease holds enough.
+     */
+    public long getRequestShortfall() {
+        return limit.getRequestsPerMinute() <= 0 ? 0 : Math.max(0, 1 - requests);
+    }
+
+    /**
+     * Gets the token permits missing from the lease to take a request of the given tokens.
+     *
+     * @param tokenCount The tokens of the request.
+     * @return The missing token permits, 0 if the lease holds enough.
+     */
+    public long getTokenShortfall(long tokenCount) {
+        return limit.getTokensPerMinute() <= 0 ? 0 : Math.max(0, tokenCount - tokens);
+    }
+
+    /**
+     * Gets the request permits to lease in a batch, at least the missing ones.
+     *
+     * @return The request permits to lease, 0 if the lease holds enough.
+     */
+    public long getRequestBatch() {
+        long shortfall = getRequestShortfall();
+        return shortfall == 0 ? 0 : Math.max(shortfall, leaseRequests - requests);
+    }
+
+    /**
+     * Gets the token permits to lease in a batch before a request of the given tokens can be taken, at least the missing ones.
+     *
+     * @param tokenCount The tokens of the request.
+     * @return The token permits to lease, 0 if the lease holds enough.
+     */
+    public long getTokenBatch(long tokenCount) {
+        long shortfall = getTokenShortfall(tokenCount);
+        return shortfall == 0 ? 0 : Math.max(shortfall, leaseTokens - tokens);
+    }
+
+    /**
+     * Adds the permits granted by the shared limit.
+     *
+     * @param grant The permits granted, with the time the shared limit told to wait for them.
+     * @param now   The current time in nanoseconds.
+     */
+    public void add(Grant grant, long now) {
+        requests += grant.getRequests();
+        tokens += grant.getTokens();
+        availableAt = Math.max(availableAt, now + TimeUnit.MILLISECONDS.toNanos(grant.getWaitMillis()));
+    }
+
+    /**
+     * Gives back the permits of a request that was not sent to the lease.
+     *
+     * @param tokenCount The tokens of the request.
+     */
+    public void release(long tokenCount) {
+        if (limit.getRequestsPerMinute() > 0) requests++;
+        if (limit.getTokensPerMinute() > 0) tokens += tokenCount;
+    }
+
+    /**
+     * Corrects the tokens taken for a request with the tokens it actually used. Unused tokens return to the lease,
+     * and tokens used beyond the reserved ones are taken from the next batch.
+     *
+     * @param reservedTokens The tokens taken when the request was reserved.
+     * @param usedTokens     The tokens reported by the usage of the response.
+     */
+    public void settle(long reservedTokens, long usedTokens) {
+        if (limit.getTokensPerMinute() > 0) tokens += reservedTokens - usedTokens;
+    }
+
+    /**
+     * The Grant class holds the permits the shared limit granted to a lease, which may be fewer than the ones asked for
+     * since a batch is capped at the limit per minute, and the time to wait for them.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Grant {
+
+        /**
+         * The time to wait for the permits in milliseconds, or the negated time it would take when it exceeds the maximum wait,
+         * in which case nothing is granted.
+         */
+        private final long waitMillis;
+
+        /**
+         * The request permits granted.
+         */
+        private final long requests;
+
+        /**
+         * The token permits granted.
+         */
+        private final long tokens;
+
+        /**
+         * Checks whether the shared limit refused the permits because they would take longer than the maximum wait.
+         *
+         * @return {@code true} if nothing is granted.
+         */
+        public boolean isRefused() {
+            return waitMillis < 0;
+        }
+
+        /**
+         * Checks whether fewer permits were granted than the given ones.
+         *
+         * @param requests The request permits asked for.
+         * @param tokens   The token permits asked for.
+         * @return {@code true} if the grant was capped.
+         */
+        public boolean isCapped(long requests, long tokens) {
+            return this.requests < requests || this.tokens < tokens;
+        }
+    }
+}
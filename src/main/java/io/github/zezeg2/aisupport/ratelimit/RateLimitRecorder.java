@@ -0,0 +1,121 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.exceptions.RateLimitExceededException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RateLimitRecorder class bounds the wait and the queue of the requests to a model, and records the queue depth and wait times
+ * exposed as {@link RateLimitStatistics}.
+ */
+public class RateLimitRecorder {
+    private final AIModel model;
+    private final long maxWaitNanos;
+    private final int maxQueueDepth;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxObservedWaitNanos = new AtomicLong();
+
+    /**
+     * Constructs a RateLimitRecorder.
+     *
+     * @param model         The AI model limited.
+     * @param maxWaitMillis The longest time a request waits for its turn in milliseconds.
+     * @param maxQueueDepth The maximum number of requests waiting for their turn.
+     */
+    public RateLimitRecorder(AIModel model, long maxWaitMillis, int maxQueueDepth) {
+        this.model = model;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * Gets the longest time a request waits for its turn.
+     *
+     * @return The maximum wait in milliseconds.
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    /**
+     * Checks that a request may wait the given time before its permits are taken.
+     *
+     * @param wait The time the request would wait in nanoseconds.
+     * @throws RateLimitExceededException if the request would wait longer than the maximum wait, or the queue is full.
+     */
+    public void check(long wait) {
+        if (wait > maxWaitNanos) throw reject("the request would wait %d ms".formatted(TimeUnit.NANOSECONDS.toMillis(wait)));
+        if (wait > 0 && queueDepth.get() >= maxQueueDepth) throw reject("%d requests are already waiting".formatted(maxQueueDepth));
+    }
+
+    /**
+     * Counts a rejected request.
+     *
+     * @param reason Why the request could not wait for its turn.
+     * @return The exception to throw.
+     */
+    public RateLimitExceededException reject(String reason) {
+        rejectedCount.increment();
+        return new RateLimitExceededException(model, reason);
+    }
+
+    /**
+     * Records a request whose permits were taken, entering the queue when it has to wait.
+     * A request told to wait must call {@link #dequeue()} once the wait is over.
+     *
+     * @param wait The time the request waits in nanoseconds.
+     */
+    public void admit(long wait) {
+        acquiredCount.increment();
+        if (wait > 0) {
+            queueDepth.incrementAndGet();
+            queuedCount.increment();
+            totalWaitNanos.add(wait);
+            maxObservedWaitNanos.accumulateAndGet(wait, Math::max);
+        }
+    }
+
+    /**
+     * Enters the queue to wait for something other than permits, such as the refill of a lease.
+     * A request that entered the queue must call {@link #dequeue()} once the wait is over.
+     *
+     * @throws RateLimitExceededException if the queue is full.
+     */
+    public void enqueue() {
+        if (queueDepth.incrementAndGet() > maxQueueDepth) {
+            queueDepth.decrementAndGet();
+            throw reject("%d requests are already waiting".formatted(maxQueueDepth));
+        }
+    }
+
+    /**
+     * Leaves the queue once the wait of an admitted or enqueued request is over.
+     */
+    public void dequeue() {
+        queueDepth.decrementAndGet();
+    }
+
+    /**
+     * Gets a snapshot of the queue depth and wait times.
+     *
+     * @return The rate limit statistics.
+     */
+    public RateLimitStatistics getStatistics() {
+        return RateLimitStatistics.builder()
+                .queueDepth(queueDepth.get())
+                .acquiredCount(acquiredCount.sum())
+                .queuedCount(queuedCount.sum())
+                .rejectedCount(rejectedCount.sum())
+                .totalWaitMillis(TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum()))
+                .maxWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxObservedWaitNanos.get()))
+                .build();
+    }
+}
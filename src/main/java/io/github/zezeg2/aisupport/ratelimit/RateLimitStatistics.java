@@ -0,0 +1,27 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The RateLimitStatistics class is a snapshot of the queue depth and wait times of the rate limit of a model.
+ */
+@Data
+@Builder
+public class RateLimitStatistics {
+    private final int queueDepth;
+    private final long acquiredCount;
+    private final long queuedCount;
+    private final long rejectedCount;
+    private final long totalWaitMillis;
+    private final long maxWaitMillis;
+
+    /**
+     * Gets the average time the queued requests waited for their turn.
+     *
+     * @return The average wait in milliseconds, or 0 if no request was queued.
+     */
+    public double getAverageWaitMillis() {
+        return queuedCount == 0 ? 0d : (double) totalWaitMillis / queuedCount;
+    }
+}
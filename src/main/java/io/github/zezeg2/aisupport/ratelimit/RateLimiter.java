@@ -0,0 +1,36 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+
+import java.util.Map;
+
+/**
+ * The RateLimiter interface limits the chat completion requests sent per model, in requests and tokens per minute.
+ */
+public interface RateLimiter {
+
+    /**
+     * Waits until a request may be sent to the model.
+     *
+     * @param model  The AI model of the request.
+     * @param tokens The tokens the request is expected to use, prompt and completion together.
+     * @throws io.github.zezeg2.aisupport.common.exceptions.RateLimitExceededException if the request cannot wait for its turn.
+     */
+    void acquire(AIModel model, long tokens);
+
+    /**
+     * Corrects the tokens acquired for a request with the tokens it actually used.
+     *
+     * @param model          The AI model of the request.
+     * @param acquiredTokens The tokens acquired for the request.
+     * @param usedTokens     The tokens reported by the usage of the response.
+     */
+    void settle(AIModel model, long acquiredTokens, long usedTokens);
+
+    /**
+     * Gets a snapshot of the queue depth and wait times per limited model.
+     *
+     * @return The rate limit statistics by model.
+     */
+    Map<AIModel, RateLimitStatistics> getStatistics();
+}
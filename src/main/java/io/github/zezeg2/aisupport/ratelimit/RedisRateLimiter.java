@@ -0,0 +1,95 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * The RedisRateLimiter class shares the rate limit of every model among the processes using the same Redis,
+ * leasing permits as described by {@link LeasingRateLimiter}. The request and token buckets of a model are kept
+ * in the hash {@code ai-supporter:rate-limit:<model>} and updated atomically by {@link #LEASE_SCRIPT}.
+ */
+public class RedisRateLimiter extends LeasingRateLimiter {
+
+    /**
+     * The prefix of the hashes holding the buckets of the models.
+     */
+    public static final String KEY_PREFIX = "ai-supporter:rate-limit:";
+
+    /**
+     * Leases permits from the buckets of a model in one round trip: KEYS[1] is the hash of the model, ARGV[1] and ARGV[2] the requests
+     * and tokens allowed per minute (0 for no limit), ARGV[3] and ARGV[4] the request and token permits to lease, and ARGV[5] the maximum
+     * wait in milliseconds. Buckets are refilled with the Redis clock, so the processes need not agree on the time.
+     * The permits, capped at the limits per minute, are taken, possibly into debt, and the time to wait for them is returned with
+     * the request and token permits granted, unless the wait exceeds the maximum wait; then nothing is taken and the negated wait
+     * is returned with no permits. The hash expires once the buckets would be full again.
+     */
+    public static final RedisScript<List<Long>> LEASE_SCRIPT = listScript("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'requests', 'tokens', 'refilled_at')
+            local elapsed = math.max(0, now - (tonumber(state[3]) or now))
+            local available = {}
+            local granted = {}
+            local wait = 0
+            for i = 1, 2 do
+                local limit = tonumber(ARGV[i])
+                granted[i] = math.min(tonumber(ARGV[i + 2]), limit)
+                available[i] = math.min(limit, (tonumber(state[i]) or limit) + elapsed * limit / 60000)
+                if limit > 0 and granted[i] > available[i] then
+                    wait = math.max(wait, math.ceil((granted[i] - available[i]) * 60000 / limit))
+                end
+                available[i] = available[i] - granted[i]
+            end
+            if wait > tonumber(ARGV[5]) then
+                return {-wait, 0, 0}
+            end
+            redis.call('HSET', KEYS[1], 'requests', tostring(available[1]), 'tokens', tostring(available[2]), 'refilled_at', now)
+            redis.call('PEXPIRE', KEYS[1], 60000 + wait)
+            return {wait, granted[1], granted[2]}
+            """);
+
+    private final RedisTemplate<String, String> template;
+
+    public RedisRateLimiter(RedisTemplate<String, String> template, RateLimitProperties properties) {
+        super(properties);
+        this.template = template;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<Long>> listScript(String script) {
+        return (RedisScript) new DefaultRedisScript<>(script, List.class);
+    }
+
+    /**
+     * Converts the result of {@link #LEASE_SCRIPT} into a grant.
+     *
+     * @param result The wait, request permits and token permits returned by the script.
+     * @return The grant.
+     */
+    public static RateLimitLease.Grant toGrant(List<?> result) {
+        return new RateLimitLease.Grant(((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue(), ((Number) result.get(2)).longValue());
+    }
+
+    /**
+     * Builds the arguments of {@link #LEASE_SCRIPT}.
+     *
+     * @param lease         The lease of the model.
+     * @param requests      The request permits to lease.
+     * @param tokens        The token permits to lease.
+     * @param maxWaitMillis The longest time to wait for the permits in milliseconds.
+     * @return The script arguments.
+     */
+    public static Object[] getLeaseArguments(RateLimitLease lease, long requests, long tokens, long maxWaitMillis) {
+        return new Object[]{String.valueOf(lease.getLimit().getRequestsPerMinute()), String.valueOf(lease.getLimit().getTokensPerMinute()),
+                String.valueOf(requests), String.valueOf(tokens), String.valueOf(maxWaitMillis)};
+    }
+
+    @Override
+    protected RateLimitLease.Grant lease(RateLimitLease lease, long requests, long tokens, long maxWaitMillis) {
+        return toGrant(template.execute(LEASE_SCRIPT, List.of(KEY_PREFIX + lease.getModel().getValue()), getLeaseArguments(lease, requests, tokens, maxWaitMillis)));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+/**
+ * The TokenBucket class is a token bucket refilled continuously at a rate given per minute, holding at most one minute of permits.
+ * Permits may be taken beyond the available ones, so that the bucket goes into debt and later callers wait for the debt to be
+ * refilled as well, which serves waiting callers in the order they took their permits.
+ * It is not thread safe; callers synchronize on the owner of the bucket.
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double permitsPerNano;
+    private double available;
+    private long refilledAt;
+
+    /**
+     * Constructs a full TokenBucket.
+     *
+     * @param permitsPerMinute The permits refilled per minute, also the capacity of the bucket.
+     * @param now              The current time in nanoseconds.
+     */
+    public TokenBucket(long permitsPerMinute, long now) {
+        this.capacity = permitsPerMinute;
+        this.permitsPerNano = permitsPerMinute / 60_000_000_000d;
+        this.available = permitsPerMinute;
+        this.refilledAt = now;
+    }
+
+    private void refill(long now) {
+        available = Math.min(capacity, available + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+
+    /**
+     * Computes the time until the given permits are available. Requests for more permits than the capacity wait for a full bucket.
+     *
+     * @param permits The permits to take.
+     * @param now     The current time in nanoseconds.
+     * @return The time to wait in nanoseconds, 0 if the permits are available now.
+     */
+    public long nanosUntilAvailable(long permits, long now) {
+        refill(now);
+        double missing = Math.min(permits, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / permitsPerNano);
+    }
+
+    /**
+     * Takes permits, going into debt if they are not available.
+     *
+     * @param permits The permits to take.
+     */
+    public void take(long permits) {
+        available -= Math.min(permits, capacity);
+    }
+
+    /**
+     * Gives back permits that were taken but not used.
+     *
+     * @param permits The permits to give back.
+     */
+    public void give(long permits) {
+        available = Math.min(capacity, available + permits);
+    }
+}
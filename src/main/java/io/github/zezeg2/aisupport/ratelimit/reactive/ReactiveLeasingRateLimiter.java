@@ -0,0 +1,109 @@
+package io.github.zezeg2.aisupport.ratelimit.reactive;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.enums.model.gpt.ModelMapper;
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+import io.github.zezeg2.aisupport.ratelimit.LeasingRateLimiter;
+import io.github.zezeg2.aisupport.ratelimit.RateLimitLease;
+import io.github.zezeg2.aisupport.ratelimit.RateLimitRecorder;
+import io.github.zezeg2.aisupport.ratelimit.RateLimitStatistics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ReactiveLeasingRateLimiter class limits the chat completion requests of every process sharing a rate limit per model
+ * in a reactive manner, leasing permits as described by {@link LeasingRateLimiter}. When concurrent subscribers find the lease
+ * of a model exhausted at once, each of them leases its own batch, and the permits left over stay in the lease;
+ * a subscriber whose batch was taken by the others before it could use it leases again. A request needing more permits than
+ * the limit per minute grants is rejected.
+ */
+public abstract class ReactiveLeasingRateLimiter implements ReactiveRateLimiter {
+    private final Map<AIModel, RateLimitLease> leases = new HashMap<>();
+
+    protected ReactiveLeasingRateLimiter(RateLimitProperties properties) {
+        properties.getModels().forEach((model, limit) -> {
+            AIModel aiModel = ModelMapper.map(model);
+            if (aiModel != null) leases.put(aiModel, new RateLimitLease(aiModel, limit, properties.getLeaseRequests(), properties.getLeaseTokens(),
+                    new RateLimitRecorder(aiModel, properties.getMaxWait(), properties.getMaxQueueDepth())));
+        });
+    }
+
+    /**
+     * Leases permits from the shared limit of a model, taking them only if they are available within the maximum wait.
+     *
+     * @param lease         The lease of the model.
+     * @param requests      The request permits to lease.
+     * @param tokens        The token permits to lease.
+     * @param maxWaitMillis The longest time to wait for the permits in milliseconds.
+     * @return A Mono emitting the permits granted and the time to wait for them.
+     */
+    protected abstract Mono<RateLimitLease.Grant> lease(RateLimitLease lease, long requests, long tokens, long maxWaitMillis);
+
+    @Override
+    public Mono<Void> acquire(AIModel model, long tokens) {
+        return Mono.defer(() -> {
+            RateLimitLease lease = leases.get(model);
+            if (lease == null) return Mono.empty();
+            long requestBatch;
+            long tokenBatch;
+            long requestShortfall;
+            long tokenShortfall;
+            synchronized (lease) {
+                long wait = lease.take(tokens, System.nanoTime());
+                if (wait >= 0) return await(lease, tokens, wait);
+                requestBatch = lease.getRequestBatch();
+                tokenBatch = lease.getTokenBatch(tokens);
+                requestShortfall = lease.getRequestShortfall();
+                tokenShortfall = lease.getTokenShortfall(tokens);
+            }
+            long maxWaitMillis = lease.getRecorder().getMaxWaitMillis();
+            return lease(lease, requestBatch, tokenBatch, maxWaitMillis)
+                    .flatMap(grant -> !grant.isRefused() || (requestBatch == requestShortfall && tokenBatch == tokenShortfall)
+                            ? Mono.just(grant)
+                            : lease(lease, requestShortfall, tokenShortfall, maxWaitMillis))
+                    .flatMap(grant -> {
+                        if (grant.isRefused()) return Mono.error(lease.getRecorder().reject("the request would wait %d ms".formatted(-grant.getWaitMillis())));
+                        long wait;
+                        synchronized (lease) {
+                            long now = System.nanoTime();
+                            lease.add(grant, now);
+                            wait = lease.take(tokens, now);
+                        }
+                        if (wait < 0 && grant.isCapped(requestShortfall, tokenShortfall))
+                            return Mono.error(lease.getRecorder().reject("the request exceeds the shared limit per minute"));
+                        return wait < 0 ? acquire(model, tokens) : await(lease, tokens, wait);
+                    });
+        });
+    }
+
+    private Mono<Void> await(RateLimitLease lease, long tokens, long wait) {
+        if (wait == 0) return Mono.empty();
+        return Mono.delay(Duration.ofNanos(wait))
+                .doOnCancel(() -> {
+                    synchronized (lease) {
+                        lease.release(tokens);
+                    }
+                })
+                .doFinally(signal -> lease.getRecorder().dequeue())
+                .then();
+    }
+
+    @Override
+    public void settle(AIModel model, long acquiredTokens, long usedTokens) {
+        RateLimitLease lease = leases.get(model);
+        if (lease == null) return;
+        synchronized (lease) {
+            lease.settle(acquiredTokens, usedTokens);
+        }
+    }
+
+    @Override
+    public Map<AIModel, RateLimitStatistics> getStatistics() {
+        Map<AIModel, RateLimitStatistics> statistics = new HashMap<>();
+        leases.forEach((model, lease) -> statistics.put(model, lease.getRecorder().getStatistics()));
+        return statistics;
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.zezeg2.aisupport.ratelimit.reactive;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+import io.github.zezeg2.aisupport.ratelimit.LocalRateLimiter;
+import io.github.zezeg2.aisupport.ratelimit.ModelRateLimit;
+import io.github.zezeg2.aisupport.ratelimit.RateLimitStatistics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The ReactiveLocalRateLimiter class limits the chat completion requests of this process with the in-memory token buckets
+ * of a {@link LocalRateLimiter}. Requests over the limits are delayed on a timer instead of blocking a thread,
+ * and give their permits back when cancelled while waiting.
+ */
+public class ReactiveLocalRateLimiter implements ReactiveRateLimiter {
+    private final LocalRateLimiter limiter;
+
+    public ReactiveLocalRateLimiter(RateLimitProperties properties) {
+        this.limiter = new LocalRateLimiter(properties);
+    }
+
+    @Override
+    public Mono<Void> acquire(AIModel model, long tokens) {
+        return Mono.defer(() -> {
+            ModelRateLimit limit = limiter.getLimit(model);
+            if (limit == null) return Mono.empty();
+            long wait = limit.reserve(tokens);
+            if (wait == 0) return Mono.empty();
+            return Mono.delay(Duration.ofNanos(wait))
+                    .doOnCancel(() -> limit.release(tokens))
+                    .doFinally(signal -> limit.dequeue())
+                    .then();
+        });
+    }
+
+    @Override
+    public void settle(AIModel model, long acquiredTokens, long usedTokens) {
+        limiter.settle(model, acquiredTokens, usedTokens);
+    }
+
+    @Override
+    public Map<AIModel, RateLimitStatistics> getStatistics() {
+        return limiter.getStatistics();
+    }
+}
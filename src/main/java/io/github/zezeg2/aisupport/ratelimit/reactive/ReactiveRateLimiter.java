@@ -0,0 +1,38 @@
+package io.github.zezeg2.aisupport.ratelimit.reactive;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.ratelimit.RateLimitStatistics;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * The ReactiveRateLimiter interface limits the chat completion requests sent per model, in requests and tokens per minute, in a reactive manner.
+ */
+public interface ReactiveRateLimiter {
+
+    /**
+     * Waits until a request may be sent to the model, without blocking.
+     *
+     * @param model  The AI model of the request.
+     * @param tokens The tokens the request is expected to use, prompt and completion together.
+     * @return A Mono completing when the request may be sent, or failing with a RateLimitExceededException if it cannot wait for its turn.
+     */
+    Mono<Void> acquire(AIModel model, long tokens);
+
+    /**
+     * Corrects the tokens acquired for a request with the tokens it actually used.
+     *
+     * @param model          The AI model of the request.
+     * @param acquiredTokens The tokens acquired for the request.
+     * @param usedTokens     The tokens reported by the usage of the response.
+     */
+    void settle(AIModel model, long acquiredTokens, long usedTokens);
+
+    /**
+     * Gets a snapshot of the queue depth and wait times per limited model.
+     *
+     * @return The rate limit statistics by model.
+     */
+    Map<AIModel, RateLimitStatistics> getStatistics();
+}
@@ -0,0 +1,34 @@
+package io.github.zezeg2.aisupport.ratelimit.reactive;
+
+import io.github.zezeg2.aisupport.config.properties.RateLimitProperties;
+import io.github.zezeg2.aisupport.ratelimit.RateLimitLease;
+import io.github.zezeg2.aisupport.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The ReactiveRedisRateLimiter class shares the rate limit of every model among the processes using the same Redis in a reactive manner,
+ * with the buckets and the {@link RedisRateLimiter#LEASE_SCRIPT} of {@link RedisRateLimiter}, so reactive and synchronous processes
+ * can share the same limits.
+ */
+public class ReactiveRedisRateLimiter extends ReactiveLeasingRateLimiter {
+
+    private final ReactiveRedisTemplate<String, String> template;
+
+    public ReactiveRedisRateLimiter(ReactiveRedisTemplate<String, String> template, RateLimitProperties properties) {
+        super(properties);
+        this.template = template;
+    }
+
+    @Override
+    protected Mono<RateLimitLease.Grant> lease(RateLimitLease lease, long requests, long tokens, long maxWaitMillis) {
+        Flux<?> result = template.execute(RedisRateLimiter.LEASE_SCRIPT, List.of(RedisRateLimiter.KEY_PREFIX + lease.getModel().getValue()),
+                List.of(RedisRateLimiter.getLeaseArguments(lease, requests, tokens, maxWaitMillis)));
+        return result.concatMapIterable(value -> value instanceof List<?> values ? values : List.of(value))
+                .collectList()
+                .map(RedisRateLimiter::toGrant);
+    }
+}
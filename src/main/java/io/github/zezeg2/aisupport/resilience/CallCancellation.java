@@ -0,0 +1,70 @@
+package io.github.zezeg2.aisupport.resilience;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The CallCancellation class lets the blocking HTTP calls of a task be cancelled from another thread.
+ * Interrupting a thread blocked on a response does not abort the socket read, so the calls made while a task runs
+ * are registered by {@link #INTERCEPTOR}, which the OkHttp client of the OpenAiService must include, and cancelled by {@link #cancel()}.
+ */
+public class CallCancellation {
+    private static final ThreadLocal<CallCancellation> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Registers every call made on a thread running a task of a CallCancellation with that CallCancellation.
+     */
+    public static final Interceptor INTERCEPTOR = chain -> {
+        CallCancellation cancellation = CURRENT.get();
+        if (cancellation != null) cancellation.register(chain.call());
+        return chain.proceed(chain.request());
+    };
+
+    private final List<Call> calls = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * Runs a task on the current thread, registering the calls it makes.
+     *
+     * @param task The task to run.
+     * @param <T>  The type of the task result.
+     * @return The result of the task.
+     */
+    public <T> T run(Supplier<T> task) {
+        CallCancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Cancels the calls made so far and any call made afterwards.
+     */
+    public void cancel() {
+        List<Call> registered;
+        synchronized (this) {
+            cancelled = true;
+            registered = new ArrayList<>(calls);
+            calls.clear();
+        }
+        registered.forEach(Call::cancel);
+    }
+
+    private void register(Call call) {
+        synchronized (this) {
+            if (!cancelled) {
+                calls.add(call);
+                return;
+            }
+        }
+        call.cancel();
+    }
+}
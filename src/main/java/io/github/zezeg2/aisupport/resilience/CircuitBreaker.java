@@ -0,0 +1,147 @@
+package io.github.zezeg2.aisupport.resilience;
+
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.common.exceptions.CircuitBreakerOpenException;
+import io.github.zezeg2.aisupport.config.properties.CircuitBreakerProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The CircuitBreaker class keeps a circuit per model over the outcomes of its recent chat completion requests.
+ * A closed circuit lets every request through. When the share of transient failures in the sliding window reaches the threshold,
+ * the circuit opens and fails requests fast for the open duration, after which it turns half-open and lets a few trial requests through:
+ * the circuit closes again once they all succeed, and opens again on the first failure.
+ * Circuits are kept in memory and are not shared between instances.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final CircuitBreakerProperties properties;
+    private final Map<AIModel, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public CircuitBreaker(CircuitBreakerProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Asks the circuit of a model to let a request through. Every permitted request must be followed by
+     * {@link #record(AIModel, boolean)} once its outcome is known, or by {@link #release(AIModel)} if it is abandoned.
+     *
+     * @param model The AI model of the request.
+     * @throws CircuitBreakerOpenException if the circuit is open, or half-open with all its trial requests in flight.
+     */
+    public void acquirePermission(AIModel model) {
+        getCircuit(model).acquire(model);
+    }
+
+    /**
+     * Records the outcome of a permitted request. Failures that are not transient should be recorded as successes,
+     * since they say nothing about the health of the provider.
+     *
+     * @param model   The AI model of the request.
+     * @param failure Whether the request failed transiently.
+     */
+    public void record(AIModel model, boolean failure) {
+        getCircuit(model).record(failure);
+    }
+
+    /**
+     * Gives back the permission of a request abandoned before its outcome was known.
+     *
+     * @param model The AI model of the request.
+     */
+    public void release(AIModel model) {
+        getCircuit(model).release();
+    }
+
+    /**
+     * Gets the state of the circuit of a model.
+     *
+     * @param model The AI model.
+     * @return The state of its circuit.
+     */
+    public State getState(AIModel model) {
+        return getCircuit(model).getState();
+    }
+
+    private Circuit getCircuit(AIModel model) {
+        return circuits.computeIfAbsent(model, key -> new Circuit());
+    }
+
+    private class Circuit {
+        private final boolean[] window = new boolean[properties.getSlidingWindowSize()];
+        private int size;
+        private int next;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openedAt;
+        private int trials;
+        private int trialSuccesses;
+
+        synchronized void acquire(AIModel model) {
+            if (state == State.OPEN) {
+                long remaining = openedAt + properties.getOpenDuration() - System.currentTimeMillis();
+                if (remaining > 0) throw new CircuitBreakerOpenException(model, "retry in %d ms".formatted(remaining));
+                state = State.HALF_OPEN;
+                trials = 0;
+                trialSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trials >= properties.getHalfOpenCalls()) throw new CircuitBreakerOpenException(model, "trial requests in flight");
+                trials++;
+            }
+        }
+
+        synchronized void record(boolean failure) {
+            switch (state) {
+                case CLOSED -> {
+                    if (size == window.length) {
+                        if (window[next]) failures--;
+                    } else {
+                        size++;
+                    }
+                    window[next] = failure;
+                    if (failure) failures++;
+                    next = (next + 1) % window.length;
+                    if (size >= properties.getMinimumCalls() && failures * 100 >= properties.getFailureRateThreshold() * size) open();
+                }
+                case HALF_OPEN -> {
+                    if (failure) {
+                        open();
+                    } else if (++trialSuccesses >= properties.getHalfOpenCalls()) {
+                        close();
+                    }
+                }
+                case OPEN -> {
+                }
+            }
+        }
+
+        synchronized void release() {
+            if (state == State.HALF_OPEN && trials > trialSuccesses) trials--;
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            size = 0;
+            next = 0;
+            failures = 0;
+        }
+    }
+}
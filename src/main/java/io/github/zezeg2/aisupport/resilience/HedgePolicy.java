@@ -0,0 +1,182 @@
+package io.github.zezeg2.aisupport.resilience;
+
+import com.theokanning.openai.Usage;
+import io.github.zezeg2.aisupport.common.enums.model.AIModel;
+import io.github.zezeg2.aisupport.config.properties.HedgeProperties;
+import io.github.zezeg2.aisupport.core.function.BulkExecutor;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The HedgePolicy class decides when the chat completion request of an opted-in function is hedged.
+ * It keeps a window of the recent latencies per function and model, and hedges a request still unanswered after the configured
+ * percentile of them. Hedges are paid for by a budget every request adds a fraction of a hedge to, which bounds the hedge rate;
+ * a request that finds the budget short is not hedged, however slow it is.
+ * <p>
+ * Blocking requests race on an executor shared by every hedged request, shut down when the policy is closed.
+ */
+public class HedgePolicy implements AutoCloseable {
+
+    /**
+     * The most hedges the budget saves up for a burst of slow requests.
+     */
+    private static final double MAX_BUDGET = 10;
+
+    private final HedgeProperties properties;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder hedgedCount = new LongAdder();
+    private final LongAdder deniedCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+    private final LongAdder loserTokens = new LongAdder();
+    private final ExecutorService executor = BulkExecutor.newExecutor();
+    private double budget;
+
+    public HedgePolicy(HedgeProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Checks whether the requests of a function are hedged.
+     *
+     * @param functionName The name of the function.
+     * @return {@code true} if the function opted in.
+     */
+    public boolean isHedged(String functionName) {
+        return functionName != null && properties.getFunctions().contains(functionName);
+    }
+
+    /**
+     * Gets the time to wait for a response before hedging a request, counting the request towards the hedge budget.
+     *
+     * @param functionName The name of the function.
+     * @param model        The AI model of the request.
+     * @return The hedge delay in milliseconds.
+     */
+    public long getDelay(String functionName, AIModel model) {
+        requestCount.increment();
+        synchronized (this) {
+            budget = Math.min(MAX_BUDGET, budget + properties.getMaxHedgeRatio());
+        }
+        return Math.max(properties.getMinDelay(), getWindow(functionName, model).percentile());
+    }
+
+    /**
+     * Takes a hedge from the budget.
+     *
+     * @return {@code true} if the hedge may be sent.
+     */
+    public boolean tryHedge() {
+        synchronized (this) {
+            if (budget < 1) {
+                deniedCount.increment();
+                return false;
+            }
+            budget -= 1;
+        }
+        hedgedCount.increment();
+        return true;
+    }
+
+    /**
+     * Records the outcome of a race with the latency of its primary request: its own latency when it won, or the time it had
+     * been waiting when the hedge won, a lower bound of its latency. Leaving the slow primaries out would lower the percentile
+     * with every hedge that wins.
+     *
+     * @param functionName  The name of the function.
+     * @param model         The AI model of the request.
+     * @param latencyMillis The time since the primary request was sent, in milliseconds.
+     * @param hedge         Whether the response answered the hedge.
+     */
+    public void record(String functionName, AIModel model, long latencyMillis, boolean hedge) {
+        if (hedge) hedgeWinCount.increment();
+        getWindow(functionName, model).add(latencyMillis);
+    }
+
+    /**
+     * Records a request that lost its race after it was answered, so that the tokens it used are accounted for.
+     *
+     * @param usage The usage of the losing response, if any.
+     */
+    public void recordLoser(Usage usage) {
+        if (usage != null) loserTokens.add(usage.getTotalTokens());
+    }
+
+    /**
+     * Records a request that lost its race and was cancelled before it was answered. Its usage is unknown.
+     */
+    public void recordCancelled() {
+        cancelledCount.increment();
+    }
+
+    /**
+     * Gets the executor blocking requests race on.
+     *
+     * @return The shared executor.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Retrieves a snapshot of the hedged requests.
+     *
+     * @return The hedge statistics.
+     */
+    public HedgeStatistics getStatistics() {
+        return HedgeStatistics.builder()
+                .requestCount(requestCount.sum())
+                .hedgedCount(hedgedCount.sum())
+                .deniedCount(deniedCount.sum())
+                .hedgeWinCount(hedgeWinCount.sum())
+                .cancelledCount(cancelledCount.sum())
+                .loserTokens(loserTokens.sum())
+                .build();
+    }
+
+    private LatencyWindow getWindow(String functionName, AIModel model) {
+        return windows.computeIfAbsent(functionName + ":" + model.getValue(), key -> new LatencyWindow());
+    }
+
+    /**
+     * A window of the recent latencies, kept both in arrival order, to evict the oldest, and sorted, so that reading
+     * a percentile does not sort the window on every request.
+     */
+    private class LatencyWindow {
+        private final long[] latencies = new long[properties.getWindowSize()];
+        private final long[] sorted = new long[latencies.length];
+        private int size;
+        private int next;
+
+        synchronized void add(long latencyMillis) {
+            if (size == latencies.length) {
+                int evicted = Arrays.binarySearch(sorted, 0, size, latencies[next]);
+                System.arraycopy(sorted, evicted + 1, sorted, evicted, size - evicted - 1);
+                size--;
+            }
+            int index = Arrays.binarySearch(sorted, 0, size, latencyMillis);
+            if (index < 0) index = -index - 1;
+            System.arraycopy(sorted, index, sorted, index + 1, size - index);
+            sorted[index] = latencyMillis;
+            size++;
+            latencies[next] = latencyMillis;
+            next = (next + 1) % latencies.length;
+        }
+
+        synchronized long percentile() {
+            if (size < properties.getMinSamples()) return properties.getInitialDelay();
+            int index = (int) Math.ceil(properties.getPercentile() / 100 * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
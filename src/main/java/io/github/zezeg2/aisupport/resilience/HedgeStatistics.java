@@ -0,0 +1,27 @@
+package io.github.zezeg2.aisupport.resilience;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The HedgeStatistics class is a snapshot of the hedged requests of a HedgePolicy.
+ */
+@Data
+@Builder
+public class HedgeStatistics {
+    private final long requestCount;
+    private final long hedgedCount;
+    private final long deniedCount;
+    private final long hedgeWinCount;
+    private final long cancelledCount;
+    private final long loserTokens;
+
+    /**
+     * Gets the ratio of requests that were hedged.
+     *
+     * @return The hedge rate, or 0 if there was no request.
+     */
+    public double getHedgeRate() {
+        return requestCount == 0 ? 0d : (double) hedgedCount / requestCount;
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.zezeg2.aisupport.resilience;
+
+import com.theokanning.openai.OpenAiHttpException;
+import io.github.zezeg2.aisupport.common.exceptions.ChatCompletionHttpException;
+import io.github.zezeg2.aisupport.config.properties.RetryProperties;
+import lombok.RequiredArgsConstructor;
+import retrofit2.HttpException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The RetryPolicy class decides whether a failed chat completion request is retried and how long to back off before the retry.
+ * Only transient failures are retried. The backoff grows exponentially with the attempts and is jittered so that the clients
+ * failing together do not retry together; a Retry-After header sent by the API is honored as the least backoff.
+ */
+@RequiredArgsConstructor
+public class RetryPolicy {
+
+    private final RetryProperties properties;
+
+    /**
+     * Checks whether a failure is transient: an HTTP 408, 429 or 5xx response, or a timeout or I/O failure anywhere in its causes.
+     * The blocking OpenAiService rethrows a raw {@link HttpException} when the error body is not an OpenAI error, as the HTML
+     * pages of proxies answering 502, 503 or 504 are, so both exception types are checked.
+     *
+     * @param e The failure.
+     * @return {@code true} if the failure is transient.
+     */
+    public static boolean isTransient(Throwable e) {
+        if (e instanceof OpenAiHttpException httpException) return isTransient(httpException.statusCode);
+        if (e instanceof HttpException httpException) return isTransient(httpException.code());
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) return true;
+            if (cause.getCause() == cause) break;
+        }
+        return false;
+    }
+
+    private static boolean isTransient(int statusCode) {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Gets the wait a failure asks for through the Retry-After header of its response.
+     *
+     * @param e The failure.
+     * @return The wait, or {@code null} if the failure carries no valid Retry-After header.
+     */
+    public static Duration getRetryAfter(Throwable e) {
+        String retryAfter = null;
+        if (e instanceof ChatCompletionHttpException httpException) {
+            retryAfter = httpException.getRetryAfter();
+        } else if (e instanceof HttpException httpException) {
+            retryAfter = getRetryAfter(httpException);
+        } else if (e instanceof OpenAiHttpException && e.getCause() instanceof HttpException httpException) {
+            retryAfter = getRetryAfter(httpException);
+        }
+        if (retryAfter == null || retryAfter.isBlank()) return null;
+        try {
+            return Duration.ofMillis(Math.max(0, (long) (Double.parseDouble(retryAfter.trim()) * 1000)));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                Duration wait = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException notDate) {
+                return null;
+            }
+        }
+    }
+
+    private static String getRetryAfter(HttpException httpException) {
+        return httpException.response() == null ? null : httpException.response().headers().get("Retry-After");
+    }
+
+    /**
+     * Gets the backoff before retrying a failed attempt.
+     *
+     * @param e       The failure of the attempt.
+     * @param attempt The number of the failed attempt, starting at 1.
+     * @return The backoff in milliseconds, or -1 if the attempt must not be retried.
+     */
+    public long getBackoff(Throwable e, int attempt) {
+        if (attempt >= properties.getMaxAttempts() || !isTransient(e)) return -1;
+        double base = Math.min(properties.getMaxBackoff(), properties.getInitialBackoff() * Math.pow(properties.getMultiplier(), attempt - 1));
+        long backoff = (long) (base * (1 - properties.getJitter() * ThreadLocalRandom.current().nextDouble()));
+        Duration retryAfter = getRetryAfter(e);
+        if (retryAfter == null) return backoff;
+        if (retryAfter.toMillis() > properties.getMaxBackoff()) return -1;
+        return Math.max(backoff, retryAfter.toMillis());
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.zezeg2.aisupport.context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.github.zezeg2.aisupport.core.function.prompt.ContextType;
+import io.github.zezeg2.aisupport.core.function.prompt.MessageContext;
+import io.github.zezeg2.aisupport.core.function.prompt.PromptMessageContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedContextLogTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private MappedContextLog open(int segmentSize, ContextRetention retention) {
+        return open(segmentSize, 0.5, retention);
+    }
+
+    private MappedContextLog open(int segmentSize, double compactionThreshold, ContextRetention retention) {
+        return new MappedContextLog(directory, segmentSize, compactionThreshold, false, MAPPER, retention);
+    }
+
+    private static PromptMessageContext context(long seq, String identifier, String... contents) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (String content : contents) messages.add(new ChatMessage("user", content));
+        return PromptMessageContext.builder().seq(seq).functionName("function").identifier(identifier).messages(messages).build();
+    }
+
+    private static List<String> contents(MessageContext messageContext) {
+        return messageContext.getMessages().stream().map(ChatMessage::getContent).toList();
+    }
+
+    private MessageContext read(MappedContextLog log, long seq, String identifier) {
+        return log.readContext(ContextType.PROMPT, "function", identifier, seq);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    @Test
+    void recoversTheLatestStateOfEveryContext() throws IOException {
+        try (MappedContextLog log = open(64 * 1024, ContextRetention.NONE)) {
+            log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "a", "first"), context(log.nextSequence(), "b", "other")));
+            log.writeContexts(ContextType.PROMPT, List.of(context(0, "a", "first", "second")));
+        }
+        try (MappedContextLog log = open(64 * 1024, ContextRetention.NONE)) {
+            assertEquals(List.of("first", "second"), contents(read(log, 0, "a")));
+            assertEquals(List.of("other"), contents(read(log, 1, "b")));
+            assertEquals(2, log.nextSequence());
+        }
+    }
+
+    @Test
+    void stopsReplayingAtATornRecord() throws IOException {
+        try (MappedContextLog log = open(64 * 1024, ContextRetention.NONE)) {
+            log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "a", "kept")));
+            log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "b", "torn")));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            channel.read(content, 0);
+            int last = content.capacity() - 1;
+            while (content.get(last) == 0) last--;
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (content.get(last) ^ 0xFF)}), last);
+        }
+        try (MappedContextLog log = open(64 * 1024, ContextRetention.NONE)) {
+            assertEquals(List.of("kept"), contents(read(log, 0, "a")));
+            assertNull(read(log, 1, "b"));
+            log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "c", "after")));
+        }
+        try (MappedContextLog log = open(64 * 1024, ContextRetention.NONE)) {
+            assertEquals(List.of("kept"), contents(read(log, 0, "a")));
+            assertEquals(List.of("after"), contents(read(log, 1, "c")));
+        }
+    }
+
+    @Test
+    void compactsAndDeletesSegmentsOfOverwrittenContexts() throws IOException {
+        try (MappedContextLog log = open(1024, ContextRetention.NONE)) {
+            for (int i = 0; i < 200; i++) log.writeContexts(ContextType.PROMPT, List.of(context(0, "a", "state " + i)));
+            assertTrue(segmentCount() <= 3, "segments: " + segmentCount());
+        }
+        try (MappedContextLog log = open(1024, ContextRetention.NONE)) {
+            assertEquals(List.of("state 199"), contents(read(log, 0, "a")));
+        }
+    }
+
+    @Test
+    void dropsExpiredContexts() throws Exception {
+        ContextRetention retention = new ContextRetention(Duration.ofMillis(50), Duration.ZERO, Duration.ZERO);
+        try (MappedContextLog log = open(64 * 1024, retention)) {
+            log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "a", "expiring")));
+            assertNotNull(read(log, 0, "a"));
+        }
+        Thread.sleep(100);
+        try (MappedContextLog log = open(64 * 1024, retention)) {
+            assertNull(read(log, 0, "a"));
+            assertEquals(1, log.nextSequence());
+        }
+    }
+
+    @Test
+    void deletesSegmentsHoldingOnlyExpiredContexts() throws Exception {
+        ContextRetention retention = new ContextRetention(Duration.ofMillis(50), Duration.ZERO, Duration.ZERO);
+        try (MappedContextLog log = open(1024, retention)) {
+            for (int i = 0; i < 20; i++) log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "a", "expiring " + i)));
+            long written = segmentCount();
+            Thread.sleep(100);
+            for (int i = 0; i < 10; i++) log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "b", "recent " + i)));
+            assertTrue(segmentCount() < written, "segments: " + segmentCount() + " of " + written);
+            assertNull(read(log, 0, "a"));
+            assertEquals(List.of("recent 9"), contents(read(log, 29, "b")));
+        }
+    }
+
+    @Test
+    void deletesExpiredSegmentsWithoutCompaction() throws Exception {
+        ContextRetention retention = new ContextRetention(Duration.ofMillis(50), Duration.ZERO, Duration.ZERO);
+        try (MappedContextLog log = open(1024, 0, retention)) {
+            for (int i = 0; i < 20; i++) log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "a", "expiring " + i)));
+            long written = segmentCount();
+            Thread.sleep(100);
+            for (int i = 0; i < 10; i++) log.writeContexts(ContextType.PROMPT, List.of(context(log.nextSequence(), "b", "recent " + i)));
+            assertTrue(segmentCount() < written, "segments: " + segmentCount() + " of " + written);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.zezeg2.aisupport.context.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.zezeg2.aisupport.config.properties.CodecFormat;
+import io.github.zezeg2.aisupport.config.properties.Compression;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressingContextCodecTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<String, Object> VALUE = Map.of("identifier", "id", "content", "lorem ipsum ".repeat(200));
+
+    @Test
+    void roundTripsEveryCompressionAndFormat() {
+        for (CodecFormat format : CodecFormat.values()) {
+            for (Compression compression : Compression.values()) {
+                CompressingContextCodec codec = new CompressingContextCodec(JacksonContextCodec.of(MAPPER, format), compression, 64);
+                byte[] encoded = codec.encode(VALUE);
+                assertEquals(VALUE, codec.decode(encoded, Map.class), format + "/" + compression);
+            }
+        }
+    }
+
+    @Test
+    void compressesOnlyFromTheThreshold() {
+        CompressingContextCodec codec = new CompressingContextCodec(new JacksonContextCodec(MAPPER), Compression.LZ4, 64);
+        byte[] small = codec.encode(Map.of("a", "b"));
+        assertEquals('{', small[0]);
+        byte[] large = codec.encode(VALUE);
+        assertTrue(large.length < new JacksonContextCodec(MAPPER).encode(VALUE).length);
+    }
+
+    @Test
+    void decodesValuesStoredBeforeCompressionWasEnabled() throws Exception {
+        byte[] legacy = MAPPER.writeValueAsBytes(VALUE);
+        CompressingContextCodec codec = new CompressingContextCodec(new JacksonContextCodec(MAPPER), Compression.DEFLATE, 64);
+        assertEquals(VALUE, codec.decode(legacy, Map.class));
+    }
+
+    @Test
+    void rejectsEncodedValuesStartingWithAHeaderByte() {
+        ContextCodec delegate = new JacksonContextCodec(MAPPER) {
+            @Override
+            public byte[] encode(Object value) {
+                return new byte[]{0, '{', '}'};
+            }
+        };
+        CompressingContextCodec codec = new CompressingContextCodec(delegate, Compression.NONE, 64);
+        assertThrows(IllegalStateException.class, () -> codec.encode(VALUE));
+    }
+
+    @Test
+    void decodesCompressedValuesAfterCompressionIsDisabled() {
+        byte[] compressed = new CompressingContextCodec(new JacksonContextCodec(MAPPER), Compression.LZ4, 64).encode(VALUE);
+        CompressingContextCodec codec = new CompressingContextCodec(new JacksonContextCodec(MAPPER), Compression.NONE, 64);
+        assertEquals(VALUE, codec.decode(compressed, Map.class));
+    }
+
+    @Test
+    void detectsTheFormatOfStoredValues() {
+        ContextCodec json = JacksonContextCodec.of(MAPPER, CodecFormat.JSON);
+        ContextCodec smile = JacksonContextCodec.of(MAPPER, CodecFormat.SMILE);
+        ContextCodec cbor = JacksonContextCodec.of(MAPPER, CodecFormat.CBOR);
+        assertEquals(VALUE, smile.decode(json.encode(VALUE), Map.class));
+        assertEquals(VALUE, cbor.decode(smile.encode(VALUE), Map.class));
+        assertEquals(VALUE, json.decode(cbor.encode(VALUE), Map.class));
+        assertEquals("text", json.decode(" \"text\"".getBytes(StandardCharsets.UTF_8), String.class));
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.zezeg2.aisupport.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void startsFull() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        assertEquals(0, bucket.nanosUntilAvailable(60, 0));
+    }
+
+    @Test
+    void waitsForMissingPermitsToBeRefilled() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        bucket.take(60);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.nanosUntilAvailable(1, 0));
+        assertEquals(0, bucket.nanosUntilAvailable(1, TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    void doesNotRefillBeyondCapacity() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        bucket.take(60);
+        assertEquals(0, bucket.nanosUntilAvailable(60, 10 * MINUTE));
+        bucket.take(60);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.nanosUntilAvailable(1, 10 * MINUTE));
+    }
+
+    @Test
+    void makesLaterCallersWaitForTheDebt() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        bucket.take(60);
+        bucket.take(30);
+        assertEquals(TimeUnit.SECONDS.toNanos(31), bucket.nanosUntilAvailable(1, 0));
+    }
+
+    @Test
+    void capsRequestsLargerThanCapacityToAFullBucket() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        assertEquals(0, bucket.nanosUntilAvailable(1000, 0));
+        bucket.take(1000);
+        assertEquals(MINUTE, bucket.nanosUntilAvailable(1000, 0));
+    }
+
+    @Test
+    void givesBackUnusedPermitsUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        bucket.take(60);
+        bucket.give(30);
+        assertEquals(0, bucket.nanosUntilAvailable(30, 0));
+        bucket.give(1000);
+        bucket.take(60);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.nanosUntilAvailable(1, 0));
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.zezeg2.aisupport.resilience;
+
+import io.github.zezeg2.aisupport.common.enums.model.gpt.GPT3Model;
+import io.github.zezeg2.aisupport.common.exceptions.CircuitBreakerOpenException;
+import io.github.zezeg2.aisupport.config.properties.CircuitBreakerProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final GPT3Model MODEL = GPT3Model.GPT_3_5_TURBO;
+
+    private static CircuitBreaker circuitBreaker(long openDuration) {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setFailureRateThreshold(50);
+        properties.setSlidingWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setOpenDuration(openDuration);
+        properties.setHalfOpenCalls(2);
+        return new CircuitBreaker(properties);
+    }
+
+    private static void call(CircuitBreaker circuitBreaker, boolean failure) {
+        circuitBreaker.acquirePermission(MODEL);
+        circuitBreaker.record(MODEL, failure);
+    }
+
+    private static void open(CircuitBreaker circuitBreaker) {
+        for (int i = 0; i < 4; i++) call(circuitBreaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(MODEL));
+    }
+
+    @Test
+    void staysClosedBelowTheMinimumCalls() {
+        CircuitBreaker circuitBreaker = circuitBreaker(60000);
+        for (int i = 0; i < 3; i++) call(circuitBreaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(MODEL));
+    }
+
+    @Test
+    void opensAtTheFailureRateThresholdAndFailsFast() {
+        CircuitBreaker circuitBreaker = circuitBreaker(60000);
+        call(circuitBreaker, false);
+        call(circuitBreaker, true);
+        call(circuitBreaker, false);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(MODEL));
+        call(circuitBreaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(MODEL));
+        assertThrows(CircuitBreakerOpenException.class, () -> circuitBreaker.acquirePermission(MODEL));
+    }
+
+    @Test
+    void slidesOldOutcomesOutOfTheWindow() {
+        CircuitBreaker circuitBreaker = circuitBreaker(60000);
+        call(circuitBreaker, true);
+        for (int i = 0; i < 3; i++) call(circuitBreaker, false);
+        call(circuitBreaker, true);
+        call(circuitBreaker, false);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(MODEL));
+    }
+
+    @Test
+    void keepsCircuitsPerModel() {
+        CircuitBreaker circuitBreaker = circuitBreaker(60000);
+        open(circuitBreaker);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(GPT3Model.GPT_3_5_TURBO_16_K));
+        assertDoesNotThrow(() -> circuitBreaker.acquirePermission(GPT3Model.GPT_3_5_TURBO_16_K));
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialRequests() {
+        CircuitBreaker circuitBreaker = circuitBreaker(0);
+        open(circuitBreaker);
+        circuitBreaker.acquirePermission(MODEL);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState(MODEL));
+        circuitBreaker.acquirePermission(MODEL);
+        assertThrows(CircuitBreakerOpenException.class, () -> circuitBreaker.acquirePermission(MODEL));
+        circuitBreaker.record(MODEL, false);
+        circuitBreaker.record(MODEL, false);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(MODEL));
+    }
+
+    @Test
+    void reopensOnAFailedTrialRequest() {
+        CircuitBreaker circuitBreaker = circuitBreaker(0);
+        open(circuitBreaker);
+        circuitBreaker.acquirePermission(MODEL);
+        circuitBreaker.record(MODEL, true);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(MODEL));
+    }
+
+    @Test
+    void releasesAbandonedTrialRequests() {
+        CircuitBreaker circuitBreaker = circuitBreaker(0);
+        open(circuitBreaker);
+        circuitBreaker.acquirePermission(MODEL);
+        circuitBreaker.acquirePermission(MODEL);
+        circuitBreaker.release(MODEL);
+        assertDoesNotThrow(() -> circuitBreaker.acquirePermission(MODEL));
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.zezeg2.aisupport.resilience;
+
+import com.theokanning.openai.OpenAiError;
+import com.theokanning.openai.OpenAiHttpException;
+import io.github.zezeg2.aisupport.common.exceptions.ChatCompletionHttpException;
+import io.github.zezeg2.aisupport.config.properties.RetryProperties;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    private static RetryPolicy retryPolicy(double jitter) {
+        RetryProperties properties = new RetryProperties();
+        properties.setMaxAttempts(4);
+        properties.setInitialBackoff(100);
+        properties.setMultiplier(2.0);
+        properties.setMaxBackoff(1000);
+        properties.setJitter(jitter);
+        return new RetryPolicy(properties);
+    }
+
+    private static OpenAiHttpException httpException(int statusCode, String retryAfter) {
+        return new ChatCompletionHttpException(new OpenAiError(new OpenAiError.OpenAiErrorDetails()), statusCode, retryAfter);
+    }
+
+    @Test
+    void retriesOnlyTransientFailures() {
+        assertTrue(RetryPolicy.isTransient(httpException(429, null)));
+        assertTrue(RetryPolicy.isTransient(httpException(408, null)));
+        assertTrue(RetryPolicy.isTransient(httpException(503, null)));
+        assertFalse(RetryPolicy.isTransient(httpException(400, null)));
+        assertFalse(RetryPolicy.isTransient(httpException(401, null)));
+        assertTrue(RetryPolicy.isTransient(new RuntimeException(new SocketTimeoutException())));
+        assertTrue(RetryPolicy.isTransient(new IOException()));
+        assertFalse(RetryPolicy.isTransient(new IllegalArgumentException()));
+    }
+
+    @Test
+    void growsTheBackoffExponentially() {
+        RetryPolicy retryPolicy = retryPolicy(0);
+        OpenAiHttpException failure = httpException(503, null);
+        assertEquals(100, retryPolicy.getBackoff(failure, 1));
+        assertEquals(200, retryPolicy.getBackoff(failure, 2));
+        assertEquals(400, retryPolicy.getBackoff(failure, 3));
+        assertEquals(-1, retryPolicy.getBackoff(failure, 4));
+    }
+
+    @Test
+    void capsTheBackoffAtTheMaximum() {
+        RetryProperties properties = new RetryProperties();
+        properties.setMaxAttempts(10);
+        properties.setInitialBackoff(100);
+        properties.setMaxBackoff(1000);
+        properties.setJitter(0);
+        assertEquals(1000, new RetryPolicy(properties).getBackoff(httpException(503, null), 8));
+    }
+
+    @Test
+    void jittersTheBackoffBelowTheBase() {
+        RetryPolicy retryPolicy = retryPolicy(0.5);
+        for (int i = 0; i < 100; i++) {
+            long backoff = retryPolicy.getBackoff(httpException(503, null), 2);
+            assertTrue(backoff >= 100 && backoff <= 200, "backoff: " + backoff);
+        }
+    }
+
+    @Test
+    void doesNotRetryPermanentFailures() {
+        assertEquals(-1, retryPolicy(0).getBackoff(httpException(400, null), 1));
+    }
+
+    @Test
+    void honorsRetryAfterAsTheLeastBackoff() {
+        RetryPolicy retryPolicy = retryPolicy(0);
+        assertEquals(500, retryPolicy.getBackoff(httpException(429, "0.5"), 1));
+        assertEquals(200, retryPolicy.getBackoff(httpException(429, "0.1"), 2));
+        assertEquals(-1, retryPolicy.getBackoff(httpException(429, "5"), 1));
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndDates() {
+        assertEquals(Duration.ofSeconds(2), RetryPolicy.getRetryAfter(httpException(429, "2")));
+        assertEquals(Duration.ZERO, RetryPolicy.getRetryAfter(httpException(429, DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().minusMinutes(1)))));
+        Duration wait = RetryPolicy.getRetryAfter(httpException(429, DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusMinutes(1))));
+        assertNotNull(wait);
+        assertTrue(wait.toSeconds() > 50 && wait.toSeconds() <= 60, "wait: " + wait);
+        assertNull(RetryPolicy.getRetryAfter(httpException(429, "soon")));
+        assertNull(RetryPolicy.getRetryAfter(httpException(429, null)));
+    }
+}